@@ -6,4 +6,9 @@ public class AppConstant {
 
     public static final String SYSTEM = "system";
     public static final @NotNull String DEFAULT_TENANT = "ueanak-tenant";
+    // Request header naming the caller's tenant, DEFAULT_TENANT when absent
+    public static final String TENANT_HEADER = "X-Tenant-Id";
+
+    // Must match the output size of quarkus.langchain4j.ollama.embedding-model (llama3 = 4096)
+    public static final int ASSET_EMBEDDING_DIMENSION = 4096;
 }
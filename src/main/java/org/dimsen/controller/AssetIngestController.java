@@ -0,0 +1,65 @@
+package org.dimsen.controller;
+
+import jakarta.inject.Inject;
+import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import org.dimsen.enums.IndexConsistencyMode;
+import org.dimsen.service.AssetIngestService;
+import org.jboss.logging.Logger;
+
+import java.io.InputStream;
+
+/**
+ * Bulk ingest of assets. Not transactional: the service commits the input chunk by chunk.
+ * The {@code consistency} query parameter ({@code NONE}, {@code WRITE_SYNC} or
+ * {@code READ_SYNC}) selects whether the response waits for the last chunk to be indexed,
+ * and refreshed.
+ */
+@Path("/assets/ingest")
+@Produces(MediaType.APPLICATION_JSON)
+public class AssetIngestController {
+
+    private static final Logger LOG = Logger.getLogger(AssetIngestController.class);
+
+    @Inject
+    AssetIngestService ingestService;
+
+    @POST
+    @Consumes("application/x-ndjson")
+    public Response ingestNdjson(
+            InputStream body,
+            @QueryParam("consistency") @DefaultValue("WRITE_SYNC") IndexConsistencyMode consistency) {
+        return ingest(body, AssetIngestService.Format.NDJSON, consistency);
+    }
+
+    @POST
+    @Consumes("text/csv")
+    public Response ingestCsv(
+            InputStream body,
+            @QueryParam("consistency") @DefaultValue("WRITE_SYNC") IndexConsistencyMode consistency) {
+        return ingest(body, AssetIngestService.Format.CSV, consistency);
+    }
+
+    private Response ingest(InputStream body, AssetIngestService.Format format, IndexConsistencyMode consistency) {
+        LOG.infof("Received %s ingest request (%s)", format, consistency);
+
+        try {
+            var result = ingestService.ingest(body, format, consistency);
+            LOG.infof("Ingest request completed in %d ms, %d assets committed, %d records rejected",
+                      result.took(), result.assets(), result.rejected());
+            return Response.ok(result).build();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOG.error("Ingest interrupted", e);
+            return Response.serverError()
+                    .entity("Ingest interrupted: " + e.getMessage())
+                    .build();
+        } catch (Exception e) {
+            LOG.errorf(e, "Error processing ingest: %s", e.getMessage());
+            return Response.serverError()
+                    .entity("Error processing ingest request: " + e.getMessage())
+                    .build();
+        }
+    }
+}
@@ -4,12 +4,31 @@ import jakarta.inject.Inject;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
+import io.smallrye.common.annotation.Blocking;
+import io.smallrye.mutiny.Multi;
+import org.dimsen.constant.AppConstant;
+import org.dimsen.dto.CompoundSearchEvent;
 import org.dimsen.dto.CompoundSearchRequest;
+import org.dimsen.dto.FacetSearchRequest;
+import org.dimsen.dto.MultiSearchRequest;
+import org.dimsen.dto.ReindexJobRequest;
+import org.jboss.resteasy.reactive.RestStreamElementType;
 import org.dimsen.dto.AssetIssueSearchRequest;
+import org.dimsen.dto.AssetSearchDTO;
+import org.dimsen.dto.SearchPage;
+import org.dimsen.service.AssetMultiSearch;
 import org.dimsen.service.AssetSearchService;
+import org.dimsen.service.BlueGreenReindexer;
+import org.dimsen.service.IndexFreshnessTracker;
+import org.dimsen.service.IndexSyncQueue;
+import org.dimsen.service.ReindexJobService;
 import jakarta.transaction.Transactional;
 import org.jboss.logging.Logger;
 
+import java.net.URI;
+import java.util.NoSuchElementException;
+import java.util.function.Supplier;
+
 @Path("/assets/search")
 @Produces(MediaType.APPLICATION_JSON)
 @Consumes(MediaType.APPLICATION_JSON)
@@ -21,12 +40,28 @@ public class AssetSearchController {
     @Inject
     AssetSearchService searchService;
 
+    @Inject
+    AssetMultiSearch multiSearch;
+
+    @Inject
+    IndexFreshnessTracker freshnessTracker;
+
+    @Inject
+    IndexSyncQueue indexSyncQueue;
+
+    @Inject
+    ReindexJobService reindexJobs;
+
+    @Inject
+    BlueGreenReindexer blueGreen;
+
     @GET
     @Path("/fuzzy-name")
     public Response fuzzyNameSearch(
             @QueryParam("name") String nameQuery,
             @QueryParam("maxEdits") Integer maxEdits,
-            @QueryParam("limit") @DefaultValue("20") int limit) {
+            @QueryParam("limit") @DefaultValue("20") int limit,
+            @HeaderParam(AppConstant.TENANT_HEADER) @DefaultValue(AppConstant.DEFAULT_TENANT) String tenant) {
         
         LOG.infof("Received fuzzy name search request - name='%s', maxEdits=%s, limit=%d",
                   nameQuery, maxEdits != null ? maxEdits : "default", limit);
@@ -40,7 +75,7 @@ public class AssetSearchController {
 
         try {
             var startTime = System.currentTimeMillis();
-            var results = searchService.fuzzyNameSearch(nameQuery, maxEdits, limit);
+            var results = searchService.fuzzyNameSearch(tenant, nameQuery, maxEdits, limit);
             var duration = System.currentTimeMillis() - startTime;
 
             LOG.infof("Fuzzy name search request completed in %d ms, returning %d results",
@@ -60,7 +95,8 @@ public class AssetSearchController {
     @Path("/multi-field")
     public Response multiFieldSearch(
             @QueryParam("q") String searchTerm,
-            @QueryParam("limit") @DefaultValue("20") int limit) {
+            @QueryParam("limit") @DefaultValue("20") int limit,
+            @HeaderParam(AppConstant.TENANT_HEADER) @DefaultValue(AppConstant.DEFAULT_TENANT) String tenant) {
         
         LOG.infof("Received multi-field search request - term='%s', limit=%d",
                   searchTerm, limit);
@@ -74,7 +110,7 @@ public class AssetSearchController {
 
         try {
             var startTime = System.currentTimeMillis();
-            var results = searchService.multiFieldSearch(searchTerm, limit);
+            var results = searchService.multiFieldSearch(tenant, searchTerm, limit);
             var duration = System.currentTimeMillis() - startTime;
 
             LOG.infof("Multi-field search request completed in %d ms, returning %d results",
@@ -90,26 +126,305 @@ public class AssetSearchController {
         }
     }
 
+    /**
+     * Typeahead for asset names and serial numbers. Runs outside of the class-level
+     * transaction, it only reads the index.
+     */
+    @GET
+    @Path("/suggest")
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
+    public Response suggest(
+            @QueryParam("q") String text,
+            @QueryParam("limit") @DefaultValue("10") int limit) {
+
+        if (text == null || text.isBlank()) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity("Query parameter q is required")
+                    .build();
+        }
+        if (limit < 1 || limit > 50) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity("limit must be between 1 and 50")
+                    .build();
+        }
+
+        try {
+            return Response.ok(searchService.suggest(text, limit)).build();
+        } catch (Exception e) {
+            LOG.errorf(e, "Error processing suggest - q='%s': %s", text, e.getMessage());
+            return Response.serverError()
+                    .entity("Error processing suggest request: " + e.getMessage())
+                    .build();
+        }
+    }
+
+    /**
+     * Runs a batch of fuzzy-name, multi-field, compound and issues searches concurrently.
+     * Each query runs in its own session, so the request itself holds no transaction; a
+     * failed query is reported in its result without failing the batch.
+     */
     @POST
-    @Path("/reindex")
-    public Response reindexAll() {
-        LOG.info("Received reindex request");
+    @Path("/multi")
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
+    public Response multiSearch(
+            MultiSearchRequest request,
+            @HeaderParam(AppConstant.TENANT_HEADER) @DefaultValue(AppConstant.DEFAULT_TENANT) String tenant) {
+        LOG.infof("Received multi-search request with %d queries",
+                  request.queries() != null ? request.queries().size() : 0);
+
+        try {
+            return Response.ok(multiSearch.search(tenant, request)).build();
+        } catch (IllegalArgumentException e) {
+            LOG.warnf("Multi-search request rejected: %s", e.getMessage());
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity(e.getMessage())
+                    .build();
+        } catch (Exception e) {
+            LOG.errorf(e, "Error processing multi-search: %s", e.getMessage());
+            return Response.serverError()
+                    .entity("Error processing search request: " + e.getMessage())
+                    .build();
+        }
+    }
+
+    @GET
+    @Path("/fuzzy-name/page")
+    public Response fuzzyNameSearchPage(
+            @QueryParam("name") String nameQuery,
+            @QueryParam("maxEdits") Integer maxEdits,
+            @QueryParam("size") @DefaultValue("20") int size,
+            @QueryParam("cursor") String cursor,
+            @HeaderParam(AppConstant.TENANT_HEADER) @DefaultValue(AppConstant.DEFAULT_TENANT) String tenant) {
         
+        LOG.infof("Received paged fuzzy name search request - name='%s', size=%d, cursor=%s",
+                  nameQuery, size, cursor != null);
+
+        if (nameQuery == null || nameQuery.isBlank()) {
+            LOG.warn("Paged fuzzy name search request rejected: missing or empty name parameter");
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity("Name query parameter is required")
+                    .build();
+        }
+
+        return page(() -> searchService.fuzzyNameSearchPage(tenant, nameQuery, maxEdits, size, cursor));
+    }
+
+    @GET
+    @Path("/multi-field/page")
+    public Response multiFieldSearchPage(
+            @QueryParam("q") String searchTerm,
+            @QueryParam("size") @DefaultValue("20") int size,
+            @QueryParam("cursor") String cursor,
+            @HeaderParam(AppConstant.TENANT_HEADER) @DefaultValue(AppConstant.DEFAULT_TENANT) String tenant) {
+        
+        LOG.infof("Received paged multi-field search request - term='%s', size=%d, cursor=%s",
+                  searchTerm, size, cursor != null);
+
+        if (searchTerm == null || searchTerm.isBlank()) {
+            LOG.warn("Paged multi-field search request rejected: missing or empty search term");
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity("Search term parameter is required")
+                    .build();
+        }
+
+        return page(() -> searchService.multiFieldSearchPage(tenant, searchTerm, size, cursor));
+    }
+
+    @GET
+    @Path("/semantic")
+    public Response semanticSearch(
+            @QueryParam("q") String query,
+            @QueryParam("limit") @DefaultValue("20") int limit) {
+        
+        LOG.infof("Received semantic search request - query='%s', limit=%d", query, limit);
+
+        if (query == null || query.isBlank()) {
+            LOG.warn("Semantic search request rejected: missing or empty query");
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity("Query parameter is required")
+                    .build();
+        }
+
         try {
             var startTime = System.currentTimeMillis();
-            searchService.reindexAll();
+            var results = searchService.semanticSearch(query, limit);
             var duration = System.currentTimeMillis() - startTime;
-            
-            LOG.infof("Reindex completed successfully in %d ms", duration);
-            return Response.ok("Reindexing completed successfully").build();
-        } catch (InterruptedException e) {
-            LOG.error("Reindex operation failed", e);
+
+            LOG.infof("Semantic search request completed in %d ms, returning %d results",
+                      duration, results.size());
+
+            return Response.ok(results).build();
+        } catch (Exception e) {
+            LOG.errorf(e, "Error processing semantic search - query='%s': %s",
+                       query, e.getMessage());
+            return Response.serverError()
+                    .entity("Error processing search request: " + e.getMessage())
+                    .build();
+        }
+    }
+
+    @GET
+    @Path("/hybrid")
+    public Response hybridSearch(
+            @QueryParam("q") String query,
+            @QueryParam("limit") @DefaultValue("20") int limit) {
+        
+        LOG.infof("Received hybrid search request - query='%s', limit=%d", query, limit);
+
+        if (query == null || query.isBlank()) {
+            LOG.warn("Hybrid search request rejected: missing or empty query");
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity("Query parameter is required")
+                    .build();
+        }
+
+        try {
+            var startTime = System.currentTimeMillis();
+            var results = searchService.hybridSearch(query, limit);
+            var duration = System.currentTimeMillis() - startTime;
+
+            LOG.infof("Hybrid search request completed in %d ms, returning %d results",
+                      duration, results.size());
+
+            return Response.ok(results).build();
+        } catch (Exception e) {
+            LOG.errorf(e, "Error processing hybrid search - query='%s': %s",
+                       query, e.getMessage());
+            return Response.serverError()
+                    .entity("Error processing search request: " + e.getMessage())
+                    .build();
+        }
+    }
+
+    /**
+     * Starts a background reindex job and answers at once with its status. Jobs run without
+     * a request transaction; they commit batch by batch.
+     */
+    @POST
+    @Path("/reindex")
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
+    public Response reindexAll(ReindexJobRequest request) {
+        LOG.info("Received reindex request");
+        return reindexJob(() -> {
+            var status = reindexJobs.start(request);
+            return Response.accepted(status)
+                    .location(URI.create("/assets/search/reindex/jobs/" + status.id()))
+                    .build();
+        });
+    }
+
+    @GET
+    @Path("/reindex/jobs")
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
+    public Response reindexJobs() {
+        return Response.ok(reindexJobs.list()).build();
+    }
+
+    @GET
+    @Path("/reindex/jobs/{id}")
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
+    public Response reindexJobStatus(@PathParam("id") String id) {
+        return reindexJob(() -> Response.ok(reindexJobs.status(id)).build());
+    }
+
+    @POST
+    @Path("/reindex/jobs/{id}/cancel")
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
+    public Response cancelReindexJob(@PathParam("id") String id) {
+        LOG.infof("Received reindex cancel request for job %s", id);
+        return reindexJob(() -> Response.ok(reindexJobs.cancel(id)).build());
+    }
+
+    @POST
+    @Path("/reindex/jobs/{id}/resume")
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
+    public Response resumeReindexJob(@PathParam("id") String id) {
+        LOG.infof("Received reindex resume request for job %s", id);
+        return reindexJob(() -> Response.accepted(reindexJobs.resume(id)).build());
+    }
+
+    /**
+     * Starts a zero-downtime rebuild of all indexes into new index generations; searches
+     * keep using the current ones until the rebuild's reindex job completes
+     */
+    @POST
+    @Path("/reindex/blue-green")
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
+    public Response startBlueGreenReindex(ReindexJobRequest request) {
+        LOG.info("Received blue/green reindex request");
+        return reindexJob(() -> {
+            var status = blueGreen.start(request);
+            return Response.accepted(status)
+                    .location(URI.create("/assets/search/reindex/jobs/" + status.jobId()))
+                    .build();
+        });
+    }
+
+    @GET
+    @Path("/reindex/blue-green")
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
+    public Response blueGreenStatus() {
+        return reindexJob(() -> Response.ok(blueGreen.status()).build());
+    }
+
+    @POST
+    @Path("/reindex/blue-green/abort")
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
+    public Response abortBlueGreenReindex() {
+        LOG.info("Received blue/green reindex abort request");
+        return reindexJob(() -> Response.ok(blueGreen.abort()).build());
+    }
+
+    @POST
+    @Path("/reindex/blue-green/rollback")
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
+    public Response rollbackBlueGreenReindex() {
+        LOG.info("Received blue/green rollback request");
+        return reindexJob(() -> Response.ok(blueGreen.rollback()).build());
+    }
+
+    /**
+     * Maps the job service's errors: unknown job 404, job conflicts 409, invalid options 400
+     */
+    private Response reindexJob(Supplier<Response> action) {
+        try {
+            return action.get();
+        } catch (NoSuchElementException e) {
+            return Response.status(Response.Status.NOT_FOUND)
+                    .entity(e.getMessage())
+                    .build();
+        } catch (IllegalStateException e) {
+            LOG.warnf("Reindex request rejected: %s", e.getMessage());
+            return Response.status(Response.Status.CONFLICT)
+                    .entity(e.getMessage())
+                    .build();
+        } catch (IllegalArgumentException e) {
+            LOG.warnf("Reindex request rejected: %s", e.getMessage());
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity(e.getMessage())
+                    .build();
+        } catch (Exception e) {
+            LOG.errorf(e, "Reindex request failed: %s", e.getMessage());
             return Response.serverError()
                     .entity("Reindexing failed: " + e.getMessage())
                     .build();
         }
     }
 
+    @GET
+    @Path("/index-status")
+    public Response indexStatus() {
+        LOG.info("Received index status request");
+        return Response.ok(freshnessTracker.generations()).build();
+    }
+
+    @GET
+    @Path("/index-queue")
+    public Response indexQueueStatus() {
+        LOG.info("Received index queue status request");
+        return Response.ok(indexSyncQueue.status()).build();
+    }
+
     @POST
     @Path("/compound")
     public Response compoundSearch(CompoundSearchRequest request) {
@@ -141,6 +456,81 @@ public class AssetSearchController {
         }
     }
 
+    @POST
+    @Path("/compound/page")
+    public Response compoundSearchPage(
+            CompoundSearchRequest request,
+            @QueryParam("cursor") String cursor,
+            @HeaderParam(AppConstant.TENANT_HEADER) @DefaultValue(AppConstant.DEFAULT_TENANT) String tenant) {
+        LOG.infof("Received paged compound search request with query: %s, cursor=%s",
+                  request.naturalLanguageQuery(), cursor != null);
+
+        if (request.naturalLanguageQuery() == null || request.naturalLanguageQuery().isBlank()) {
+            LOG.warn("Paged compound search request rejected: missing or empty query");
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity("Natural language query is required")
+                    .build();
+        }
+
+        return page(() -> searchService.compoundSearchPage(tenant, request, cursor));
+    }
+
+    @POST
+    @Path("/facets")
+    public Response facetedSearch(FacetSearchRequest request) {
+        LOG.infof("Received faceted search request with filters: %s", request.filters());
+
+        if ((request.limit() != null && request.limit() < 0) || (request.maxTerms() != null && request.maxTerms() < 1)) {
+            LOG.warn("Faceted search request rejected: invalid limit or maxTerms");
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity("limit must not be negative and maxTerms must be positive")
+                    .build();
+        }
+
+        try {
+            var startTime = System.currentTimeMillis();
+            var result = searchService.facetedSearch(request);
+            var duration = System.currentTimeMillis() - startTime;
+
+            LOG.infof("Faceted search request completed in %d ms, returning %d of %d results",
+                      duration, result.hits().size(), result.totalHits());
+
+            return Response.ok(result).build();
+        } catch (Exception e) {
+            LOG.errorf(e, "Error processing faceted search - filters=%s: %s",
+                       request.filters(), e.getMessage());
+            return Response.serverError()
+                    .entity("Error processing search request: " + e.getMessage())
+                    .build();
+        }
+    }
+
+    /**
+     * Streaming variant of {@link #compoundSearch(CompoundSearchRequest)}. Emits the hits as
+     * soon as Elasticsearch answers, then each asset's commentary as it is generated.
+     * Runs outside of the class-level transaction so that no transaction is held open
+     * while the LLM streams.
+     */
+    @POST
+    @Path("/compound/stream")
+    @Produces(MediaType.SERVER_SENT_EVENTS)
+    @RestStreamElementType(MediaType.APPLICATION_JSON)
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
+    @Blocking
+    public Multi<CompoundSearchEvent> streamCompoundSearch(
+            CompoundSearchRequest request,
+            @QueryParam("tokens") @DefaultValue("true") boolean includeTokens) {
+        LOG.infof("Received streaming compound search request with query: %s", 
+                  request.naturalLanguageQuery());
+
+        if (request.naturalLanguageQuery() == null || request.naturalLanguageQuery().isBlank()) {
+            LOG.warn("Streaming compound search request rejected: missing or empty query");
+            throw new BadRequestException("Natural language query is required");
+        }
+
+        return searchService.streamCompoundSearch(request, includeTokens);
+    }
+
     @POST
     @Path("/issues")
     public Response searchByIssues(AssetIssueSearchRequest request) {
@@ -187,4 +577,48 @@ public class AssetSearchController {
                     .build();
         }
     }
-} 
\ No newline at end of file
+
+    @POST
+    @Path("/issues/page")
+    public Response searchByIssuesPage(
+            AssetIssueSearchRequest request,
+            @QueryParam("cursor") String cursor,
+            @HeaderParam(AppConstant.TENANT_HEADER) @DefaultValue(AppConstant.DEFAULT_TENANT) String tenant) {
+        LOG.infof("Received paged issue search request: %s, cursor=%s", request, cursor != null);
+
+        if (request.issueSearchCriteria() == null) {
+            LOG.warn("Paged issue search request rejected: missing issue search criteria");
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity("Issue search criteria is required")
+                    .build();
+        }
+
+        return page(() -> searchService.searchByIssuesPage(tenant, request, cursor));
+    }
+
+    /**
+     * Runs a paged search, answering 400 for invalid cursors
+     */
+    private Response page(Supplier<SearchPage<AssetSearchDTO>> search) {
+        try {
+            var startTime = System.currentTimeMillis();
+            var page = search.get();
+            var duration = System.currentTimeMillis() - startTime;
+
+            LOG.infof("Paged search request completed in %d ms, returning %d results, more=%s",
+                      duration, page.items().size(), page.nextCursor() != null);
+
+            return Response.ok(page).build();
+        } catch (IllegalArgumentException e) {
+            LOG.warnf("Paged search request rejected: %s", e.getMessage());
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity(e.getMessage())
+                    .build();
+        } catch (Exception e) {
+            LOG.errorf(e, "Error processing paged search: %s", e.getMessage());
+            return Response.serverError()
+                    .entity("Error processing search request: " + e.getMessage())
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package org.dimsen.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * One asset of a bulk ingest, a line of the NDJSON input. Brand, category, type and
+ * sub-category are referenced by name and must exist.
+ */
+public record AssetIngestRecord(
+    String name,
+    String serialNumber,
+    String brand,
+    String category,
+    String type,
+    String subCategory,
+    LocalDateTime purchaseDate,
+    Double purchasePrice,
+    String description,
+    String status,
+    List<IssueRecord> issues,
+    List<LocationRecord> locationHistory,
+    List<ConditionRecord> conditionHistory
+) {
+    /**
+     * Issue of the asset, reportedAt defaults to the ingest time
+     */
+    public record IssueRecord(
+        String title,
+        String description,
+        String priority,
+        String status,
+        String resolution,
+        LocalDateTime reportedAt,
+        String reportedBy
+    ) {}
+
+    /**
+     * Location history entry, movedAt defaults to the ingest time
+     */
+    public record LocationRecord(
+        String location,
+        String building,
+        String floor,
+        String room,
+        String notes,
+        LocalDateTime movedAt,
+        String movedBy
+    ) {}
+
+    /**
+     * Condition history entry, recordedAt defaults to the ingest time
+     */
+    public record ConditionRecord(
+        String condition,
+        String notes,
+        LocalDateTime recordedAt,
+        String recordedBy
+    ) {}
+}
@@ -0,0 +1,25 @@
+package org.dimsen.dto;
+
+import java.util.List;
+
+/**
+ * Outcome of a bulk ingest
+ * @param assets Assets committed; their indexing is retried in the background if it failed
+ * @param issues Issues committed with them
+ * @param locationHistory Location history entries committed with them
+ * @param conditionHistory Condition history entries committed with them
+ * @param rejected Input records that were skipped, invalid or part of a chunk that failed to commit
+ * @param errors First errors, with the line number of the input they refer to
+ * @param took Duration of the ingest in milliseconds
+ * @param assetsPerSecond Throughput of committed assets, indexing included
+ */
+public record AssetIngestResult(
+    long assets,
+    long issues,
+    long locationHistory,
+    long conditionHistory,
+    long rejected,
+    List<String> errors,
+    long took,
+    double assetsPerSecond
+) {}
@@ -1,5 +1,7 @@
 package org.dimsen.dto;
 
+import org.dimsen.enums.IssuePriority;
+
 import java.util.Map;
 
 public record AssetIssueSearchRequest(
@@ -9,14 +11,11 @@ public record AssetIssueSearchRequest(
     boolean enhanceWithLLM,
     Integer limit
 ) {
-    public enum IssuePriority {
-        LOW, MEDIUM, HIGH, CRITICAL
-    }
-
     public record IssueSearchCriteria(
-            Boolean hasOpenIssues,          // For finding assets with any open issues
+            Boolean hasOpenIssues,          // For finding assets with (true) or without (false) open issues
             Integer minIssueCount,          // For finding assets with X or more issues
-            IssuePriority minPriority,      // For finding assets with issues at or above this priority
-            Boolean includeResolved         // Whether to include resolved issues in the count
+            IssuePriority minPriority,      // For finding assets with open issues at or above this priority
+            Boolean includeResolved,        // Whether to include resolved issues in the count
+            String issueText                // For finding assets with an issue about this text (title or description)
     ) {}
 } 
\ No newline at end of file
@@ -16,5 +16,11 @@ public record AssetSearchDTO(
     Double purchasePrice,
     String description,
     String status,
+    Long version,
     String llmCommentary
-) {} 
\ No newline at end of file
+) {
+    public AssetSearchDTO withLlmCommentary(String commentary) {
+        return new AssetSearchDTO(id, name, serialNumber, brandName, brandDescription, categoryName,
+                typeName, subCategoryName, purchaseDate, purchasePrice, description, status, version, commentary);
+    }
+} 
\ No newline at end of file
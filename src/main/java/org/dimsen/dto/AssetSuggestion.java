@@ -0,0 +1,10 @@
+package org.dimsen.dto;
+
+/**
+ * Typeahead suggestion, projected from the assets index
+ */
+public record AssetSuggestion(
+    String id,
+    String name,
+    String serialNumber
+) {}
@@ -0,0 +1,26 @@
+package org.dimsen.dto;
+
+import java.util.Map;
+
+/**
+ * Index generations behind the aliases of every indexed type
+ * @param rebuilding Whether a rebuild is in progress
+ * @param jobId Reindex job of the current or last rebuild
+ * @param indexes Index generations per entity type, by simple name
+ */
+public record BlueGreenStatus(
+    boolean rebuilding,
+    String jobId,
+    Map<String, IndexGenerations> indexes
+) {
+    /**
+     * @param read Index behind the read alias, serving searches
+     * @param write Index behind the write alias, receiving Hibernate Search writes
+     * @param mirror Index that writes are copied to, the rollback target once swapped; {@code null} when none
+     */
+    public record IndexGenerations(
+        String read,
+        String write,
+        String mirror
+    ) {}
+}
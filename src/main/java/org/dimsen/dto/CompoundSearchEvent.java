@@ -0,0 +1,30 @@
+package org.dimsen.dto;
+
+import java.util.List;
+
+/**
+ * Server-sent event emitted by the streaming compound search.
+ * The {@code type} is one of {@code hits}, {@code token}, {@code commentary} or {@code complete}.
+ */
+public record CompoundSearchEvent(
+    String type,
+    String assetId,
+    List<AssetSearchDTO> hits,
+    String text
+) {
+    public static CompoundSearchEvent hits(List<AssetSearchDTO> hits) {
+        return new CompoundSearchEvent("hits", null, hits, null);
+    }
+
+    public static CompoundSearchEvent token(String assetId, String token) {
+        return new CompoundSearchEvent("token", assetId, null, token);
+    }
+
+    public static CompoundSearchEvent commentary(String assetId, String commentary) {
+        return new CompoundSearchEvent("commentary", assetId, null, commentary);
+    }
+
+    public static CompoundSearchEvent complete() {
+        return new CompoundSearchEvent("complete", null, null, null);
+    }
+}
@@ -0,0 +1,15 @@
+package org.dimsen.dto;
+
+import java.util.Map;
+
+/**
+ * Faceted search over assets
+ * @param filters Same filter keys as the compound search (brand, type, category, status, condition)
+ * @param limit Number of hits returned with the facets, 0 for facet counts only
+ * @param maxTerms Maximum number of buckets per term facet
+ */
+public record FacetSearchRequest(
+    Map<String, String> filters,
+    Integer limit,
+    Integer maxTerms
+) {}
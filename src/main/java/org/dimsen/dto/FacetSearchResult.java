@@ -0,0 +1,19 @@
+package org.dimsen.dto;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hits and facet counts of a faceted search, computed by the same Elasticsearch request
+ * @param hits Top hits in score order
+ * @param totalHits Number of assets matching the filters
+ * @param facets Buckets per facet (brand, type, category, status, purchasePrice, purchaseDate);
+ *               term facets are ordered by count, range facets by range
+ */
+public record FacetSearchResult(
+    List<AssetSearchDTO> hits,
+    long totalHits,
+    Map<String, List<FacetBucket>> facets
+) {
+    public record FacetBucket(String value, long count) {}
+}
@@ -0,0 +1,32 @@
+package org.dimsen.dto;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Batch of asset searches executed by one request
+ * @param queries Searches to run, answered in the same order
+ */
+public record MultiSearchRequest(
+    List<Query> queries
+) {
+    /**
+     * A single search of the batch
+     * @param id Caller chosen identifier echoed in the result, defaults to the query's position
+     * @param type One of {@code fuzzy-name}, {@code multi-field}, {@code compound} or {@code issues}
+     * @param query Name for fuzzy-name, search term for multi-field, natural language query for compound and issues
+     * @param maxEdits Edit distance of a fuzzy-name search
+     * @param filters Filters of a compound or issues search
+     * @param issueSearchCriteria Criteria of an issues search
+     * @param limit Maximum number of hits
+     */
+    public record Query(
+        String id,
+        String type,
+        String query,
+        Integer maxEdits,
+        Map<String, String> filters,
+        AssetIssueSearchRequest.IssueSearchCriteria issueSearchCriteria,
+        Integer limit
+    ) {}
+}
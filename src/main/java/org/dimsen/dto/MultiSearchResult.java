@@ -0,0 +1,28 @@
+package org.dimsen.dto;
+
+import java.util.List;
+
+/**
+ * Results of a batch of asset searches
+ * @param results One result per query, in request order
+ * @param took Wall clock time of the whole batch in milliseconds
+ */
+public record MultiSearchResult(
+    List<QueryResult> results,
+    long took
+) {
+    /**
+     * @param id Identifier of the query
+     * @param status {@code ok}, {@code error} or {@code timeout}
+     * @param hits Hits in score order, empty unless the query succeeded
+     * @param took Time the query ran for in milliseconds, excluding time queued behind other queries
+     * @param error Reason the query failed, {@code null} on success
+     */
+    public record QueryResult(
+        String id,
+        String status,
+        List<AssetSearchDTO> hits,
+        long took,
+        String error
+    ) {}
+}
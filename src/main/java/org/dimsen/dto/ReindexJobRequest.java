@@ -0,0 +1,16 @@
+package org.dimsen.dto;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Options of a reindex job, each falling back to the {@code asset.reindex.*} configuration
+ * @param types Simple names of the entity types to reindex, e.g. {@code Asset}; all indexed types when empty
+ * @param parallelism Partitions indexed concurrently, per type
+ * @param fetchSize Entities loaded and indexed per batch, per type
+ */
+public record ReindexJobRequest(
+    List<String> types,
+    Map<String, Integer> parallelism,
+    Map<String, Integer> fetchSize
+) {}
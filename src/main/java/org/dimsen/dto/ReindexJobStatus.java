@@ -0,0 +1,46 @@
+package org.dimsen.dto;
+
+import org.dimsen.enums.ReindexJobState;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Progress of a reindex job
+ * @param id Job id
+ * @param state Current state
+ * @param createdAt When the job was started
+ * @param finishedAt When the job last stopped, {@code null} while running
+ * @param indexed Entities indexed so far, over all runs
+ * @param total Entities to index, counted when the job was planned
+ * @param entitiesPerSecond Throughput of the current or last run
+ * @param etaSeconds Estimated seconds left, {@code null} when not running or unknown
+ * @param types Progress per entity type, by simple name
+ * @param error Cause of a failure
+ */
+public record ReindexJobStatus(
+    String id,
+    ReindexJobState state,
+    LocalDateTime createdAt,
+    LocalDateTime finishedAt,
+    long indexed,
+    long total,
+    double entitiesPerSecond,
+    Long etaSeconds,
+    Map<String, TypeProgress> types,
+    String error
+) {
+    /**
+     * @param indexed Entities of the type indexed so far
+     * @param total Entities of the type to index
+     * @param fetchSize Entities per batch
+     * @param lastIds Last indexed id of each partition; a resumed job continues after them
+     */
+    public record TypeProgress(
+        long indexed,
+        long total,
+        int fetchSize,
+        List<Long> lastIds
+    ) {}
+}
@@ -0,0 +1,19 @@
+package org.dimsen.dto;
+
+import java.util.List;
+
+/**
+ * One page of a cursor-paginated search
+ * @param items Hits of this page
+ * @param size Requested page size
+ * @param totalHits Number of matching documents, a lower bound when {@code totalHitsExact} is false
+ * @param totalHitsExact Whether counting stopped at the count threshold
+ * @param nextCursor Opaque token for the next page, {@code null} on the last page
+ */
+public record SearchPage<T>(
+    List<T> items,
+    int size,
+    long totalHits,
+    boolean totalHitsExact,
+    String nextCursor
+) {}
@@ -0,0 +1,20 @@
+package org.dimsen.enums;
+
+/**
+ * How long a write waits for the write-behind index queue before returning
+ */
+public enum IndexConsistencyMode {
+    /**
+     * Return as soon as the transaction commits, the index catches up in the background
+     */
+    NONE,
+    /**
+     * Wait until the changed documents have been written to Elasticsearch
+     */
+    WRITE_SYNC,
+    /**
+     * Wait until the changed documents have been written and the indexes refreshed,
+     * so that the next search sees them
+     */
+    READ_SYNC
+}
@@ -0,0 +1,31 @@
+package org.dimsen.enums;
+
+/**
+ * Issue priorities in ascending order of urgency
+ */
+public enum IssuePriority {
+    LOW, MEDIUM, HIGH, CRITICAL;
+
+    /**
+     * @return Rank of the priority for range queries: 1 for LOW up to 4 for CRITICAL
+     */
+    public int rank() {
+        return ordinal() + 1;
+    }
+
+    /**
+     * @param priority Priority as stored on the issue
+     * @return Rank of the priority, 0 if it is unknown
+     */
+    public static int rankOf(String priority) {
+        if (priority == null) {
+            return 0;
+        }
+        for (var value : values()) {
+            if (value.name().equalsIgnoreCase(priority.trim())) {
+                return value.rank();
+            }
+        }
+        return 0;
+    }
+}
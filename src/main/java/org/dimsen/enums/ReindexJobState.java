@@ -0,0 +1,23 @@
+package org.dimsen.enums;
+
+/**
+ * Lifecycle of a reindex job
+ */
+public enum ReindexJobState {
+    /**
+     * Indexing, or waiting for its partitions to stop after a cancel request
+     */
+    RUNNING,
+    /**
+     * Every entity present when the job was planned has been indexed
+     */
+    COMPLETED,
+    /**
+     * Stopped on request, can be resumed
+     */
+    CANCELLED,
+    /**
+     * Stopped by an error, can be resumed
+     */
+    FAILED
+}
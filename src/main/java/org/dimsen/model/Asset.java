@@ -4,28 +4,58 @@ import jakarta.persistence.*;
 import jakarta.validation.constraints.NotNull;
 import lombok.Getter;
 import lombok.Setter;
+import org.dimsen.constant.AppConstant;
+import org.dimsen.enums.IssuePriority;
 import org.dimsen.model.base.BaseEntity;
+import org.dimsen.service.AssetAnalysisConfigurer;
+import org.dimsen.service.AssetEmbeddingListener;
+import org.dimsen.service.IndexSyncListener;
+import org.hibernate.annotations.OptimisticLock;
+import org.hibernate.search.engine.backend.types.Aggregable;
+import org.hibernate.search.engine.backend.types.ObjectStructure;
+import org.hibernate.search.engine.backend.types.Projectable;
+import org.hibernate.search.engine.backend.types.VectorSimilarity;
 import org.hibernate.search.mapper.pojo.mapping.definition.annotation.*;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Getter
 @Setter
 @Entity
 @Table(name = "assets")
 @Indexed(index = "assets")
+@NamedEntityGraph(
+        name = Asset.SEARCH_HIT_GRAPH,
+        attributeNodes = {
+                @NamedAttributeNode("brand"),
+                @NamedAttributeNode("category"),
+                @NamedAttributeNode("type"),
+                @NamedAttributeNode(value = "subCategory", subgraph = "subCategory")
+        },
+        subgraphs = @NamedSubgraph(name = "subCategory", attributeNodes = @NamedAttributeNode("category")))
+@EntityListeners({AssetEmbeddingListener.class, IndexSyncListener.class})
 public class Asset extends BaseEntity {
+
+    // Reference data joined in one statement when assets are loaded for search hits or indexing.
+    // The indexed collections are not part of it (several bags cannot be join fetched) and are
+    // batch fetched instead, see quarkus.hibernate-orm.fetch.batch-size.
+    public static final String SEARCH_HIT_GRAPH = "Asset.searchHit";
     
     @NotNull
     @Column(name = "name", nullable = false)
-    @FullTextField(analyzer = "standard")
+    @FullTextField(analyzer = "standard", projectable = Projectable.YES)
+    @FullTextField(name = "name_autocomplete", analyzer = AssetAnalysisConfigurer.AUTOCOMPLETE,
+                   searchAnalyzer = AssetAnalysisConfigurer.AUTOCOMPLETE_SEARCH)
     private String name;
     
     @NotNull
     @Column(name = "serial_number", nullable = false)
-    @KeywordField
+    @KeywordField(projectable = Projectable.YES)
+    @FullTextField(name = "serialNumber_autocomplete", analyzer = AssetAnalysisConfigurer.AUTOCOMPLETE_KEYWORD,
+                   searchAnalyzer = AssetAnalysisConfigurer.AUTOCOMPLETE_KEYWORD_SEARCH)
     private String serialNumber;
     
     @ManyToOne(fetch = FetchType.EAGER)
@@ -50,23 +80,36 @@ public class Asset extends BaseEntity {
     
     @NotNull
     @Column(name = "purchase_date", nullable = false)
-    @GenericField
+    @GenericField(projectable = Projectable.YES, aggregable = Aggregable.YES)
     private LocalDateTime purchaseDate;
     
     @NotNull
     @Column(name = "purchase_price", nullable = false)
-    @GenericField
+    @GenericField(projectable = Projectable.YES, aggregable = Aggregable.YES)
     private Double purchasePrice;
     
     @Column(name = "description")
-    @FullTextField(analyzer = "standard")
+    @FullTextField(analyzer = "standard", projectable = Projectable.YES)
     private String description;
     
     @NotNull
     @Column(name = "status", nullable = false)
-    @KeywordField
+    @KeywordField(projectable = Projectable.YES, aggregable = Aggregable.YES)
     private String status;
     
+    // Semantic representation of name, description, brand, type and category.
+    // Excluded from optimistic locking so that re-embedding does not bump the asset version.
+    @Basic(fetch = FetchType.LAZY)
+    @Column(name = "embedding")
+    @OptimisticLock(excluded = true)
+    @VectorField(dimension = AppConstant.ASSET_EMBEDDING_DIMENSION, vectorSimilarity = VectorSimilarity.COSINE)
+    private float[] embedding;
+    
+    // SHA-256 of the text the current embedding was computed from
+    @Column(name = "embedding_hash", length = 64)
+    @OptimisticLock(excluded = true)
+    private String embeddingHash;
+    
     @OneToMany(mappedBy = "asset", cascade = CascadeType.ALL)
     @IndexedEmbedded(includePaths = {"condition", "recordedAt"})
     private List<AssetConditionHistory> conditionHistory = new ArrayList<>();
@@ -78,10 +121,59 @@ public class Asset extends BaseEntity {
     @OneToMany(mappedBy = "asset", cascade = CascadeType.ALL)
     private List<AssetFile> files = new ArrayList<>();
     
+    // Nested, so that criteria on several issue fields must hold for the same issue
     @OneToMany(mappedBy = "asset", cascade = CascadeType.ALL)
-    @IndexedEmbedded(includePaths = {"description", "priority", "reportedAt", "reportedBy", "resolution", "resolvedAt", "resolvedBy", "status", "title"})
+    @IndexedEmbedded(structure = ObjectStructure.NESTED, includePaths = {"description", "isDeleted", "priority", "reportedAt", "reportedBy", "resolution", "resolvedAt", "resolvedBy", "status", "title"})
     private List<Issue> issues = new ArrayList<>();
     
     @OneToOne(mappedBy = "asset", cascade = CascadeType.ALL)
     private DisposedAsset disposedAsset;
+
+    // Issue statistics derived at indexing time, so issue filters are numeric range queries.
+    // An issue change reindexes its asset (see IndexSyncQueue), which recomputes them.
+
+    /**
+     * @return Number of issues that are neither resolved nor closed
+     */
+    @GenericField
+    @IndexingDependency(derivedFrom = {
+            @ObjectPath({@PropertyValue(propertyName = "issues"), @PropertyValue(propertyName = "status")}),
+            @ObjectPath({@PropertyValue(propertyName = "issues"), @PropertyValue(propertyName = "isDeleted")})
+    })
+    public int getOpenIssueCount() {
+        return (int) activeIssues().filter(Asset::isOpen).count();
+    }
+
+    /**
+     * @return Number of issues, resolved and closed ones included
+     */
+    @GenericField
+    @IndexingDependency(derivedFrom = @ObjectPath({@PropertyValue(propertyName = "issues"), @PropertyValue(propertyName = "isDeleted")}))
+    public int getIssueCount() {
+        return (int) activeIssues().count();
+    }
+
+    /**
+     * @return Highest {@link IssuePriority#rank() priority rank} of the open issues, 0 without open issues
+     */
+    @GenericField
+    @IndexingDependency(derivedFrom = {
+            @ObjectPath({@PropertyValue(propertyName = "issues"), @PropertyValue(propertyName = "status")}),
+            @ObjectPath({@PropertyValue(propertyName = "issues"), @PropertyValue(propertyName = "priority")}),
+            @ObjectPath({@PropertyValue(propertyName = "issues"), @PropertyValue(propertyName = "isDeleted")})
+    })
+    public int getMaxOpenIssuePriority() {
+        return activeIssues().filter(Asset::isOpen)
+                .mapToInt(issue -> IssuePriority.rankOf(issue.getPriority()))
+                .max()
+                .orElse(0);
+    }
+
+    private Stream<Issue> activeIssues() {
+        return issues.stream().filter(issue -> !Boolean.TRUE.equals(issue.getIsDeleted()));
+    }
+
+    private static boolean isOpen(Issue issue) {
+        return !"RESOLVED".equalsIgnoreCase(issue.getStatus()) && !"CLOSED".equalsIgnoreCase(issue.getStatus());
+    }
 } 
\ No newline at end of file
@@ -0,0 +1,40 @@
+package org.dimsen.model;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+import lombok.Getter;
+import lombok.Setter;
+import org.dimsen.model.base.BaseEntity;
+
+/**
+ * Persistent tier of the LLM commentary cache. A row is only valid for the asset
+ * version, prompt hash and reference data names it was generated with.
+ */
+@Entity
+@Table(name = "asset_commentaries",
+       uniqueConstraints = @UniqueConstraint(columnNames = {"asset_id", "asset_version", "prompt_hash", "reference_hash"}))
+@Getter
+@Setter
+public class AssetCommentary extends BaseEntity {
+
+    @NotNull
+    @Column(name = "asset_id", nullable = false)
+    private Long assetId;
+
+    @NotNull
+    @Column(name = "asset_version", nullable = false)
+    private Long assetVersion;
+
+    @NotNull
+    @Column(name = "prompt_hash", nullable = false, length = 64)
+    private String promptHash;
+
+    // Hash of the brand, type, category and sub-category names, see CommentaryCache
+    @NotNull
+    @Column(name = "reference_hash", nullable = false)
+    private Integer referenceHash;
+
+    @NotNull
+    @Column(name = "commentary", nullable = false, columnDefinition = "TEXT")
+    private String commentary;
+}
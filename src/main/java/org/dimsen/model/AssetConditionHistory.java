@@ -5,6 +5,7 @@ import jakarta.validation.constraints.NotNull;
 import lombok.Getter;
 import lombok.Setter;
 import org.dimsen.model.base.BaseEntity;
+import org.dimsen.service.IndexSyncListener;
 import org.hibernate.search.mapper.pojo.mapping.definition.annotation.*;
 
 import java.time.LocalDateTime;
@@ -14,6 +15,7 @@ import java.time.LocalDateTime;
 @Getter
 @Setter
 @Indexed(index = "asset_condition_history")
+@EntityListeners(IndexSyncListener.class)
 public class AssetConditionHistory extends BaseEntity {
     
     @NotNull
@@ -0,0 +1,33 @@
+package org.dimsen.model;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+import lombok.Getter;
+import lombok.Setter;
+import org.dimsen.model.base.BaseEntity;
+
+import java.time.LocalDateTime;
+
+/**
+ * Last indexed generation of an indexed entity type, so that the index freshness tracker
+ * resumes incremental refreshes after a restart instead of reindexing the catalog.
+ * Kept in the same database as the indexed rows: if they are recreated, so is this table.
+ */
+@Entity
+@Table(name = "index_watermarks")
+@Getter
+@Setter
+public class IndexWatermark extends BaseEntity {
+
+    @NotNull
+    @Column(name = "entity_type", nullable = false, unique = true, length = 100)
+    private String entityType;
+
+    @NotNull
+    @Column(name = "generation", nullable = false)
+    private Long generation;
+
+    // Highest coalesce(updated_at, created_at) pushed to the index, null while the table of the type is empty
+    @Column(name = "watermark")
+    private LocalDateTime watermark;
+}
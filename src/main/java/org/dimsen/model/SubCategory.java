@@ -5,6 +5,9 @@ import jakarta.validation.constraints.NotNull;
 import lombok.Getter;
 import lombok.Setter;
 import org.dimsen.model.base.BaseEntity;
+import org.dimsen.service.IndexSyncListener;
+import org.dimsen.service.ReferenceEmbeddingListener;
+import org.hibernate.search.engine.backend.types.Projectable;
 import org.hibernate.search.mapper.pojo.mapping.definition.annotation.FullTextField;
 import org.hibernate.search.mapper.pojo.mapping.definition.annotation.Indexed;
 import org.hibernate.search.mapper.pojo.mapping.definition.annotation.IndexedEmbedded;
@@ -17,11 +20,12 @@ import java.util.List;
 @Getter
 @Setter
 @Indexed(index = "sub_categories")
+@EntityListeners({ReferenceEmbeddingListener.class, IndexSyncListener.class})
 public class SubCategory extends BaseEntity {
     
     @NotNull
     @Column(name = "name", nullable = false)
-    @FullTextField(analyzer = "standard")
+    @FullTextField(analyzer = "standard", projectable = Projectable.YES)
     private String name;
     
     @Column(name = "description")
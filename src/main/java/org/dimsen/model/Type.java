@@ -5,8 +5,13 @@ import jakarta.validation.constraints.NotNull;
 import lombok.Getter;
 import lombok.Setter;
 import org.dimsen.model.base.BaseEntity;
+import org.dimsen.service.IndexSyncListener;
+import org.dimsen.service.ReferenceEmbeddingListener;
+import org.hibernate.search.engine.backend.types.Aggregable;
+import org.hibernate.search.engine.backend.types.Projectable;
 import org.hibernate.search.mapper.pojo.mapping.definition.annotation.FullTextField;
 import org.hibernate.search.mapper.pojo.mapping.definition.annotation.Indexed;
+import org.hibernate.search.mapper.pojo.mapping.definition.annotation.KeywordField;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -16,11 +21,13 @@ import java.util.List;
 @Getter
 @Setter
 @Indexed(index = "types")
+@EntityListeners({ReferenceEmbeddingListener.class, IndexSyncListener.class})
 public class Type extends BaseEntity {
     
     @NotNull
     @Column(name = "name", nullable = false, unique = true)
-    @FullTextField(analyzer = "standard")
+    @FullTextField(analyzer = "standard", projectable = Projectable.YES)
+    @KeywordField(name = "name_keyword", aggregable = Aggregable.YES)
     private String name;
     
     @Column(name = "description")
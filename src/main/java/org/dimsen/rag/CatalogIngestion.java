@@ -0,0 +1,315 @@
+package org.dimsen.rag;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.langchain4j.data.document.loader.FileSystemDocumentLoader;
+import dev.langchain4j.data.document.splitter.DocumentSplitters;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchService;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Incrementally ingests the Easy RAG catalog directory into the embedding store. Easy
+ * RAG's own ingestion is switched off because it re-ingests on every start when a custom
+ * store is used.
+ * <p>
+ * A manifest next to the store records the SHA-256 and the chunk ids of every ingested
+ * file. A refresh compares the directory with the manifest and only splits and embeds
+ * added or changed documents; the chunks of changed and removed documents are deleted
+ * from the store. Refreshes run on startup, on a rescan schedule and, when enabled, on
+ * file system events of the catalog directory.
+ */
+@ApplicationScoped
+public class CatalogIngestion {
+
+    private static final Logger LOG = Logger.getLogger(CatalogIngestion.class);
+
+    private static final Set<String> SUPPORTED_EXTENSIONS = Set.of("pdf", "odt", "txt");
+
+    @Inject
+    EmbeddingModel embeddingModel;
+
+    @Inject
+    EmbeddingStore<TextSegment> embeddingStore;
+
+    @Inject
+    MappedEmbeddingStore mappedStore;
+
+    @ConfigProperty(name = "quarkus.langchain4j.easy-rag.path")
+    String catalogPath;
+
+    @ConfigProperty(name = "quarkus.langchain4j.easy-rag.max-segment-size", defaultValue = "300")
+    int maxSegmentSize;
+
+    @ConfigProperty(name = "quarkus.langchain4j.easy-rag.max-overlap-size", defaultValue = "30")
+    int maxOverlapSize;
+
+    @ConfigProperty(name = "rag.catalog.manifest", defaultValue = "easy-rag-embeddings.manifest.json")
+    String manifestPath;
+
+    @ConfigProperty(name = "rag.catalog.watch.enabled", defaultValue = "false")
+    boolean watchEnabled;
+
+    @ConfigProperty(name = "rag.catalog.watch.debounce", defaultValue = "2s")
+    Duration watchDebounce;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private volatile WatchService watchService;
+
+    /**
+     * Ingestion state of one catalog file
+     * @param hash Hex encoded SHA-256 of the file content
+     * @param ids Ids of the file's chunks in the embedding store, {@code null} for files
+     *            adopted from a store that was built without a manifest
+     */
+    record CatalogFile(String hash, List<String> ids) {}
+
+    /**
+     * Outcome of a refresh
+     */
+    public record RefreshResult(int added, int changed, int removed, int unchanged,
+                                int embeddedChunks, int deletedChunks, long durationMs) {}
+
+    void onStop(@Observes ShutdownEvent event) throws IOException {
+        if (watchService != null) {
+            watchService.close();
+        }
+    }
+
+    /**
+     * Starts the catalog watcher if {@code rag.catalog.watch.enabled} is set
+     */
+    public void startWatching() {
+        if (!watchEnabled || watchService != null) {
+            return;
+        }
+        try {
+            var directory = Path.of(catalogPath);
+            watchService = directory.getFileSystem().newWatchService();
+            directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+            Thread.ofVirtual().name("catalog-watcher").start(this::watch);
+            LOG.infof("Watching %s for catalog changes", directory);
+        } catch (IOException e) {
+            LOG.errorf(e, "Failed to watch %s, relying on the rescan schedule", catalogPath);
+        }
+    }
+
+    @Scheduled(every = "${rag.catalog.rescan-interval}",
+               delayed = "${rag.catalog.rescan-interval}",
+               concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void rescan() {
+        refresh();
+    }
+
+    /**
+     * Brings the embedding store in line with the catalog directory, embedding only added
+     * or changed documents and deleting the chunks of changed or removed ones
+     */
+    public synchronized RefreshResult refresh() {
+        var startTime = System.currentTimeMillis();
+        var manifest = readManifest();
+        var current = hashCatalog();
+
+        if (manifest == null) {
+            manifest = new TreeMap<>();
+            if (!mappedStore.isEmpty()) {
+                // Store built before manifests existed (e.g. migrated JSON): adopt its content,
+                // the chunk ids per file are unknown
+                for (var entry : current.entrySet()) {
+                    manifest.put(entry.getKey(), new CatalogFile(entry.getValue(), null));
+                }
+                writeManifest(manifest);
+                LOG.infof("Adopted %d catalog files from the existing embedding store", current.size());
+            }
+        }
+
+        List<String> added = new ArrayList<>();
+        List<String> changed = new ArrayList<>();
+        List<String> removed = new ArrayList<>();
+        for (var entry : current.entrySet()) {
+            var known = manifest.get(entry.getKey());
+            if (known == null) {
+                added.add(entry.getKey());
+            } else if (!known.hash().equals(entry.getValue())) {
+                changed.add(entry.getKey());
+            }
+        }
+        for (var file : manifest.keySet()) {
+            if (!current.containsKey(file)) {
+                removed.add(file);
+            }
+        }
+        int unchanged = current.size() - added.size() - changed.size();
+        if (added.isEmpty() && changed.isEmpty() && removed.isEmpty()) {
+            return new RefreshResult(0, 0, 0, unchanged, 0, 0, System.currentTimeMillis() - startTime);
+        }
+
+        // Chunks of adopted files cannot be deleted selectively, so any change to one forces a rebuild
+        var finalManifest = manifest;
+        boolean rebuild = Stream.concat(changed.stream(), removed.stream())
+                .anyMatch(file -> finalManifest.get(file).ids() == null);
+        if (rebuild) {
+            LOG.info("Catalog changed for files without recorded chunk ids, rebuilding the embedding store");
+            embeddingStore.removeAll();
+            manifest.clear();
+            added = new ArrayList<>(current.keySet());
+            changed = List.of();
+            removed = List.of();
+            unchanged = 0;
+        }
+
+        int deletedChunks = 0;
+        for (var file : Stream.concat(changed.stream(), removed.stream()).toList()) {
+            var ids = manifest.remove(file).ids();
+            embeddingStore.removeAll(ids);
+            deletedChunks += ids.size();
+        }
+        // Persist deletions first so a failed embedding call does not leave dangling ids
+        writeManifest(manifest);
+
+        int embeddedChunks = 0;
+        for (var file : Stream.concat(added.stream(), changed.stream()).toList()) {
+            try {
+                var ids = ingestFile(Path.of(catalogPath).resolve(file));
+                manifest.put(file, new CatalogFile(current.get(file), ids));
+                writeManifest(manifest);
+                embeddedChunks += ids.size();
+            } catch (Exception e) {
+                LOG.errorf(e, "Failed to ingest catalog file %s, will retry on the next refresh", file);
+            }
+        }
+
+        var result = new RefreshResult(added.size(), changed.size(), removed.size(), unchanged,
+                embeddedChunks, deletedChunks, System.currentTimeMillis() - startTime);
+        LOG.infof("Catalog refresh: %d added, %d changed, %d removed, %d unchanged; "
+                  + "%d chunks embedded, %d deleted in %d ms",
+                  result.added(), result.changed(), result.removed(), result.unchanged(),
+                  result.embeddedChunks(), result.deletedChunks(), result.durationMs());
+        return result;
+    }
+
+    private List<String> ingestFile(Path file) {
+        var document = FileSystemDocumentLoader.loadDocument(file);
+        var segments = DocumentSplitters.recursive(maxSegmentSize, maxOverlapSize).split(document);
+        if (segments.isEmpty()) {
+            return List.of();
+        }
+
+        List<Embedding> embeddings = embeddingModel.embedAll(segments).content();
+        List<String> ids = segments.stream()
+                .map(segment -> UUID.randomUUID().toString())
+                .toList();
+        embeddingStore.addAll(ids, embeddings, segments);
+        LOG.debugf("Embedded %s into %d chunks", file.getFileName(), ids.size());
+        return ids;
+    }
+
+    private void watch() {
+        while (true) {
+            try {
+                var key = watchService.take();
+                // Editors write files in several steps, wait until the directory settles
+                do {
+                    key.pollEvents();
+                    key.reset();
+                    key = watchService.poll(watchDebounce.toMillis(), TimeUnit.MILLISECONDS);
+                } while (key != null);
+                refresh();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            } catch (Exception e) {
+                LOG.errorf(e, "Catalog refresh after file change failed: %s", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * @return File name to content hash of every supported document in the catalog
+     */
+    private Map<String, String> hashCatalog() {
+        Map<String, String> hashes = new TreeMap<>();
+        try (var files = Files.list(Path.of(catalogPath))) {
+            for (var file : files.filter(Files::isRegularFile).filter(CatalogIngestion::isSupported).toList()) {
+                hashes.put(file.getFileName().toString(), sha256(file));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to scan catalog " + catalogPath, e);
+        }
+        return hashes;
+    }
+
+    private static boolean isSupported(Path file) {
+        var name = file.getFileName().toString();
+        var dot = name.lastIndexOf('.');
+        return dot > 0 && SUPPORTED_EXTENSIONS.contains(name.substring(dot + 1).toLowerCase(Locale.ROOT));
+    }
+
+    private static String sha256(Path file) throws IOException {
+        try (var in = new DigestInputStream(Files.newInputStream(file), MessageDigest.getInstance("SHA-256"))) {
+            in.transferTo(OutputStream.nullOutputStream());
+            return HexFormat.of().formatHex(in.getMessageDigest().digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private Map<String, CatalogFile> readManifest() {
+        var path = Path.of(manifestPath);
+        if (!Files.exists(path)) {
+            return null;
+        }
+        try {
+            return new TreeMap<>(mapper.readValue(path.toFile(), new TypeReference<Map<String, CatalogFile>>() {}));
+        } catch (IOException e) {
+            LOG.warnf(e, "Unreadable catalog manifest %s, treating the store as unmanaged", path);
+            return null;
+        }
+    }
+
+    /**
+     * Writes the manifest to a temporary file and moves it into place
+     */
+    private void writeManifest(Map<String, CatalogFile> manifest) {
+        var path = Path.of(manifestPath).toAbsolutePath();
+        var temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try {
+            mapper.writerWithDefaultPrettyPrinter().writeValue(temp.toFile(), manifest);
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write catalog manifest " + path, e);
+        }
+    }
+}
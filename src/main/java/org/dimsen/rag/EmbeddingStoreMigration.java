@@ -0,0 +1,69 @@
+package org.dimsen.rag;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import org.jboss.logging.Logger;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One-time import of the JSON file written by the in-memory store when
+ * {@code quarkus.langchain4j.easy-rag.reuse-embeddings.enabled} was on.
+ */
+public final class EmbeddingStoreMigration {
+
+    private static final Logger LOG = Logger.getLogger(EmbeddingStoreMigration.class);
+
+    private EmbeddingStoreMigration() {
+    }
+
+    /**
+     * Copies every entry of an in-memory store JSON file into the given store
+     * @param jsonFile File in the {@code {"entries":[{id, embedding:{vector}, embedded:{text, metadata}}]}} format
+     * @param store Target store, expected to be empty
+     * @return Number of migrated entries
+     */
+    public static int migrateFromJson(Path jsonFile, MappedEmbeddingStore store) throws IOException {
+        var startTime = System.currentTimeMillis();
+        JsonNode root = new ObjectMapper().readTree(jsonFile.toFile());
+
+        List<String> ids = new ArrayList<>();
+        List<Embedding> embeddings = new ArrayList<>();
+        List<TextSegment> segments = new ArrayList<>();
+        for (JsonNode entry : root.path("entries")) {
+            JsonNode vectorNode = entry.path("embedding").path("vector");
+            float[] vector = new float[vectorNode.size()];
+            for (int i = 0; i < vector.length; i++) {
+                vector[i] = (float) vectorNode.get(i).asDouble();
+            }
+
+            JsonNode embedded = entry.path("embedded");
+            Map<String, Object> metadata = new HashMap<>();
+            embedded.path("metadata").path("metadata").fields()
+                    .forEachRemaining(field -> metadata.put(field.getKey(), field.getValue().asText()));
+
+            ids.add(entry.path("id").asText());
+            embeddings.add(Embedding.from(vector));
+            segments.add(TextSegment.from(embedded.path("text").asText(), Metadata.from(metadata)));
+        }
+
+        store.addAll(ids, embeddings, segments);
+
+        var duration = System.currentTimeMillis() - startTime;
+        LOG.infof("Migrated %d embeddings from %s in %d ms", ids.size(), jsonFile, duration);
+        return ids.size();
+    }
+
+    public static boolean canMigrate(Path jsonFile) {
+        return Files.isRegularFile(jsonFile);
+    }
+}
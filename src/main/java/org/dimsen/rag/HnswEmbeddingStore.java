@@ -0,0 +1,469 @@
+package org.dimsen.rag;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.EmbeddingSearchResult;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import dev.langchain4j.store.embedding.RelevanceScore;
+import org.jboss.logging.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Hierarchical navigable small world (HNSW) graph over the records of a
+ * {@link MappedEmbeddingStore}, so that retrieval cost grows logarithmically with the
+ * catalog instead of linearly.
+ * <p>
+ * Only the graph lives on the heap: node {@code i} is record {@code i} of the mapped
+ * store, and vectors are read from the mapping while navigating. Records appended to the
+ * store are inserted into the graph incrementally and the graph is persisted next to the
+ * store files after every write. Removed records stay in the graph as navigation nodes
+ * but are never returned. Requests with a metadata filter are answered by an exact scan
+ * of the mapped store, since filtering an approximate candidate list can drop matches.
+ * <p>
+ * Tuning: {@code m} is the number of links per node (twice that on the bottom layer),
+ * {@code efConstruction} the candidate list size while inserting and {@code efSearch}
+ * the candidate list size while searching (raised to {@code maxResults} if smaller).
+ */
+public class HnswEmbeddingStore implements EmbeddingStore<TextSegment> {
+
+    private static final Logger LOG = Logger.getLogger(HnswEmbeddingStore.class);
+
+    private static final int MAGIC = 0x484E5357; // "HNSW"
+    private static final int FORMAT_VERSION = 1;
+    private static final int[] NO_NEIGHBORS = new int[0];
+
+    private static final Comparator<Scored> BEST_FIRST =
+            Comparator.<Scored>comparingDouble(scored -> scored.similarity()).reversed();
+    private static final Comparator<Scored> WORST_FIRST =
+            Comparator.comparingDouble(scored -> scored.similarity());
+
+    private final MappedEmbeddingStore fullPrecision;
+    private final Path graphPath;
+    private final int m;
+    private final int efConstruction;
+    private final int efSearch;
+    private final double levelMultiplier;
+    private final Random random = new Random(42);
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Guarded by lock
+    private final List<Node> nodes = new ArrayList<>();
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+
+    /**
+     * Graph node of one store record
+     */
+    private static final class Node {
+        final float norm;
+        final int[][] neighbors;
+        boolean deleted;
+
+        Node(float norm, int level) {
+            this.norm = norm;
+            this.neighbors = new int[level + 1][];
+            Arrays.fill(neighbors, NO_NEIGHBORS);
+        }
+
+        int level() {
+            return neighbors.length - 1;
+        }
+    }
+
+    private record Scored(int node, double similarity) {}
+
+    public HnswEmbeddingStore(MappedEmbeddingStore fullPrecision, Path graphPath,
+                              int m, int efConstruction, int efSearch) {
+        this.fullPrecision = fullPrecision;
+        this.graphPath = graphPath;
+        this.m = Math.max(2, m);
+        this.efConstruction = Math.max(this.m, efConstruction);
+        this.efSearch = Math.max(1, efSearch);
+        this.levelMultiplier = 1 / Math.log(this.m);
+
+        lock.writeLock().lock();
+        try {
+            load();
+            if (insertNewRecords() > 0) {
+                save();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return Number of nodes in the graph, including removed records
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return nodes.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public String add(Embedding embedding) {
+        var id = fullPrecision.add(embedding);
+        sync();
+        return id;
+    }
+
+    @Override
+    public void add(String id, Embedding embedding) {
+        fullPrecision.add(id, embedding);
+        sync();
+    }
+
+    @Override
+    public String add(Embedding embedding, TextSegment textSegment) {
+        var id = fullPrecision.add(embedding, textSegment);
+        sync();
+        return id;
+    }
+
+    @Override
+    public List<String> addAll(List<Embedding> embeddings) {
+        var ids = fullPrecision.addAll(embeddings);
+        sync();
+        return ids;
+    }
+
+    @Override
+    public List<String> addAll(List<Embedding> embeddings, List<TextSegment> embedded) {
+        var ids = fullPrecision.addAll(embeddings, embedded);
+        sync();
+        return ids;
+    }
+
+    @Override
+    public void addAll(List<String> ids, List<Embedding> embeddings, List<TextSegment> embedded) {
+        fullPrecision.addAll(ids, embeddings, embedded);
+        sync();
+    }
+
+    @Override
+    public void removeAll(Collection<String> ids) {
+        lock.writeLock().lock();
+        try {
+            var removed = fullPrecision.removeRecords(ids);
+            for (int record : removed) {
+                if (record < nodes.size()) {
+                    nodes.get(record).deleted = true;
+                }
+            }
+            insertNewRecords();
+            save();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void removeAll() {
+        lock.writeLock().lock();
+        try {
+            fullPrecision.removeAll();
+            clear();
+            save();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public EmbeddingSearchResult<TextSegment> search(EmbeddingSearchRequest request) {
+        if (request.filter() != null) {
+            return fullPrecision.search(request);
+        }
+
+        lock.readLock().lock();
+        try {
+            var query = request.queryEmbedding().vector();
+            var queryNorm = VectorMath.norm(query);
+            if (entryPoint < 0 || queryNorm == 0f) {
+                return new EmbeddingSearchResult<>(List.of());
+            }
+
+            var scratch = new float[query.length];
+            var entry = new Scored(entryPoint, similarity(query, queryNorm, entryPoint, scratch));
+            for (int layer = maxLevel; layer > 0; layer--) {
+                entry = searchLayer(query, queryNorm, List.of(entry), 1, layer, scratch).get(0);
+            }
+            var candidates = searchLayer(query, queryNorm, List.of(entry),
+                    Math.max(efSearch, request.maxResults()), 0, scratch);
+
+            List<EmbeddingMatch<TextSegment>> matches = new ArrayList<>(request.maxResults());
+            for (var candidate : candidates) {
+                if (matches.size() == request.maxResults()) {
+                    break;
+                }
+                if (nodes.get(candidate.node()).deleted) {
+                    continue;
+                }
+                var score = RelevanceScore.fromCosineSimilarity(candidate.similarity());
+                if (score < request.minScore()) {
+                    break;
+                }
+                var vector = new float[query.length];
+                fullPrecision.readVector(candidate.node(), vector);
+                matches.add(fullPrecision.match(candidate.node(), score, vector));
+            }
+            return new EmbeddingSearchResult<>(matches);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void sync() {
+        lock.writeLock().lock();
+        try {
+            if (insertNewRecords() > 0) {
+                save();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Inserts the records appended to the mapped store since the last call
+     * @return Number of inserted records
+     */
+    private int insertNewRecords() {
+        var startTime = System.currentTimeMillis();
+        int first = nodes.size();
+        int count = fullPrecision.size();
+        for (int record = first; record < count; record++) {
+            insert(record);
+        }
+        if (count > first) {
+            LOG.debugf("Inserted %d embeddings into the HNSW graph in %d ms, %d nodes",
+                       count - first, System.currentTimeMillis() - startTime, count);
+        }
+        return count - first;
+    }
+
+    private void insert(int record) {
+        var vector = new float[fullPrecision.dimension()];
+        var norm = fullPrecision.readVector(record, vector);
+        int level = randomLevel();
+        var node = new Node(norm, level);
+        nodes.add(node);
+
+        if (norm == 0f) {
+            // Removed before it was indexed, or a zero vector that has no cosine similarity
+            node.deleted = true;
+            return;
+        }
+        if (entryPoint < 0) {
+            entryPoint = record;
+            maxLevel = level;
+            return;
+        }
+
+        var scratch = new float[vector.length];
+        var entry = new Scored(entryPoint, similarity(vector, norm, entryPoint, scratch));
+        for (int layer = maxLevel; layer > level; layer--) {
+            entry = searchLayer(vector, norm, List.of(entry), 1, layer, scratch).get(0);
+        }
+
+        List<Scored> entries = List.of(entry);
+        for (int layer = Math.min(level, maxLevel); layer >= 0; layer--) {
+            var found = searchLayer(vector, norm, entries, efConstruction, layer, scratch);
+            var selected = found.subList(0, Math.min(m, found.size()));
+            node.neighbors[layer] = selected.stream().mapToInt(Scored::node).toArray();
+            for (var neighbor : selected) {
+                link(neighbor.node(), record, layer, scratch);
+            }
+            entries = found;
+        }
+
+        if (level > maxLevel) {
+            maxLevel = level;
+            entryPoint = record;
+        }
+    }
+
+    /**
+     * Adds a back link, keeping only the closest neighbors once the node is full
+     */
+    private void link(int target, int added, int layer, float[] scratch) {
+        var node = nodes.get(target);
+        var current = node.neighbors[layer];
+        int max = layer == 0 ? 2 * m : m;
+        var extended = Arrays.copyOf(current, current.length + 1);
+        extended[current.length] = added;
+        if (extended.length <= max) {
+            node.neighbors[layer] = extended;
+            return;
+        }
+
+        var targetVector = new float[scratch.length];
+        fullPrecision.readVector(target, targetVector);
+        List<Scored> scored = new ArrayList<>(extended.length);
+        for (int neighbor : extended) {
+            scored.add(new Scored(neighbor, similarity(targetVector, node.norm, neighbor, scratch)));
+        }
+        scored.sort(BEST_FIRST);
+        node.neighbors[layer] = scored.subList(0, max).stream().mapToInt(Scored::node).toArray();
+    }
+
+    /**
+     * Best-first search of one layer
+     * @return Up to {@code ef} nodes, most similar first
+     */
+    private List<Scored> searchLayer(float[] query, float queryNorm, List<Scored> entries,
+                                     int ef, int layer, float[] scratch) {
+        var visited = new BitSet(nodes.size());
+        PriorityQueue<Scored> candidates = new PriorityQueue<>(BEST_FIRST);
+        PriorityQueue<Scored> results = new PriorityQueue<>(WORST_FIRST);
+        for (var entry : entries) {
+            visited.set(entry.node());
+            candidates.offer(entry);
+            results.offer(entry);
+            if (results.size() > ef) {
+                results.poll();
+            }
+        }
+
+        while (!candidates.isEmpty()) {
+            var closest = candidates.poll();
+            if (results.size() >= ef && closest.similarity() < results.peek().similarity()) {
+                break;
+            }
+            for (int neighbor : nodes.get(closest.node()).neighbors[layer]) {
+                if (visited.get(neighbor)) {
+                    continue;
+                }
+                visited.set(neighbor);
+                var similarity = similarity(query, queryNorm, neighbor, scratch);
+                if (results.size() < ef || similarity > results.peek().similarity()) {
+                    var scored = new Scored(neighbor, similarity);
+                    candidates.offer(scored);
+                    results.offer(scored);
+                    if (results.size() > ef) {
+                        results.poll();
+                    }
+                }
+            }
+        }
+
+        List<Scored> sorted = new ArrayList<>(results);
+        sorted.sort(BEST_FIRST);
+        return sorted;
+    }
+
+    private double similarity(float[] query, float queryNorm, int node, float[] scratch) {
+        // The node norm is used because removed records have their stored norm zeroed
+        fullPrecision.readVector(node, scratch);
+        return VectorMath.dot(query, scratch) / (queryNorm * nodes.get(node).norm);
+    }
+
+    private int randomLevel() {
+        return (int) Math.floor(-Math.log(1 - random.nextDouble()) * levelMultiplier);
+    }
+
+    private void clear() {
+        nodes.clear();
+        entryPoint = -1;
+        maxLevel = -1;
+    }
+
+    /**
+     * Loads the persisted graph. An unreadable graph, one built with a different {@code m}
+     * or one covering more records than the store is discarded and rebuilt.
+     */
+    private void load() {
+        if (!Files.exists(graphPath)) {
+            return;
+        }
+        var startTime = System.currentTimeMillis();
+        try (var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(graphPath)))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                LOG.warnf("Unknown HNSW graph format in %s, rebuilding", graphPath);
+                return;
+            }
+            int storedM = in.readInt();
+            int count = in.readInt();
+            if (storedM != m || count > fullPrecision.size()) {
+                LOG.infof("HNSW graph %s does not match the store (m=%d, %d nodes), rebuilding",
+                          graphPath, storedM, count);
+                return;
+            }
+            entryPoint = in.readInt();
+            maxLevel = in.readInt();
+            for (int i = 0; i < count; i++) {
+                var node = new Node(in.readFloat(), in.readInt());
+                node.deleted = in.readBoolean();
+                for (int layer = 0; layer <= node.level(); layer++) {
+                    var neighbors = new int[in.readInt()];
+                    for (int n = 0; n < neighbors.length; n++) {
+                        neighbors[n] = in.readInt();
+                    }
+                    node.neighbors[layer] = neighbors;
+                }
+                nodes.add(node);
+            }
+            LOG.infof("Loaded HNSW graph with %d nodes in %d ms", count, System.currentTimeMillis() - startTime);
+        } catch (IOException e) {
+            LOG.warnf(e, "Unreadable HNSW graph %s, rebuilding", graphPath);
+            clear();
+        }
+    }
+
+    /**
+     * Writes the graph to a temporary file and moves it into place
+     */
+    private void save() {
+        var temp = graphPath.resolveSibling(graphPath.getFileName() + ".tmp");
+        try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(m);
+            out.writeInt(nodes.size());
+            out.writeInt(entryPoint);
+            out.writeInt(maxLevel);
+            for (var node : nodes) {
+                out.writeFloat(node.norm);
+                out.writeInt(node.level());
+                out.writeBoolean(node.deleted);
+                for (var neighbors : node.neighbors) {
+                    out.writeInt(neighbors.length);
+                    for (int neighbor : neighbors) {
+                        out.writeInt(neighbor);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write HNSW graph " + temp, e);
+        }
+        try {
+            Files.move(temp, graphPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write HNSW graph " + graphPath, e);
+        }
+    }
+}
@@ -0,0 +1,474 @@
+package org.dimsen.rag;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.EmbeddingSearchResult;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import dev.langchain4j.store.embedding.RelevanceScore;
+import org.jboss.logging.Logger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.UUID;
+
+/**
+ * Embedding store backed by memory-mapped files, replacing the JSON serialization of
+ * the in-memory store used by Easy RAG.
+ * <p>
+ * Three files share a base path:
+ * <ul>
+ *     <li>{@code .vec}: 16 byte header (magic, format version, dimension, count) followed by
+ *     one record per embedding: its L2 norm and its float32 components, little endian</li>
+ *     <li>{@code .idx}: one long per record, the offset of its entry in the metadata segment</li>
+ *     <li>{@code .meta}: length-prefixed JSON entries holding id, text and metadata</li>
+ * </ul>
+ * Opening the store only maps the vector file, nothing is parsed onto the heap. Search
+ * scans the mapped vectors with {@link VectorMath} and only reads the metadata segment
+ * for the top-k matches. Writes are appended and the count in the header is updated
+ * last, so a crash during a write leaves the previous contents intact. Removal writes a
+ * zero norm over the record (tombstone); the space is not reclaimed.
+ */
+public class MappedEmbeddingStore implements EmbeddingStore<TextSegment>, Closeable {
+
+    private static final Logger LOG = Logger.getLogger(MappedEmbeddingStore.class);
+
+    private static final int MAGIC = 0x454D4256; // "EMBV"
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final FileChannel vectors;
+    private final FileChannel index;
+    private final FileChannel metadata;
+
+    private volatile Snapshot snapshot;
+    private Map<String, Integer> idIndex;
+
+    /**
+     * Immutable view of the mapped vectors. Replaced after every write.
+     */
+    private record Snapshot(int dimension, int count, int recordsPerSegment, FloatBuffer[] segments) {
+
+        int stride() {
+            return dimension + 1;
+        }
+    }
+
+    private record Candidate(int record, double score) {}
+
+    public MappedEmbeddingStore(Path basePath) {
+        try {
+            var options = new StandardOpenOption[]{
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE};
+            this.vectors = FileChannel.open(withSuffix(basePath, ".vec"), options);
+            this.index = FileChannel.open(withSuffix(basePath, ".idx"), options);
+            this.metadata = FileChannel.open(withSuffix(basePath, ".meta"), options);
+            this.snapshot = map(readDimension(), readCount());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to open embedding store at " + basePath, e);
+        }
+    }
+
+    public static Path withSuffix(Path basePath, String suffix) {
+        return basePath.resolveSibling(basePath.getFileName() + suffix);
+    }
+
+    public int size() {
+        return snapshot.count();
+    }
+
+    public boolean isEmpty() {
+        return snapshot.count() == 0;
+    }
+
+    @Override
+    public String add(Embedding embedding) {
+        var id = UUID.randomUUID().toString();
+        add(id, embedding);
+        return id;
+    }
+
+    @Override
+    public void add(String id, Embedding embedding) {
+        addAll(List.of(id), List.of(embedding), null);
+    }
+
+    @Override
+    public String add(Embedding embedding, TextSegment textSegment) {
+        var id = UUID.randomUUID().toString();
+        addAll(List.of(id), List.of(embedding), List.of(textSegment));
+        return id;
+    }
+
+    @Override
+    public List<String> addAll(List<Embedding> embeddings) {
+        var ids = generateIds(embeddings.size());
+        addAll(ids, embeddings, null);
+        return ids;
+    }
+
+    @Override
+    public List<String> addAll(List<Embedding> embeddings, List<TextSegment> embedded) {
+        var ids = generateIds(embeddings.size());
+        addAll(ids, embeddings, embedded);
+        return ids;
+    }
+
+    @Override
+    public synchronized void addAll(List<String> ids, List<Embedding> embeddings, List<TextSegment> embedded) {
+        if (embeddings.isEmpty()) {
+            return;
+        }
+        try {
+            var current = snapshot;
+            int dimension = current.dimension() != 0 ? current.dimension() : embeddings.get(0).dimension();
+
+            var vectorRecords = ByteBuffer.allocate(embeddings.size() * (dimension + 1) * Float.BYTES)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            var offsets = ByteBuffer.allocate(embeddings.size() * Long.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            long metadataPosition = metadata.size();
+
+            for (int i = 0; i < embeddings.size(); i++) {
+                var vector = embeddings.get(i).vector();
+                if (vector.length != dimension) {
+                    throw new IllegalArgumentException("Expected dimension " + dimension + " but got " + vector.length);
+                }
+                vectorRecords.putFloat(VectorMath.norm(vector));
+                for (float value : vector) {
+                    vectorRecords.putFloat(value);
+                }
+
+                var entry = encodeEntry(ids.get(i), embedded != null ? embedded.get(i) : null);
+                var entryBuffer = ByteBuffer.allocate(Integer.BYTES + entry.length).order(ByteOrder.LITTLE_ENDIAN);
+                entryBuffer.putInt(entry.length).put(entry).flip();
+                offsets.putLong(metadataPosition);
+                metadataPosition += writeFully(metadata, entryBuffer, metadataPosition);
+            }
+
+            writeFully(vectors, vectorRecords.flip(),
+                    HEADER_BYTES + (long) current.count() * (dimension + 1) * Float.BYTES);
+            writeFully(index, offsets.flip(), (long) current.count() * Long.BYTES);
+            metadata.force(false);
+            vectors.force(false);
+            index.force(false);
+
+            int count = current.count() + embeddings.size();
+            writeHeader(dimension, count);
+            snapshot = map(dimension, count);
+            if (idIndex != null) {
+                for (int i = 0; i < ids.size(); i++) {
+                    idIndex.put(ids.get(i), current.count() + i);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to append embeddings", e);
+        }
+    }
+
+    @Override
+    public void removeAll(Collection<String> ids) {
+        removeRecords(ids);
+    }
+
+    /**
+     * Tombstones the records of the given ids by zeroing their stored norm. Tombstoned
+     * records are skipped by search and never returned again.
+     * @return Record numbers that were removed
+     */
+    public synchronized List<Integer> removeRecords(Collection<String> ids) {
+        try {
+            var current = snapshot;
+            var lookup = idIndex();
+            List<Integer> removed = new ArrayList<>();
+            for (var id : ids) {
+                var record = lookup.remove(id);
+                if (record == null) {
+                    continue;
+                }
+                var tombstone = ByteBuffer.allocate(Float.BYTES).order(ByteOrder.LITTLE_ENDIAN).putFloat(0f).flip();
+                writeFully(vectors, tombstone, HEADER_BYTES + (long) record * current.stride() * Float.BYTES);
+                removed.add(record);
+            }
+            vectors.force(false);
+            LOG.debugf("Removed %d of %d requested embeddings", removed.size(), ids.size());
+            return removed;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to remove embeddings", e);
+        }
+    }
+
+    /**
+     * Empties the store. The vector file is not truncated because searches may still be
+     * reading the previous mapping; new records overwrite it from the start.
+     */
+    @Override
+    public synchronized void removeAll() {
+        try {
+            writeHeader(0, 0);
+            index.truncate(0);
+            metadata.truncate(0);
+            idIndex = new HashMap<>();
+            snapshot = map(0, 0);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to clear embedding store", e);
+        }
+    }
+
+    /**
+     * Lazily built id to record lookup, only needed for removals. Guarded by {@code this}.
+     */
+    private Map<String, Integer> idIndex() {
+        if (idIndex == null) {
+            var current = snapshot;
+            Map<String, Integer> lookup = new HashMap<>();
+            var vector = new float[current.dimension()];
+            for (int record = 0; record < current.count(); record++) {
+                if (readVector(current, record, vector) != 0f) {
+                    lookup.put(readEntry(record).id(), record);
+                }
+            }
+            idIndex = lookup;
+        }
+        return idIndex;
+    }
+
+    @Override
+    public EmbeddingSearchResult<TextSegment> search(EmbeddingSearchRequest request) {
+        var current = snapshot;
+        if (current.count() == 0) {
+            return new EmbeddingSearchResult<>(List.of());
+        }
+
+        var query = request.queryEmbedding().vector();
+        var queryNorm = VectorMath.norm(query);
+        var maxResults = request.maxResults();
+        var filter = request.filter();
+        var scratch = new float[current.dimension()];
+
+        PriorityQueue<Candidate> top = new PriorityQueue<>(Comparator.comparingDouble(Candidate::score));
+        for (int record = 0; record < current.count(); record++) {
+            var norm = readVector(current, record, scratch);
+            if (norm == 0f) {
+                continue;
+            }
+
+            var cosine = VectorMath.dot(query, scratch) / (queryNorm * norm);
+            var score = RelevanceScore.fromCosineSimilarity(cosine);
+            if (score < request.minScore()) {
+                continue;
+            }
+            if (top.size() >= maxResults && score <= top.peek().score()) {
+                continue;
+            }
+            if (filter != null) {
+                var segment = readEntry(record).segment();
+                if (!filter.test(segment != null ? segment.metadata() : new Metadata())) {
+                    continue;
+                }
+            }
+
+            top.offer(new Candidate(record, score));
+            if (top.size() > maxResults) {
+                top.poll();
+            }
+        }
+
+        List<EmbeddingMatch<TextSegment>> matches = new ArrayList<>(top.size());
+        while (!top.isEmpty()) {
+            var candidate = top.poll();
+            var vector = new float[current.dimension()];
+            readVector(current, candidate.record(), vector);
+            matches.add(0, match(candidate.record(), candidate.score(), vector));
+        }
+        return new EmbeddingSearchResult<>(matches);
+    }
+
+    /**
+     * @return Dimension of the stored vectors, 0 while the store is empty
+     */
+    public int dimension() {
+        return snapshot.dimension();
+    }
+
+    /**
+     * Copies the full-precision vector of a record into {@code target}
+     * @param record Record number in insertion order
+     * @return The stored L2 norm of the vector, 0 for removed records
+     */
+    public float readVector(int record, float[] target) {
+        return readVector(snapshot, record, target);
+    }
+
+    /**
+     * Builds a search match for a record, reading its metadata entry
+     */
+    public EmbeddingMatch<TextSegment> match(int record, double score, float[] vector) {
+        var entry = readEntry(record);
+        return new EmbeddingMatch<>(score, entry.id(), Embedding.from(vector), entry.segment());
+    }
+
+    /**
+     * Visits every stored entry in insertion order, reading vectors from the mapping
+     */
+    public void forEach(EntryVisitor visitor) {
+        var current = snapshot;
+        for (int record = 0; record < current.count(); record++) {
+            var vector = new float[current.dimension()];
+            if (readVector(current, record, vector) == 0f) {
+                continue;
+            }
+            var entry = readEntry(record);
+            visitor.visit(entry.id(), vector, entry.segment());
+        }
+    }
+
+    @FunctionalInterface
+    public interface EntryVisitor {
+        void visit(String id, float[] vector, TextSegment segment);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        vectors.close();
+        index.close();
+        metadata.close();
+    }
+
+    private float readVector(Snapshot current, int record, float[] target) {
+        var segment = current.segments()[record / current.recordsPerSegment()];
+        int position = (record % current.recordsPerSegment()) * current.stride();
+        var norm = segment.get(position);
+        segment.get(position + 1, target);
+        return norm;
+    }
+
+    private Entry readEntry(int record) {
+        try {
+            var offsetBuffer = ByteBuffer.allocate(Long.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(index, offsetBuffer, (long) record * Long.BYTES);
+            long offset = offsetBuffer.flip().getLong();
+
+            var lengthBuffer = ByteBuffer.allocate(Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(metadata, lengthBuffer, offset);
+            var entryBuffer = ByteBuffer.allocate(lengthBuffer.flip().getInt());
+            readFully(metadata, entryBuffer, offset + Integer.BYTES);
+
+            Map<String, Object> json = mapper.readValue(entryBuffer.array(), new TypeReference<>() {});
+            var text = (String) json.get("text");
+            TextSegment segment = null;
+            if (text != null) {
+                @SuppressWarnings("unchecked")
+                var values = (Map<String, Object>) json.getOrDefault("metadata", Map.of());
+                segment = TextSegment.from(text, Metadata.from(values));
+            }
+            return new Entry((String) json.get("id"), segment);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read embedding entry " + record, e);
+        }
+    }
+
+    private record Entry(String id, TextSegment segment) {}
+
+    private byte[] encodeEntry(String id, TextSegment segment) throws IOException {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("id", id);
+        if (segment != null) {
+            json.put("text", segment.text());
+            json.put("metadata", segment.metadata().toMap());
+        }
+        return mapper.writeValueAsString(json).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private Snapshot map(int dimension, int count) throws IOException {
+        if (count == 0) {
+            return new Snapshot(dimension, 0, 1, new FloatBuffer[0]);
+        }
+
+        long recordBytes = (long) (dimension + 1) * Float.BYTES;
+        int recordsPerSegment = (int) (Integer.MAX_VALUE / recordBytes);
+        int segmentCount = (count + recordsPerSegment - 1) / recordsPerSegment;
+        var segments = new FloatBuffer[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            int records = Math.min(recordsPerSegment, count - i * recordsPerSegment);
+            segments[i] = vectors.map(FileChannel.MapMode.READ_ONLY,
+                            HEADER_BYTES + (long) i * recordsPerSegment * recordBytes, records * recordBytes)
+                    .order(ByteOrder.LITTLE_ENDIAN)
+                    .asFloatBuffer();
+        }
+        LOG.debugf("Mapped %d embeddings of dimension %d in %d segments", count, dimension, segmentCount);
+        return new Snapshot(dimension, count, recordsPerSegment, segments);
+    }
+
+    private int readDimension() throws IOException {
+        return readHeader()[2];
+    }
+
+    private int readCount() throws IOException {
+        return readHeader()[3];
+    }
+
+    private int[] readHeader() throws IOException {
+        if (vectors.size() < HEADER_BYTES) {
+            return new int[]{MAGIC, FORMAT_VERSION, 0, 0};
+        }
+        var header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        readFully(vectors, header, 0);
+        header.flip();
+        var values = new int[]{header.getInt(), header.getInt(), header.getInt(), header.getInt()};
+        if (values[0] != MAGIC || values[1] != FORMAT_VERSION) {
+            throw new IllegalStateException("Unsupported embedding store format");
+        }
+        return values;
+    }
+
+    private void writeHeader(int dimension, int count) throws IOException {
+        var header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN)
+                .putInt(MAGIC)
+                .putInt(FORMAT_VERSION)
+                .putInt(dimension)
+                .putInt(count)
+                .flip();
+        writeFully(vectors, header, 0);
+        vectors.force(false);
+    }
+
+    private static int writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        int written = 0;
+        while (buffer.hasRemaining()) {
+            written += channel.write(buffer, position + written);
+        }
+        return written;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        int read = 0;
+        while (buffer.hasRemaining()) {
+            int n = channel.read(buffer, position + read);
+            if (n < 0) {
+                throw new IOException("Unexpected end of file");
+            }
+            read += n;
+        }
+    }
+}
@@ -0,0 +1,261 @@
+package org.dimsen.rag;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.EmbeddingSearchResult;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import dev.langchain4j.store.embedding.RelevanceScore;
+import org.jboss.logging.Logger;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Scalar-quantized (int8) search index in front of a {@link MappedEmbeddingStore}.
+ * <p>
+ * Every vector is kept on the heap as one signed byte per component plus a float scale,
+ * a quarter of the float32 footprint. Search scores all int8 vectors, keeps the best
+ * {@code maxResults * oversample} candidates and re-scores only those in full precision
+ * from the memory-mapped store, so ranking of the returned matches is exact. Requests
+ * with a metadata filter are answered by an exact scan of the mapped store, since
+ * filtering the candidate list can drop matches. The same scan answers requests whose
+ * min score rejected candidates while records outside the candidate list were left
+ * unscored.
+ * <p>
+ * Searches hold a read lock and writes the write lock, so that a search never reads
+ * records of the mapped store through an index built before the store was cleared.
+ */
+public class QuantizedEmbeddingStore implements EmbeddingStore<TextSegment> {
+
+    private static final Logger LOG = Logger.getLogger(QuantizedEmbeddingStore.class);
+
+    private final MappedEmbeddingStore fullPrecision;
+    private final int oversample;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Guarded by lock
+    private Index index;
+
+    /**
+     * Quantized copy of the full-precision records, replaced on every write
+     */
+    private record Index(int count, byte[][] codes, float[] scales, float[] norms) {}
+
+    private record Candidate(int record, double score) {}
+
+    public QuantizedEmbeddingStore(MappedEmbeddingStore fullPrecision, int oversample) {
+        this.fullPrecision = fullPrecision;
+        this.oversample = Math.max(1, oversample);
+        this.index = new Index(0, new byte[0][], new float[0], new float[0]);
+        sync();
+    }
+
+    /**
+     * @return Heap bytes used by the quantized codes
+     */
+    public long quantizedBytes() {
+        lock.readLock().lock();
+        try {
+            return (long) index.count() * fullPrecision.dimension();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public String add(Embedding embedding) {
+        var id = fullPrecision.add(embedding);
+        sync();
+        return id;
+    }
+
+    @Override
+    public void add(String id, Embedding embedding) {
+        fullPrecision.add(id, embedding);
+        sync();
+    }
+
+    @Override
+    public String add(Embedding embedding, TextSegment textSegment) {
+        var id = fullPrecision.add(embedding, textSegment);
+        sync();
+        return id;
+    }
+
+    @Override
+    public List<String> addAll(List<Embedding> embeddings) {
+        var ids = fullPrecision.addAll(embeddings);
+        sync();
+        return ids;
+    }
+
+    @Override
+    public List<String> addAll(List<Embedding> embeddings, List<TextSegment> embedded) {
+        var ids = fullPrecision.addAll(embeddings, embedded);
+        sync();
+        return ids;
+    }
+
+    @Override
+    public void addAll(List<String> ids, List<Embedding> embeddings, List<TextSegment> embedded) {
+        fullPrecision.addAll(ids, embeddings, embedded);
+        sync();
+    }
+
+    @Override
+    public void removeAll(Collection<String> ids) {
+        lock.writeLock().lock();
+        try {
+            var removed = fullPrecision.removeRecords(ids);
+            if (removed.isEmpty()) {
+                return;
+            }
+            var norms = Arrays.copyOf(index.norms(), index.count());
+            for (int record : removed) {
+                if (record < norms.length) {
+                    norms[record] = 0f;
+                }
+            }
+            index = new Index(index.count(), index.codes(), index.scales(), norms);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void removeAll() {
+        lock.writeLock().lock();
+        try {
+            fullPrecision.removeAll();
+            index = new Index(0, new byte[0][], new float[0], new float[0]);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public EmbeddingSearchResult<TextSegment> search(EmbeddingSearchRequest request) {
+        if (request.filter() != null) {
+            return fullPrecision.search(request);
+        }
+
+        lock.readLock().lock();
+        try {
+            var current = index;
+            if (current.count() == 0) {
+                return new EmbeddingSearchResult<>(List.of());
+            }
+
+            var query = request.queryEmbedding().vector();
+            var queryNorm = VectorMath.norm(query);
+            var queryCodes = new byte[query.length];
+            var queryScale = quantize(query, queryCodes);
+
+            // Pass 1: approximate cosine on int8 codes
+            int candidateCount = request.maxResults() * oversample;
+            int scored = 0;
+            PriorityQueue<Candidate> candidates = new PriorityQueue<>(Comparator.comparingDouble(Candidate::score));
+            for (int record = 0; record < current.count(); record++) {
+                var norm = current.norms()[record];
+                if (norm == 0f) {
+                    continue;
+                }
+                scored++;
+                var dot = queryScale * current.scales()[record]
+                        * VectorMath.int8Dot(queryCodes, current.codes()[record]);
+                var approximate = dot / (queryNorm * norm);
+                if (candidates.size() < candidateCount) {
+                    candidates.offer(new Candidate(record, approximate));
+                } else if (approximate > candidates.peek().score()) {
+                    candidates.poll();
+                    candidates.offer(new Candidate(record, approximate));
+                }
+            }
+
+            // Pass 2: exact re-scoring of the candidates from the mapped float32 vectors
+            PriorityQueue<EmbeddingMatch<TextSegment>> top = new PriorityQueue<>(
+                    Comparator.comparingDouble((EmbeddingMatch<TextSegment> match) -> match.score()));
+            for (var candidate : candidates) {
+                var vector = new float[query.length];
+                var norm = fullPrecision.readVector(candidate.record(), vector);
+                var score = RelevanceScore.fromCosineSimilarity(VectorMath.dot(query, vector) / (queryNorm * norm));
+                if (score < request.minScore()) {
+                    continue;
+                }
+                top.offer(fullPrecision.match(candidate.record(), score, vector));
+                if (top.size() > request.maxResults()) {
+                    top.poll();
+                }
+            }
+
+            if (top.size() < request.maxResults() && scored > candidates.size()) {
+                // Candidates fell below the min score, unscored records may still pass it
+                return fullPrecision.search(request);
+            }
+
+            List<EmbeddingMatch<TextSegment>> matches = new ArrayList<>(top.size());
+            while (!top.isEmpty()) {
+                matches.add(0, top.poll());
+            }
+            return new EmbeddingSearchResult<>(matches);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void sync() {
+        lock.writeLock().lock();
+        try {
+            quantizeNewRecords();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Quantizes records appended to the full-precision store since the last call, the
+     * write lock must be held
+     */
+    private void quantizeNewRecords() {
+        var current = index;
+        int count = fullPrecision.size();
+        if (count == current.count()) {
+            return;
+        }
+
+        var codes = Arrays.copyOf(current.codes(), count);
+        var scales = Arrays.copyOf(current.scales(), count);
+        var norms = Arrays.copyOf(current.norms(), count);
+        var vector = new float[fullPrecision.dimension()];
+        for (int record = current.count(); record < count; record++) {
+            norms[record] = fullPrecision.readVector(record, vector);
+            codes[record] = new byte[vector.length];
+            scales[record] = quantize(vector, codes[record]);
+        }
+        index = new Index(count, codes, scales, norms);
+        LOG.debugf("Quantized %d new embeddings, %d total", count - current.count(), count);
+    }
+
+    /**
+     * Symmetric scalar quantization to [-127, 127]
+     * @return The scale that maps a code back to its float value
+     */
+    static float quantize(float[] vector, byte[] codes) {
+        float maxAbs = 0f;
+        for (float value : vector) {
+            maxAbs = Math.max(maxAbs, Math.abs(value));
+        }
+        float scale = maxAbs == 0f ? 1f : maxAbs / 127f;
+        for (int i = 0; i < vector.length; i++) {
+            codes[i] = (byte) Math.max(-127, Math.min(127, Math.round(vector[i] / scale)));
+        }
+        return scale;
+    }
+}
@@ -0,0 +1,111 @@
+package org.dimsen.rag;
+
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.inject.Disposes;
+import jakarta.enterprise.inject.Produces;
+import jakarta.enterprise.inject.Typed;
+import jakarta.inject.Singleton;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Exposes the {@link MappedEmbeddingStore}, optionally behind a {@link HnswEmbeddingStore}
+ * or a {@link QuantizedEmbeddingStore}, as the {@code EmbeddingStore} bean picked up by the
+ * Easy RAG retrieval augmentor of {@link org.dimsen.Bot}. On first start the store is migrated from the legacy JSON file
+ * if present; on every start the catalog is refreshed incrementally.
+ */
+@ApplicationScoped
+public class RagEmbeddingStoreProducer {
+
+    private static final Logger LOG = Logger.getLogger(RagEmbeddingStoreProducer.class);
+
+    @ConfigProperty(name = "rag.embedding-store.path", defaultValue = "easy-rag-embeddings")
+    String storePath;
+
+    @ConfigProperty(name = "rag.embedding-store.migrate-from", defaultValue = "easy-rag-embeddings.json")
+    String legacyJsonPath;
+
+    @ConfigProperty(name = "rag.embedding-store.quantization", defaultValue = "none")
+    String quantization;
+
+    @ConfigProperty(name = "rag.embedding-store.rescore-oversample", defaultValue = "4")
+    int rescoreOversample;
+
+    @ConfigProperty(name = "rag.embedding-store.index", defaultValue = "flat")
+    String indexType;
+
+    @ConfigProperty(name = "rag.embedding-store.hnsw.m", defaultValue = "16")
+    int hnswM;
+
+    @ConfigProperty(name = "rag.embedding-store.hnsw.ef-construction", defaultValue = "200")
+    int hnswEfConstruction;
+
+    @ConfigProperty(name = "rag.embedding-store.hnsw.ef-search", defaultValue = "64")
+    int hnswEfSearch;
+
+    @Produces
+    @Singleton
+    @Typed(MappedEmbeddingStore.class)
+    MappedEmbeddingStore mappedEmbeddingStore() throws IOException {
+        var startTime = System.currentTimeMillis();
+        var store = new MappedEmbeddingStore(Path.of(storePath));
+
+        var legacyJson = Path.of(legacyJsonPath);
+        if (store.isEmpty() && EmbeddingStoreMigration.canMigrate(legacyJson)) {
+            LOG.infof("Embedding store is empty, migrating from %s", legacyJson);
+            EmbeddingStoreMigration.migrateFromJson(legacyJson, store);
+        }
+
+        var duration = System.currentTimeMillis() - startTime;
+        LOG.infof("Opened embedding store %s with %d embeddings in %d ms (Vector API: %s)",
+                  storePath, store.size(), duration, VectorMath.VECTOR_API_AVAILABLE);
+        return store;
+    }
+
+    /**
+     * The store used for retrieval and ingestion: an HNSW graph over the mapped store when
+     * {@code rag.embedding-store.index=hnsw}, otherwise the mapped float32 store itself or an
+     * int8 quantized index in front of it when {@code rag.embedding-store.quantization=int8}
+     */
+    @Produces
+    @Singleton
+    EmbeddingStore<TextSegment> embeddingStore(MappedEmbeddingStore mapped) {
+        if ("hnsw".equalsIgnoreCase(indexType)) {
+            if (!"none".equalsIgnoreCase(quantization)) {
+                LOG.warnf("rag.embedding-store.quantization=%s is ignored with the hnsw index", quantization);
+            }
+            var startTime = System.currentTimeMillis();
+            var hnsw = new HnswEmbeddingStore(mapped, MappedEmbeddingStore.withSuffix(Path.of(storePath), ".hnsw"),
+                    hnswM, hnswEfConstruction, hnswEfSearch);
+            var duration = System.currentTimeMillis() - startTime;
+            LOG.infof("Opened HNSW index over %d embeddings in %d ms (m=%d, efConstruction=%d, efSearch=%d)",
+                      hnsw.size(), duration, hnswM, hnswEfConstruction, hnswEfSearch);
+            return hnsw;
+        }
+        if ("int8".equalsIgnoreCase(quantization)) {
+            var startTime = System.currentTimeMillis();
+            var quantized = new QuantizedEmbeddingStore(mapped, rescoreOversample);
+            var duration = System.currentTimeMillis() - startTime;
+            LOG.infof("Built int8 index over %d embeddings in %d ms (%d KB heap, oversample=%d)",
+                      mapped.size(), duration, quantized.quantizedBytes() / 1024, rescoreOversample);
+            return quantized;
+        }
+        return mapped;
+    }
+
+    void close(@Disposes MappedEmbeddingStore store) throws IOException {
+        store.close();
+    }
+
+    void onStart(@Observes StartupEvent event, CatalogIngestion ingestion) {
+        ingestion.refresh();
+        ingestion.startWatching();
+    }
+}
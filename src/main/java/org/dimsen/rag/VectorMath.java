@@ -0,0 +1,68 @@
+package org.dimsen.rag;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Dot products and norms for embedding search. Uses the JDK Vector API when the
+ * {@code jdk.incubator.vector} module is present at runtime and falls back to a plain
+ * loop otherwise, so the store keeps working when the module is not added.
+ */
+public final class VectorMath {
+
+    public static final boolean VECTOR_API_AVAILABLE =
+            ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+
+    private VectorMath() {
+    }
+
+    public static float dot(float[] a, float[] b) {
+        return VECTOR_API_AVAILABLE ? Simd.dot(a, b) : scalarDot(a, b);
+    }
+
+    public static float norm(float[] a) {
+        return (float) Math.sqrt(dot(a, a));
+    }
+
+    /**
+     * Dot product of two int8 quantized vectors, accumulated in int
+     */
+    public static int int8Dot(byte[] a, byte[] b) {
+        int sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+
+    static float scalarDot(float[] a, float[] b) {
+        float sum = 0f;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+
+    // Only loaded when the incubator module is available
+    private static final class Simd {
+
+        private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+
+        static float dot(float[] a, float[] b) {
+            var acc = FloatVector.zero(SPECIES);
+            int i = 0;
+            int upperBound = SPECIES.loopBound(a.length);
+            for (; i < upperBound; i += SPECIES.length()) {
+                var va = FloatVector.fromArray(SPECIES, a, i);
+                var vb = FloatVector.fromArray(SPECIES, b, i);
+                acc = va.fma(vb, acc);
+            }
+            float sum = acc.reduceLanes(VectorOperators.ADD);
+            for (; i < a.length; i++) {
+                sum += a[i] * b[i];
+            }
+            return sum;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package org.dimsen.service;
+
+import io.quarkus.hibernate.search.orm.elasticsearch.SearchExtension;
+import org.hibernate.search.backend.elasticsearch.analysis.ElasticsearchAnalysisConfigurationContext;
+import org.hibernate.search.backend.elasticsearch.analysis.ElasticsearchAnalysisConfigurer;
+
+/**
+ * Custom analyzers of the Elasticsearch indexes.
+ * <p>
+ * The autocomplete analyzers index every prefix of a value as its own term (edge n-grams),
+ * so a typeahead lookup is a plain term match instead of a fuzzy or prefix query. The
+ * {@code *_search} variants are used on the query text and only normalize it.
+ */
+@SearchExtension
+public class AssetAnalysisConfigurer implements ElasticsearchAnalysisConfigurer {
+
+    public static final String AUTOCOMPLETE = "autocomplete_indexing";
+    public static final String AUTOCOMPLETE_SEARCH = "autocomplete_search";
+    public static final String AUTOCOMPLETE_KEYWORD = "autocomplete_keyword_indexing";
+    public static final String AUTOCOMPLETE_KEYWORD_SEARCH = "autocomplete_keyword_search";
+
+    @Override
+    public void configure(ElasticsearchAnalysisConfigurationContext context) {
+        context.tokenFilter("autocomplete_word_edge_ngram")
+                .type("edge_ngram")
+                .param("min_gram", 1)
+                .param("max_gram", 20);
+        context.tokenFilter("autocomplete_keyword_edge_ngram")
+                .type("edge_ngram")
+                .param("min_gram", 1)
+                .param("max_gram", 40);
+
+        // Word prefixes, e.g. names: "Dell Latitude" -> d, de, del, dell, l, la, ...
+        context.analyzer(AUTOCOMPLETE).custom()
+                .tokenizer("standard")
+                .tokenFilters("lowercase", "asciifolding", "autocomplete_word_edge_ngram");
+        context.analyzer(AUTOCOMPLETE_SEARCH).custom()
+                .tokenizer("standard")
+                .tokenFilters("lowercase", "asciifolding");
+
+        // Prefixes of the whole value, e.g. serial numbers: "SN-123" -> s, sn, sn-, sn-1, ...
+        context.analyzer(AUTOCOMPLETE_KEYWORD).custom()
+                .tokenizer("keyword")
+                .tokenFilters("lowercase", "autocomplete_keyword_edge_ngram");
+        context.analyzer(AUTOCOMPLETE_KEYWORD_SEARCH).custom()
+                .tokenizer("keyword")
+                .tokenFilters("lowercase");
+    }
+}
@@ -0,0 +1,20 @@
+package org.dimsen.service;
+
+import io.quarkus.arc.Arc;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostUpdate;
+import org.dimsen.model.Asset;
+
+/**
+ * Hands written assets over to the {@link AssetEmbeddingPipeline}. Only the id is
+ * recorded, and enqueued once the transaction commits, so the ORM flush never waits for
+ * the embedding model and the pipeline never reads uncommitted text.
+ */
+public class AssetEmbeddingListener {
+
+    @PostPersist
+    @PostUpdate
+    void onWrite(Asset asset) {
+        Arc.container().instance(AssetEmbeddingPipeline.class).get().recordChange(asset.getId());
+    }
+}
@@ -0,0 +1,371 @@
+package org.dimsen.service;
+
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+import org.dimsen.constant.AppConstant;
+import org.dimsen.enums.IndexConsistencyMode;
+import org.dimsen.model.Asset;
+import org.dimsen.model.Brand;
+import org.dimsen.model.Category;
+import org.dimsen.model.SubCategory;
+import org.dimsen.model.Type;
+import org.dimsen.model.base.BaseEntity;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.hibernate.Hibernate;
+import org.hibernate.jpa.SpecHints;
+import org.jboss.logging.Logger;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Queue-driven embedding stage for asset vectors.
+ * <p>
+ * Asset writes only enqueue the asset id (see {@link AssetEmbeddingListener}), once their
+ * transaction commits; nothing is embedded during the ORM flush. A single virtual-thread
+ * consumer drains the queue in batches, skips assets whose embedding text hash is
+ * unchanged, embeds the rest with one call to the embedding model per batch, stores the
+ * vectors with bulk updates that bypass the entity listeners and pushes the affected
+ * documents to Elasticsearch in one bulk indexing pass of the {@link IndexSyncQueue}.
+ * Updates of brands, types, categories and sub-categories, whose names are part of the
+ * embedding text, enqueue every asset referencing them once committed (see
+ * {@link ReferenceEmbeddingListener}); the hash check skips the assets whose text did not
+ * change. A periodic reconcile pass enqueues assets that have never been embedded (e.g.
+ * rows of {@code import.sql}), assets changed since the previous pass and assets whose
+ * embedding failed, so that rows written outside the ORM are embedded as well.
+ */
+@ApplicationScoped
+public class AssetEmbeddingPipeline {
+
+    private static final Logger LOG = Logger.getLogger(AssetEmbeddingPipeline.class);
+
+    private static final Map<Class<?>, String> REFERENCE_ATTRIBUTES = Map.of(
+            Brand.class, "brand",
+            Type.class, "type",
+            Category.class, "category",
+            SubCategory.class, "subCategory");
+
+    @Inject
+    EntityManager em;
+
+    @Inject
+    EmbeddingModel embeddingModel;
+
+    @Inject
+    MeterRegistry registry;
+
+    @Inject
+    IndexSyncQueue indexSyncQueue;
+
+    @Inject
+    TransactionSynchronizationRegistry transactionRegistry;
+
+    @ConfigProperty(name = "asset.embedding.batch-size", defaultValue = "16")
+    int batchSize;
+
+    @ConfigProperty(name = "asset.embedding.linger", defaultValue = "200ms")
+    Duration linger;
+
+    private final BlockingQueue<Long> queue = new LinkedBlockingQueue<>();
+    private final Set<Long> pending = ConcurrentHashMap.newKeySet();
+    // Assets of failed batches, retried by the next reconcile pass
+    private final Set<Long> failedIds = ConcurrentHashMap.newKeySet();
+    // Committed reference data changes whose assets are still to be enqueued
+    private final Set<ReferenceChange> changedReferences = ConcurrentHashMap.newKeySet();
+    private volatile LocalDateTime lastReconcileAt;
+    private volatile boolean running;
+    private Thread consumer;
+
+    private Counter embedded;
+    private Counter skipped;
+    private Counter failed;
+    private DistributionSummary batchSizes;
+    private Timer batchTimer;
+
+    void onStart(@Observes StartupEvent event) {
+        registry.gauge("asset.embedding.backlog", queue, BlockingQueue::size);
+        embedded = registry.counter("asset.embedding.assets", "result", "embedded");
+        skipped = registry.counter("asset.embedding.assets", "result", "unchanged");
+        failed = registry.counter("asset.embedding.assets", "result", "failed");
+        batchSizes = registry.summary("asset.embedding.batch.size");
+        batchTimer = registry.timer("asset.embedding.batch.duration");
+
+        running = true;
+        consumer = Thread.ofVirtual().name("asset-embedding").start(this::consume);
+    }
+
+    void onStop(@Observes ShutdownEvent event) {
+        running = false;
+        if (consumer != null) {
+            consumer.interrupt();
+        }
+    }
+
+    /**
+     * Schedules an asset for (re-)embedding. Cheap and non-blocking; duplicate requests
+     * for an asset that is already queued are coalesced.
+     */
+    public void enqueue(Long assetId) {
+        if (assetId != null && pending.add(assetId)) {
+            queue.offer(assetId);
+        }
+    }
+
+    /**
+     * Records a written asset. Inside a transaction the asset is enqueued when the
+     * transaction commits, so the pipeline reads the committed row, and dropped when it
+     * rolls back; without one it is enqueued at once.
+     */
+    public void recordChange(Long assetId) {
+        if (assetId != null) {
+            onCommit(Long.class, assetId, this::enqueue);
+        }
+    }
+
+    /**
+     * Records an updated brand, type, category or sub-category. Once committed, the
+     * consumer enqueues every asset that references it.
+     */
+    public void recordReferenceChange(BaseEntity reference) {
+        var attribute = REFERENCE_ATTRIBUTES.get(Hibernate.getClass(reference));
+        if (attribute != null && reference.getId() != null) {
+            onCommit(ReferenceChange.class, new ReferenceChange(attribute, reference.getId()), changedReferences::add);
+        }
+    }
+
+    /**
+     * Runs the action for each recorded value once the transaction commits, drops the
+     * values when it rolls back; without a transaction the action runs at once
+     */
+    private <T> void onCommit(Class<T> kind, T value, Consumer<T> action) {
+        if (transactionRegistry.getTransactionKey() == null) {
+            action.accept(value);
+            return;
+        }
+
+        var resourceKey = List.of(AssetEmbeddingPipeline.class, kind);
+        @SuppressWarnings("unchecked")
+        var values = (Set<T>) transactionRegistry.getResource(resourceKey);
+        if (values == null) {
+            var transactionValues = new LinkedHashSet<T>();
+            transactionRegistry.putResource(resourceKey, transactionValues);
+            transactionRegistry.registerInterposedSynchronization(new Synchronization() {
+                @Override
+                public void beforeCompletion() {
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == Status.STATUS_COMMITTED) {
+                        transactionValues.forEach(action);
+                    }
+                }
+            });
+            values = transactionValues;
+        }
+        values.add(value);
+    }
+
+    /**
+     * @return Number of assets waiting to be embedded
+     */
+    public int backlog() {
+        return queue.size();
+    }
+
+    @Scheduled(every = "${asset.embedding.reconcile-interval}",
+               delayed = "${asset.index.freshness.initial-delay}",
+               concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void reconcile() {
+        var since = lastReconcileAt;
+        var startedAt = LocalDateTime.now();
+        List<Long> ids = QuarkusTransaction.requiringNew().call(() -> {
+            var query = em.createQuery("select a.id from Asset a where a.embeddingHash is null"
+                    + (since != null ? " or coalesce(a.updatedAt, a.createdAt) > :since" : "")
+                    + " order by a.id", Long.class);
+            if (since != null) {
+                query.setParameter("since", since);
+            }
+            return query.getResultList();
+        });
+        lastReconcileAt = startedAt;
+
+        List<Long> retried = new ArrayList<>(failedIds);
+        failedIds.removeAll(retried);
+        ids.forEach(this::enqueue);
+        retried.forEach(this::enqueue);
+        LOG.debugf("Embedding reconcile enqueued %d assets and retried %d failed ones, backlog=%d",
+                   ids.size(), retried.size(), queue.size());
+    }
+
+    private void consume() {
+        while (running) {
+            try {
+                if (!changedReferences.isEmpty()) {
+                    enqueueReferencingAssets();
+                }
+                Long first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+
+                List<Long> batch = new ArrayList<>(batchSize);
+                batch.add(first);
+                var lingerUntil = System.nanoTime() + linger.toNanos();
+                while (batch.size() < batchSize) {
+                    var remaining = lingerUntil - System.nanoTime();
+                    Long next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                // Released before processing so that writes during the batch are picked up again
+                batch.forEach(pending::remove);
+
+                batchTimer.record(() -> processBatch(batch));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                LOG.errorf(e, "Embedding batch failed: %s", e.getMessage());
+            }
+        }
+    }
+
+    private void enqueueReferencingAssets() {
+        List<ReferenceChange> changes = new ArrayList<>(changedReferences);
+        changedReferences.removeAll(changes);
+        for (var change : changes) {
+            var jpql = "select a.id from Asset a where a." + change.attribute() + ".id = :id order by a.id";
+            List<Long> ids = QuarkusTransaction.requiringNew().call(() -> em.createQuery(jpql, Long.class)
+                    .setParameter("id", change.id())
+                    .getResultList());
+            ids.forEach(this::enqueue);
+            LOG.debugf("Enqueued %d assets referencing %s %d", ids.size(), change.attribute(), change.id());
+        }
+    }
+
+    private void processBatch(List<Long> ids) {
+        // Phase 1: read the embedding text and skip unchanged assets
+        List<PendingEmbedding> changed = QuarkusTransaction.requiringNew().call(() -> {
+            List<PendingEmbedding> result = new ArrayList<>();
+            var assets = em.createQuery("select a from Asset a where a.id in :ids", Asset.class)
+                    .setParameter("ids", ids)
+                    .setHint(SpecHints.HINT_SPEC_LOAD_GRAPH, em.getEntityGraph(Asset.SEARCH_HIT_GRAPH))
+                    .getResultList();
+            for (var asset : assets) {
+                var text = AssetEmbeddingService.embeddingText(asset);
+                var hash = AssetEmbeddingService.embeddingHash(text);
+                if (hash.equals(asset.getEmbeddingHash())) {
+                    skipped.increment();
+                } else {
+                    result.add(new PendingEmbedding(asset.getId(), text, hash));
+                }
+            }
+            return result;
+        });
+        if (changed.isEmpty()) {
+            return;
+        }
+
+        // Phase 2: one embedding call for the whole batch, outside of any transaction
+        List<float[]> vectors;
+        try {
+            var segments = changed.stream()
+                    .map(item -> TextSegment.from(item.text()))
+                    .toList();
+            vectors = embeddingModel.embedAll(segments).content().stream()
+                    .map(embedding -> embedding.vector())
+                    .toList();
+            if (vectors.size() != changed.size()) {
+                throw new IllegalStateException("Embedding model returned " + vectors.size()
+                        + " vectors for " + changed.size() + " assets");
+            }
+        } catch (Exception e) {
+            failed.increment(changed.size());
+            changed.forEach(item -> failedIds.add(item.assetId()));
+            throw e;
+        }
+
+        // Vectors the index would reject are neither stored nor marked as embedded
+        List<EmbeddedVector> valid = new ArrayList<>(changed.size());
+        for (int i = 0; i < changed.size(); i++) {
+            var item = changed.get(i);
+            var vector = vectors.get(i);
+            if (vector == null || vector.length != AppConstant.ASSET_EMBEDDING_DIMENSION) {
+                failed.increment();
+                failedIds.add(item.assetId());
+                LOG.errorf("Embedding model returned %d dimensions for asset %d, the assets index expects %d",
+                           vector != null ? vector.length : 0, item.assetId(), AppConstant.ASSET_EMBEDDING_DIMENSION);
+            } else {
+                valid.add(new EmbeddedVector(item, vector));
+            }
+        }
+        if (valid.isEmpty()) {
+            return;
+        }
+
+        // Phase 3: store vectors without bumping version/updatedAt
+        QuarkusTransaction.requiringNew().run(() -> {
+            for (var embedded : valid) {
+                em.createQuery("update Asset a set a.embedding = :embedding, a.embeddingHash = :hash where a.id = :id")
+                        .setParameter("embedding", embedded.vector())
+                        .setParameter("hash", embedded.item().hash())
+                        .setParameter("id", embedded.item().assetId())
+                        .executeUpdate();
+            }
+        });
+
+        // Phase 4: bulk-index the committed documents the way every other write is indexed, so
+        // they are mirrored during blue/green rebuilds and cached results are invalidated
+        var documents = valid.stream()
+                .map(embedded -> new IndexSyncQueue.DocumentRef(Asset.class, embedded.item().assetId()))
+                .toList();
+        try {
+            indexSyncQueue.index(documents);
+        } catch (RuntimeException e) {
+            LOG.errorf(e, "Failed to index %d embedded assets, queued for retry: %s", documents.size(), e.getMessage());
+            indexSyncQueue.submit(documents, IndexConsistencyMode.NONE);
+        }
+
+        embedded.increment(valid.size());
+        batchSizes.record(valid.size());
+        LOG.debugf("Embedded %d assets (%d unchanged), backlog=%d",
+                   valid.size(), ids.size() - changed.size(), queue.size());
+    }
+
+    private record PendingEmbedding(Long assetId, String text, String hash) {}
+
+    /**
+     * @param attribute Attribute of {@link Asset} that references the changed entity
+     */
+    private record ReferenceChange(String attribute, Long id) {}
+
+    private record EmbeddedVector(PendingEmbedding item, float[] vector) {}
+}
@@ -0,0 +1,72 @@
+package org.dimsen.service;
+
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.dimsen.constant.AppConstant;
+import org.dimsen.model.Asset;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Defines how assets and queries are represented in the vector space of the
+ * {@code embedding} field of the assets index. Asset vectors themselves are computed
+ * off the write path by {@link AssetEmbeddingPipeline}.
+ */
+@ApplicationScoped
+public class AssetEmbeddingService {
+
+    @Inject
+    EmbeddingModel embeddingModel;
+
+    /**
+     * Builds the text that represents an asset in vector space
+     */
+    public static String embeddingText(Asset asset) {
+        StringBuilder text = new StringBuilder();
+        text.append(asset.getName());
+        if (asset.getBrand() != null) {
+            text.append("\nBrand: ").append(asset.getBrand().getName());
+        }
+        if (asset.getType() != null) {
+            text.append("\nType: ").append(asset.getType().getName());
+        }
+        if (asset.getCategory() != null) {
+            text.append("\nCategory: ").append(asset.getCategory().getName());
+        }
+        if (asset.getDescription() != null) {
+            text.append("\nDescription: ").append(asset.getDescription());
+        }
+        return text.toString();
+    }
+
+    /**
+     * @return Hex encoded SHA-256 of the embedding text, used to skip re-embedding unchanged assets
+     */
+    public static String embeddingHash(String embeddingText) {
+        try {
+            var digest = MessageDigest.getInstance("SHA-256")
+                    .digest(embeddingText.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Embeds a search query into the same vector space as the assets
+     * @param query Natural language query
+     * @return Query vector
+     */
+    public float[] embedQuery(String query) {
+        var vector = embeddingModel.embed(query).content().vector();
+        if (vector.length != AppConstant.ASSET_EMBEDDING_DIMENSION) {
+            throw new IllegalStateException("Embedding model returned " + vector.length
+                    + " dimensions, the assets index expects " + AppConstant.ASSET_EMBEDDING_DIMENSION);
+        }
+        return vector;
+    }
+}
@@ -0,0 +1,122 @@
+package org.dimsen.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import org.dimsen.dto.AssetSearchDTO;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+/**
+ * Runs LLM enrichment for a page of search results concurrently on virtual threads.
+ * <p>
+ * The number of in-flight LLM calls is capped by {@code asset.enrichment.parallelism}
+ * across the whole application, so a burst of searches cannot flood Ollama. Each
+ * request is bounded by {@code asset.enrichment.deadline}: results whose commentary is
+ * not ready when the deadline expires are returned with {@link #PENDING_COMMENTARY}
+ * and their calls are cancelled. Result order is always preserved.
+ */
+@ApplicationScoped
+public class AssetEnrichmentExecutor {
+
+    private static final Logger LOG = Logger.getLogger(AssetEnrichmentExecutor.class);
+
+    public static final String PENDING_COMMENTARY = "Analysis did not complete in time";
+    public static final String FAILED_COMMENTARY = "Analysis unavailable";
+
+    @ConfigProperty(name = "asset.enrichment.parallelism", defaultValue = "4")
+    int parallelism;
+
+    @ConfigProperty(name = "asset.enrichment.deadline", defaultValue = "45s")
+    Duration deadline;
+
+    private ExecutorService executor;
+    private Semaphore permits;
+
+    @PostConstruct
+    void init() {
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        permits = new Semaphore(Math.max(1, parallelism), true);
+        LOG.infof("Enrichment executor started with parallelism=%d, deadline=%s", parallelism, deadline);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * @return Maximum number of concurrent LLM calls
+     */
+    public int parallelism() {
+        return Math.max(1, parallelism);
+    }
+
+    /**
+     * Generates commentary for every result concurrently
+     * @param results Search results in ranking order
+     * @param analyzer Produces the commentary for a single result; called on a virtual thread
+     * @return New list in the same order, each entry carrying its commentary
+     */
+    public List<AssetSearchDTO> enrich(List<AssetSearchDTO> results, Function<AssetSearchDTO, String> analyzer) {
+        var startTime = System.currentTimeMillis();
+        var deadlineAt = System.nanoTime() + deadline.toNanos();
+
+        List<Future<String>> futures = new ArrayList<>(results.size());
+        for (var asset : results) {
+            futures.add(executor.submit(() -> analyzeWithPermit(asset, analyzer)));
+        }
+
+        List<AssetSearchDTO> enriched = new ArrayList<>(results.size());
+        int completed = 0;
+        for (int i = 0; i < results.size(); i++) {
+            var asset = results.get(i);
+            var future = futures.get(i);
+            String commentary;
+            try {
+                var remaining = Math.max(0, deadlineAt - System.nanoTime());
+                commentary = future.get(remaining, TimeUnit.NANOSECONDS);
+                completed++;
+            } catch (TimeoutException e) {
+                future.cancel(true);
+                commentary = PENDING_COMMENTARY;
+            } catch (ExecutionException e) {
+                LOG.errorf(e.getCause(), "Failed to generate commentary for asset %s", asset.name());
+                commentary = FAILED_COMMENTARY;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                futures.forEach(f -> f.cancel(true));
+                commentary = PENDING_COMMENTARY;
+            }
+            enriched.add(asset.withLlmCommentary(commentary));
+        }
+
+        var duration = System.currentTimeMillis() - startTime;
+        LOG.infof("Enriched %d/%d results in %d ms", completed, results.size(), duration);
+        return enriched;
+    }
+
+    private String analyzeWithPermit(AssetSearchDTO asset, Function<AssetSearchDTO, String> analyzer)
+            throws InterruptedException {
+        permits.acquire();
+        try {
+            var analysis = analyzer.apply(asset);
+            LOG.debugf("Generated commentary for asset %s: %s", asset.name(), analysis);
+            return analysis;
+        } finally {
+            permits.release();
+        }
+    }
+}
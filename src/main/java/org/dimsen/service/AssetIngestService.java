@@ -0,0 +1,479 @@
+package org.dimsen.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import org.dimsen.constant.AppConstant;
+import org.dimsen.dto.AssetIngestRecord;
+import org.dimsen.dto.AssetIngestResult;
+import org.dimsen.enums.IndexConsistencyMode;
+import org.dimsen.model.Asset;
+import org.dimsen.model.AssetConditionHistory;
+import org.dimsen.model.AssetLocationHistory;
+import org.dimsen.model.Brand;
+import org.dimsen.model.Category;
+import org.dimsen.model.Issue;
+import org.dimsen.model.SubCategory;
+import org.dimsen.model.Type;
+import org.dimsen.model.base.BaseEntity;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bulk ingest of assets with their issues, location and condition history from NDJSON or CSV.
+ * <p>
+ * The input is streamed and cut into chunks of {@code asset.ingest.chunk-size} valid
+ * records. Every chunk is written in its own transaction: ids come from the pooled
+ * sequence, inserts are JDBC batched ({@code quarkus.hibernate-orm.jdbc.statement-batch-size})
+ * and the persistence context is flushed and cleared once per chunk. The chunk's writes
+ * bypass the write-behind queue; once committed, the chunk is indexed with one indexing
+ * plan (Elasticsearch bulk requests) on a background thread while the next chunk is
+ * written. At most one chunk is being indexed at a time, so a slow cluster slows the
+ * ingest down instead of piling up documents in memory. The caller's
+ * {@link IndexConsistencyMode} decides whether the ingest returns once the last chunk is
+ * committed, once it is indexed, or once the indexes are also refreshed.
+ * <p>
+ * Invalid records are skipped and reported with their line number; a chunk that fails to
+ * commit is rejected as a whole and the ingest continues with the next one. Documents of a
+ * chunk that fails to index are handed to the write-behind queue, which retries them.
+ * <p>
+ * CSV rows hold the asset fields of {@link AssetIngestRecord} by header name, plus optional
+ * {@code condition}, {@code conditionNotes}, {@code location}, {@code building}, {@code floor}
+ * and {@code room} columns recorded as one history entry each. Issues need NDJSON.
+ */
+@ApplicationScoped
+public class AssetIngestService {
+
+    private static final Logger LOG = Logger.getLogger(AssetIngestService.class);
+
+    public enum Format { NDJSON, CSV }
+
+    @Inject
+    EntityManager em;
+
+    @Inject
+    IndexSyncQueue indexSyncQueue;
+
+    @Inject
+    ObjectMapper objectMapper;
+
+    @Inject
+    MeterRegistry registry;
+
+    @ConfigProperty(name = "asset.ingest.chunk-size", defaultValue = "1000")
+    int chunkSize;
+
+    @ConfigProperty(name = "asset.ingest.max-errors", defaultValue = "100")
+    int maxErrors;
+
+    private ExecutorService indexer;
+    private Counter committed;
+    private Counter rejectedCounter;
+    private Timer persistTimer;
+    private Timer indexTimer;
+
+    private record ParsedRecord(long line, AssetIngestRecord record) {}
+
+    private record ChunkResult(List<IndexSyncQueue.DocumentRef> documents, long issues, long locations, long conditions) {}
+
+    /**
+     * Ids of the reference data, by lowercased name
+     */
+    private record References(Map<String, Long> brands, Map<String, Long> categories,
+                              Map<String, Long> types, Map<String, Long> subCategories) {}
+
+    /**
+     * Counters of a running ingest
+     */
+    private final class Progress {
+        long assets;
+        long issues;
+        long locations;
+        long conditions;
+        long rejected;
+        final List<String> errors = new ArrayList<>();
+        final Set<Class<? extends BaseEntity>> indexedTypes = new HashSet<>();
+
+        void reject(long line, String reason) {
+            rejected++;
+            rejectedCounter.increment();
+            if (errors.size() < maxErrors) {
+                errors.add("line " + line + ": " + reason);
+            }
+        }
+    }
+
+    @PostConstruct
+    void init() {
+        indexer = Executors.newVirtualThreadPerTaskExecutor();
+        committed = registry.counter("asset.ingest.records", "result", "committed");
+        rejectedCounter = registry.counter("asset.ingest.records", "result", "rejected");
+        persistTimer = registry.timer("asset.ingest.chunk.duration", "phase", "persist");
+        indexTimer = registry.timer("asset.ingest.chunk.duration", "phase", "index");
+    }
+
+    @PreDestroy
+    void shutdown() {
+        indexer.shutdownNow();
+    }
+
+    /**
+     * Ingests every record of the input
+     * @param input NDJSON, one {@link AssetIngestRecord} per line, or CSV with a header line
+     * @param consistency How long to wait for the last chunk's documents
+     * @return Counts of committed entities and rejected records
+     */
+    public AssetIngestResult ingest(InputStream input, Format format, IndexConsistencyMode consistency)
+            throws IOException, InterruptedException {
+        var startTime = System.currentTimeMillis();
+        var references = loadReferences();
+        var progress = new Progress();
+
+        var reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        List<String> header = null;
+        List<ParsedRecord> chunk = new ArrayList<>(chunkSize);
+        Future<?> indexing = null;
+        long lineNumber = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            if (format == Format.CSV && header == null) {
+                header = splitCsv(line);
+                continue;
+            }
+
+            AssetIngestRecord record;
+            try {
+                record = format == Format.CSV ? parseCsv(header, splitCsv(line)) : objectMapper.readValue(line, AssetIngestRecord.class);
+            } catch (IOException | RuntimeException e) {
+                progress.reject(lineNumber, "unreadable record: " + e.getMessage());
+                continue;
+            }
+            var invalid = validate(record, references);
+            if (invalid != null) {
+                progress.reject(lineNumber, invalid);
+                continue;
+            }
+
+            chunk.add(new ParsedRecord(lineNumber, record));
+            if (chunk.size() >= chunkSize) {
+                indexing = writeChunk(chunk, references, progress, indexing);
+                chunk = new ArrayList<>(chunkSize);
+            }
+        }
+        if (!chunk.isEmpty()) {
+            indexing = writeChunk(chunk, references, progress, indexing);
+        }
+        if (consistency != IndexConsistencyMode.NONE) {
+            await(indexing, progress);
+        }
+        if (consistency == IndexConsistencyMode.READ_SYNC && !progress.indexedTypes.isEmpty()) {
+            indexSyncQueue.refresh(progress.indexedTypes);
+        }
+
+        var duration = System.currentTimeMillis() - startTime;
+        var rate = duration > 0 ? progress.assets * 1000d / duration : progress.assets;
+        LOG.infof("Ingested %d assets (%d issues, %d locations, %d conditions) in %d ms (%.0f assets/s), %d records rejected",
+                  progress.assets, progress.issues, progress.locations, progress.conditions, duration, rate, progress.rejected);
+        return new AssetIngestResult(progress.assets, progress.issues, progress.locations, progress.conditions,
+                progress.rejected, progress.errors, duration, rate);
+    }
+
+    /**
+     * Commits a chunk, then hands it to the indexer once the previous chunk is indexed
+     * @return The indexing of this chunk
+     */
+    private Future<?> writeChunk(List<ParsedRecord> chunk, References references, Progress progress,
+                                 Future<?> previousIndexing) throws InterruptedException {
+        ChunkResult result;
+        var startTime = System.nanoTime();
+        try {
+            result = indexSyncQueue.withoutRecording(
+                    () -> QuarkusTransaction.requiringNew().call(() -> persistChunk(chunk, references)));
+        } catch (Exception e) {
+            var first = chunk.get(0).line();
+            var last = chunk.get(chunk.size() - 1).line();
+            LOG.errorf(e, "Failed to commit ingest chunk of lines %d-%d: %s", first, last, e.getMessage());
+            for (var record : chunk) {
+                progress.reject(record.line(), "chunk of lines " + first + "-" + last + " failed to commit: " + e.getMessage());
+            }
+            return previousIndexing;
+        } finally {
+            persistTimer.record(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+        }
+
+        progress.assets += chunk.size();
+        progress.issues += result.issues();
+        progress.locations += result.locations();
+        progress.conditions += result.conditions();
+        committed.increment(chunk.size());
+
+        await(previousIndexing, progress);
+        var documents = result.documents();
+        documents.forEach(document -> progress.indexedTypes.add(document.type()));
+        return indexer.submit(() -> indexTimer.record(() -> {
+            try {
+                indexSyncQueue.index(documents);
+            } catch (RuntimeException e) {
+                LOG.errorf(e, "Failed to index ingest chunk of %d documents, queued for retry: %s",
+                           documents.size(), e.getMessage());
+                indexSyncQueue.submit(documents, IndexConsistencyMode.NONE);
+                throw e;
+            }
+        }));
+    }
+
+    private void await(Future<?> indexing, Progress progress) throws InterruptedException {
+        if (indexing == null) {
+            return;
+        }
+        try {
+            indexing.get();
+        } catch (ExecutionException e) {
+            if (progress.errors.size() < maxErrors) {
+                progress.errors.add("indexing failed, retried in the background: " + e.getCause().getMessage());
+            }
+        }
+    }
+
+    private ChunkResult persistChunk(List<ParsedRecord> chunk, References references) {
+        List<Asset> assets = new ArrayList<>(chunk.size());
+        long issues = 0;
+        long locations = 0;
+        long conditions = 0;
+        for (var parsed : chunk) {
+            var asset = toAsset(parsed.record(), references);
+            em.persist(asset);
+            assets.add(asset);
+            issues += asset.getIssues().size();
+            locations += asset.getLocationHistory().size();
+            conditions += asset.getConditionHistory().size();
+        }
+        em.flush();
+
+        List<IndexSyncQueue.DocumentRef> documents = new ArrayList<>();
+        for (var asset : assets) {
+            documents.add(new IndexSyncQueue.DocumentRef(Asset.class, asset.getId()));
+            asset.getIssues().forEach(issue -> documents.add(new IndexSyncQueue.DocumentRef(Issue.class, issue.getId())));
+            asset.getLocationHistory().forEach(history ->
+                    documents.add(new IndexSyncQueue.DocumentRef(AssetLocationHistory.class, history.getId())));
+            asset.getConditionHistory().forEach(history ->
+                    documents.add(new IndexSyncQueue.DocumentRef(AssetConditionHistory.class, history.getId())));
+        }
+        em.clear();
+        return new ChunkResult(documents, issues, locations, conditions);
+    }
+
+    private Asset toAsset(AssetIngestRecord record, References references) {
+        var now = LocalDateTime.now();
+        var asset = new Asset();
+        asset.setName(record.name());
+        asset.setSerialNumber(record.serialNumber());
+        asset.setBrand(em.getReference(Brand.class, references.brands().get(key(record.brand()))));
+        asset.setCategory(em.getReference(Category.class, references.categories().get(key(record.category()))));
+        asset.setType(em.getReference(Type.class, references.types().get(key(record.type()))));
+        if (record.subCategory() != null && !record.subCategory().isBlank()) {
+            asset.setSubCategory(em.getReference(SubCategory.class, references.subCategories().get(key(record.subCategory()))));
+        }
+        asset.setPurchaseDate(record.purchaseDate());
+        asset.setPurchasePrice(record.purchasePrice());
+        asset.setDescription(record.description());
+        asset.setStatus(record.status());
+
+        if (record.issues() != null) {
+            for (var source : record.issues()) {
+                var issue = new Issue();
+                issue.setAsset(asset);
+                issue.setTitle(source.title());
+                issue.setDescription(source.description());
+                issue.setPriority(source.priority().toUpperCase(Locale.ROOT));
+                issue.setStatus(source.status().toUpperCase(Locale.ROOT));
+                issue.setResolution(source.resolution());
+                issue.setReportedAt(source.reportedAt() != null ? source.reportedAt() : now);
+                issue.setReportedBy(source.reportedBy() != null ? source.reportedBy() : AppConstant.SYSTEM);
+                asset.getIssues().add(issue);
+            }
+        }
+        if (record.locationHistory() != null) {
+            for (var source : record.locationHistory()) {
+                var history = new AssetLocationHistory();
+                history.setAsset(asset);
+                history.setLocation(source.location());
+                history.setBuilding(source.building());
+                history.setFloor(source.floor());
+                history.setRoom(source.room());
+                history.setNotes(source.notes());
+                history.setMovedAt(source.movedAt() != null ? source.movedAt() : now);
+                history.setMovedBy(source.movedBy() != null ? source.movedBy() : AppConstant.SYSTEM);
+                asset.getLocationHistory().add(history);
+            }
+        }
+        if (record.conditionHistory() != null) {
+            for (var source : record.conditionHistory()) {
+                var history = new AssetConditionHistory();
+                history.setAsset(asset);
+                history.setCondition(source.condition());
+                history.setNotes(source.notes() != null ? source.notes() : "");
+                history.setRecordedAt(source.recordedAt() != null ? source.recordedAt() : now);
+                history.setRecordedBy(source.recordedBy() != null ? source.recordedBy() : AppConstant.SYSTEM);
+                asset.getConditionHistory().add(history);
+            }
+        }
+        return asset;
+    }
+
+    /**
+     * @return Why the record cannot be ingested, {@code null} when it is valid
+     */
+    private static String validate(AssetIngestRecord record, References references) {
+        if (isBlank(record.name()) || isBlank(record.serialNumber()) || isBlank(record.status())
+                || record.purchaseDate() == null || record.purchasePrice() == null) {
+            return "name, serialNumber, status, purchaseDate and purchasePrice are required";
+        }
+        if (!references.brands().containsKey(key(record.brand()))) {
+            return "unknown brand: " + record.brand();
+        }
+        if (!references.categories().containsKey(key(record.category()))) {
+            return "unknown category: " + record.category();
+        }
+        if (!references.types().containsKey(key(record.type()))) {
+            return "unknown type: " + record.type();
+        }
+        if (!isBlank(record.subCategory()) && !references.subCategories().containsKey(key(record.subCategory()))) {
+            return "unknown sub-category: " + record.subCategory();
+        }
+        if (record.issues() != null && record.issues().stream().anyMatch(issue -> issue == null
+                || isBlank(issue.title()) || isBlank(issue.description()) || isBlank(issue.priority()) || isBlank(issue.status()))) {
+            return "issues require title, description, priority and status";
+        }
+        if (record.locationHistory() != null && record.locationHistory().stream().anyMatch(location -> location == null
+                || isBlank(location.location()) || isBlank(location.building()) || isBlank(location.floor()) || isBlank(location.room()))) {
+            return "location history entries require location, building, floor and room";
+        }
+        if (record.conditionHistory() != null && record.conditionHistory().stream().anyMatch(condition -> condition == null
+                || isBlank(condition.condition()))) {
+            return "condition history entries require condition";
+        }
+        return null;
+    }
+
+    private References loadReferences() {
+        return QuarkusTransaction.requiringNew().call(() -> new References(
+                ids(Brand.class), ids(Category.class), ids(Type.class), ids(SubCategory.class)));
+    }
+
+    private Map<String, Long> ids(Class<? extends BaseEntity> type) {
+        Map<String, Long> ids = new HashMap<>();
+        em.createQuery("select e.id, e.name from " + type.getSimpleName() + " e where e.isDeleted = false", Object[].class)
+                .getResultList()
+                .forEach(row -> ids.putIfAbsent(key((String) row[1]), (Long) row[0]));
+        return ids;
+    }
+
+    private static AssetIngestRecord parseCsv(List<String> header, List<String> values) {
+        Map<String, String> row = new HashMap<>();
+        for (int i = 0; i < header.size() && i < values.size(); i++) {
+            var value = values.get(i).strip();
+            if (!value.isEmpty()) {
+                row.put(header.get(i).strip(), value);
+            }
+        }
+
+        List<AssetIngestRecord.ConditionRecord> conditions = row.containsKey("condition")
+                ? List.of(new AssetIngestRecord.ConditionRecord(row.get("condition"), row.get("conditionNotes"), null, null))
+                : List.of();
+        List<AssetIngestRecord.LocationRecord> locations = row.containsKey("location")
+                ? List.of(new AssetIngestRecord.LocationRecord(row.get("location"), row.get("building"),
+                        row.get("floor"), row.get("room"), null, null, null))
+                : List.of();
+        var price = row.get("purchasePrice");
+        return new AssetIngestRecord(row.get("name"), row.get("serialNumber"), row.get("brand"), row.get("category"),
+                row.get("type"), row.get("subCategory"), parseDate(row.get("purchaseDate")),
+                price != null ? Double.valueOf(price) : null, row.get("description"), row.get("status"),
+                List.of(), locations, conditions);
+    }
+
+    /**
+     * @return A date time, or the start of the day of a date
+     */
+    private static LocalDateTime parseDate(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return LocalDateTime.parse(value);
+        } catch (DateTimeParseException e) {
+            return LocalDate.parse(value).atStartOfDay();
+        }
+    }
+
+    /**
+     * Splits a CSV line (RFC 4180 quoting, quoted values must not span lines)
+     */
+    private static List<String> splitCsv(String line) {
+        List<String> values = new ArrayList<>();
+        var value = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    value.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    value.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(value.toString());
+                value.setLength(0);
+            } else {
+                value.append(c);
+            }
+        }
+        values.add(value.toString());
+        return values;
+    }
+
+    private static String key(String name) {
+        return name != null ? name.strip().toLowerCase(Locale.ROOT) : "";
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+}
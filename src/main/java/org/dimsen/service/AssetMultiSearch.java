@@ -0,0 +1,187 @@
+package org.dimsen.service;
+
+import io.quarkus.arc.Arc;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.dimsen.dto.AssetIssueSearchRequest;
+import org.dimsen.dto.AssetSearchDTO;
+import org.dimsen.dto.CompoundSearchRequest;
+import org.dimsen.dto.MultiSearchRequest;
+import org.dimsen.dto.MultiSearchResult;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Runs a batch of asset searches concurrently on virtual threads.
+ * <p>
+ * Hibernate Search has no multi-search API, so every query is sent as its own
+ * Elasticsearch request; running them in parallel makes the batch take about as long
+ * as its slowest query instead of the sum of all of them. Each query runs in its own
+ * request context, with its own Hibernate and search session, and goes through the same
+ * service methods (and result cache) as the single search endpoints, without LLM
+ * enrichment. At most {@code asset.search.multi.parallelism} queries are in flight
+ * across the application. A query that fails or is still running when
+ * {@code asset.search.multi.deadline} expires is reported in its own result and does
+ * not affect the others.
+ */
+@ApplicationScoped
+public class AssetMultiSearch {
+
+    private static final Logger LOG = Logger.getLogger(AssetMultiSearch.class);
+
+    @Inject
+    AssetSearchService searchService;
+
+    @ConfigProperty(name = "asset.search.multi.max-queries", defaultValue = "100")
+    int maxQueries;
+
+    @ConfigProperty(name = "asset.search.multi.parallelism", defaultValue = "8")
+    int parallelism;
+
+    @ConfigProperty(name = "asset.search.multi.deadline", defaultValue = "30s")
+    Duration deadline;
+
+    private ExecutorService executor;
+    private Semaphore permits;
+
+    @PostConstruct
+    void init() {
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        permits = new Semaphore(Math.max(1, parallelism), true);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Executes every query of the batch
+     * @param tenant Tenant of the caller
+     * @return One result per query, in request order
+     * @throws IllegalArgumentException When the batch is empty or larger than {@code asset.search.multi.max-queries}
+     */
+    public MultiSearchResult search(String tenant, MultiSearchRequest request) {
+        var queries = request.queries();
+        if (queries == null || queries.isEmpty()) {
+            throw new IllegalArgumentException("At least one query is required");
+        }
+        if (queries.size() > maxQueries) {
+            throw new IllegalArgumentException("At most " + maxQueries + " queries are allowed per request");
+        }
+
+        var startTime = System.currentTimeMillis();
+        var deadlineAt = System.nanoTime() + deadline.toNanos();
+
+        List<Future<MultiSearchResult.QueryResult>> futures = new ArrayList<>(queries.size());
+        for (int i = 0; i < queries.size(); i++) {
+            var query = queries.get(i);
+            var id = query.id() != null ? query.id() : String.valueOf(i);
+            futures.add(executor.submit(() -> runWithPermit(tenant, id, query)));
+        }
+
+        List<MultiSearchResult.QueryResult> results = new ArrayList<>(queries.size());
+        int failed = 0;
+        for (int i = 0; i < queries.size(); i++) {
+            var query = queries.get(i);
+            var id = query.id() != null ? query.id() : String.valueOf(i);
+            var future = futures.get(i);
+            MultiSearchResult.QueryResult result;
+            try {
+                var remaining = Math.max(0, deadlineAt - System.nanoTime());
+                result = future.get(remaining, TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                future.cancel(true);
+                result = new MultiSearchResult.QueryResult(id, "timeout", List.of(), deadline.toMillis(),
+                        "Query did not complete within " + deadline);
+            } catch (ExecutionException e) {
+                // runWithPermit reports its own failures, this only covers the executor
+                result = new MultiSearchResult.QueryResult(id, "error", List.of(), 0, e.getCause().getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                futures.forEach(f -> f.cancel(true));
+                result = new MultiSearchResult.QueryResult(id, "timeout", List.of(), 0, "Request was interrupted");
+            }
+            if (!"ok".equals(result.status())) {
+                failed++;
+            }
+            results.add(result);
+        }
+
+        var duration = System.currentTimeMillis() - startTime;
+        LOG.infof("Multi-search of %d queries completed in %d ms, %d failed", queries.size(), duration, failed);
+        return new MultiSearchResult(results, duration);
+    }
+
+    private MultiSearchResult.QueryResult runWithPermit(String tenant, String id, MultiSearchRequest.Query query)
+            throws InterruptedException {
+        permits.acquire();
+        var requestContext = Arc.container().requestContext();
+        requestContext.activate();
+        var startTime = System.currentTimeMillis();
+        try {
+            var hits = run(tenant, query);
+            return new MultiSearchResult.QueryResult(id, "ok", hits, System.currentTimeMillis() - startTime, null);
+        } catch (Exception e) {
+            if (e instanceof IllegalArgumentException) {
+                LOG.warnf("Multi-search query %s rejected: %s", id, e.getMessage());
+            } else {
+                LOG.errorf(e, "Multi-search query %s failed: %s", id, e.getMessage());
+            }
+            return new MultiSearchResult.QueryResult(id, "error", List.of(), System.currentTimeMillis() - startTime,
+                    e.getMessage());
+        } finally {
+            requestContext.terminate();
+            permits.release();
+        }
+    }
+
+    private List<AssetSearchDTO> run(String tenant, MultiSearchRequest.Query query) {
+        var limit = query.limit() != null ? query.limit() : 20;
+        if (limit < 1) {
+            throw new IllegalArgumentException("limit must be positive");
+        }
+        if (query.type() == null) {
+            throw new IllegalArgumentException("Query type is required");
+        }
+
+        return switch (query.type()) {
+            case "fuzzy-name" -> searchService.fuzzyNameSearch(tenant, requireText(query), query.maxEdits(), limit);
+            case "multi-field" -> searchService.multiFieldSearch(tenant, requireText(query), limit);
+            case "compound" -> searchService.compoundSearchHits(
+                    new CompoundSearchRequest(query.query(), query.filters(), limit));
+            case "issues" -> {
+                if (query.issueSearchCriteria() == null) {
+                    throw new IllegalArgumentException("Issue search criteria is required");
+                }
+                var results = searchService.searchByIssues(new AssetIssueSearchRequest(
+                        query.query(), query.filters(), query.issueSearchCriteria(), false, limit));
+                if (results == null) {
+                    throw new IllegalStateException("Issue search failed");
+                }
+                yield results;
+            }
+            default -> throw new IllegalArgumentException("Unknown query type: " + query.type());
+        };
+    }
+
+    private static String requireText(MultiSearchRequest.Query query) {
+        if (query.query() == null || query.query().isBlank()) {
+            throw new IllegalArgumentException("Query text is required for " + query.type() + " searches");
+        }
+        return query.query();
+    }
+}
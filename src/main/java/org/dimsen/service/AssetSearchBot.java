@@ -3,11 +3,19 @@ package org.dimsen.service;
 import dev.langchain4j.service.SystemMessage;
 import dev.langchain4j.service.UserMessage;
 import io.quarkiverse.langchain4j.RegisterAiService;
+import io.smallrye.mutiny.Multi;
+import jakarta.enterprise.context.ApplicationScoped;
 
-@RegisterAiService
+/**
+ * Stateless analyst bot. Application scoped and without chat memory so that it can be
+ * called concurrently from {@link AssetEnrichmentExecutor} virtual threads, outside of
+ * any request context, without commentary for one asset leaking into the next.
+ */
+@RegisterAiService(chatMemoryProviderSupplier = RegisterAiService.NoChatMemoryProviderSupplier.class)
+@ApplicationScoped
 public interface AssetSearchBot {
     
-    @SystemMessage("""
+    String ASSET_ANALYST_PROMPT = """
             You are an expert IT asset management analyst. When analyzing assets, provide detailed insights that cover:
             1. Current Status: Device type, usage state, and general categorization
             2. Technical Analysis: Key specifications and capabilities
@@ -17,9 +25,29 @@ public interface AssetSearchBot {
             Format your response as a cohesive, multi-paragraph analysis that flows naturally.
             Focus on practical insights that would be valuable for IT managers and asset administrators.
             Keep the tone professional but accessible.
-            """)
+            """;
+
+    @SystemMessage(ASSET_ANALYST_PROMPT)
     String analyzeSearchResults(@UserMessage String context);
 
+    /**
+     * Same analysis as {@link #analyzeSearchResults(String)}, streamed token by token
+     */
+    @SystemMessage(ASSET_ANALYST_PROMPT)
+    Multi<String> streamSearchResults(@UserMessage String context);
+
+    @SystemMessage("""
+            You are an expert IT asset management analyst. You will receive several IT assets, each introduced
+            by an "Asset ID:" line. For every asset write a short analysis (2-4 sentences) covering its current status,
+            technical capabilities, business suitability and lifecycle management considerations.
+
+            Respond with a single JSON object and nothing else. Use each asset ID exactly as given as a key and
+            the analysis text as the string value, for example:
+            {"12": "analysis of asset 12", "15": "analysis of asset 15"}
+            Do not add commentary before or after the JSON object.
+            """)
+    String analyzeSearchResultsBatch(@UserMessage String contexts);
+
     @SystemMessage("""
             You are an IT issue analyst. Based on the following asset metadata, provide a concise 2–3 sentence analysis focusing on:
             1. The current issue status and priority level based on its usage and type.
@@ -27,4 +55,22 @@ public interface AssetSearchBot {
             Keep the tone professional, clear, and actionable.
             """)
     String analyzeIssueSearchResults(@UserMessage String context);
+
+    /**
+     * Fallback of {@link QueryUnderstanding} for queries its rules cannot parse
+     */
+    @SystemMessage("""
+            You convert a natural language search for IT assets into search filters. You will receive today's date,
+            the known brand, type, category, status and condition values of the catalog, and the query.
+
+            Respond with a single JSON object and nothing else, using only these keys and omitting the ones the query
+            does not express:
+            "brand", "type", "category", "status", "condition": one of the known values, spelled exactly as given
+            "minPrice", "maxPrice": purchase price bounds in dollars, as numbers ("cheap" means under 500)
+            "purchasedAfter", "purchasedBefore": purchase date bounds as yyyy-MM-dd, relative to today
+            "text": remaining keywords that are none of the above, e.g. model names
+            For example: {"type": "Laptop", "maxPrice": 1000, "purchasedAfter": "2023-01-01"}
+            Do not add commentary before or after the JSON object.
+            """)
+    String extractSearchFilters(@UserMessage String request);
 } 
\ No newline at end of file
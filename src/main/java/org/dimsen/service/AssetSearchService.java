@@ -1,20 +1,49 @@
 package org.dimsen.service;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
+import io.smallrye.mutiny.Multi;
 import jakarta.persistence.EntityManager;
+import jakarta.transaction.Transactional;
 import org.dimsen.dto.AssetSearchDTO;
+import org.dimsen.dto.AssetSuggestion;
+import org.dimsen.dto.CompoundSearchEvent;
 import org.dimsen.dto.CompoundSearchRequest;
+import org.dimsen.dto.FacetSearchRequest;
+import org.dimsen.dto.FacetSearchResult;
+import org.dimsen.dto.SearchPage;
 import org.dimsen.dto.AssetIssueSearchRequest;
+import org.dimsen.enums.IssuePriority;
 import org.dimsen.model.Asset;
+import org.eclipse.microprofile.config.Config;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.hibernate.graph.GraphSemantic;
+import org.hibernate.search.backend.elasticsearch.ElasticsearchExtension;
+import org.hibernate.search.engine.search.aggregation.AggregationKey;
+import org.hibernate.search.engine.search.predicate.dsl.PredicateFinalStep;
+import org.hibernate.search.engine.search.projection.dsl.ProjectionFinalStep;
+import org.hibernate.search.engine.search.projection.dsl.SearchProjectionFactory;
 import org.hibernate.search.mapper.orm.Search;
 import org.hibernate.search.mapper.orm.session.SearchSession;
 import org.hibernate.search.engine.search.predicate.dsl.SearchPredicateFactory;
+import org.hibernate.search.util.common.data.Range;
 import org.jboss.logging.Logger;
 
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.function.Function;
 
 @ApplicationScoped
 public class AssetSearchService {
@@ -27,73 +56,388 @@ public class AssetSearchService {
     @Inject
     AssetSearchBot searchBot;
 
+    @Inject
+    IndexFreshnessTracker freshnessTracker;
+
+    @Inject
+    AssetEnrichmentExecutor enrichmentExecutor;
+
+    @Inject
+    CommentaryCache commentaryCache;
+
+    @Inject
+    AssetEmbeddingService embeddingService;
+
+    @Inject
+    ObjectMapper objectMapper;
+
+    @Inject
+    SearchPagination pagination;
+
+    @Inject
+    SearchResultCache resultCache;
+
+    @Inject
+    QueryUnderstanding queryUnderstanding;
+
+    @ConfigProperty(name = "asset.enrichment.batch.enabled", defaultValue = "true")
+    boolean batchEnrichmentEnabled;
+
+    @ConfigProperty(name = "asset.search.hybrid.fusion", defaultValue = "rrf")
+    String hybridFusion;
+
+    @ConfigProperty(name = "asset.search.hybrid.window", defaultValue = "50")
+    int hybridWindow;
+
+    @ConfigProperty(name = "asset.search.projection.enabled", defaultValue = "true")
+    boolean projectionEnabled;
+
+    @ConfigProperty(name = "asset.search.facets.max-terms", defaultValue = "20")
+    int facetMaxTerms;
+
+    @ConfigProperty(name = "asset.search.facets.price-ranges", defaultValue = "500,1000,2500,5000")
+    List<Double> priceFacetBounds;
+
+    @ConfigProperty(name = "asset.search.facets.purchase-age-years", defaultValue = "1,3,5")
+    List<Integer> purchaseAgeFacetYears;
+
+    @Inject
+    Config config;
+
     /**
      * Performs a fuzzy search on asset names with typo tolerance
+     * @param tenant Tenant of the caller, part of the result cache key
      * @param nameQuery The approximate name to search for
      * @param maxEdits Maximum number of character edits allowed (default: 2)
      * @param limit Maximum number of results to return
      * @return List of assets with similar names
      */
-    public List<AssetSearchDTO> fuzzyNameSearch(String nameQuery, Integer maxEdits, int limit) {
+    public List<AssetSearchDTO> fuzzyNameSearch(String tenant, String nameQuery, Integer maxEdits, int limit) {
+        var edits = maxEdits != null ? maxEdits : 2;
+        var key = resultCache.key(tenant, "fuzzy-name", nameQuery, edits, limit);
+        return resultCache.get(key, () -> fuzzyNameSearchHits(nameQuery, edits, limit));
+    }
+
+    private List<AssetSearchDTO> fuzzyNameSearchHits(String nameQuery, int maxEdits, int limit) {
         LOG.infof("Starting fuzzy name search with query='%s', maxEdits=%d, limit=%d", 
-                  nameQuery, maxEdits != null ? maxEdits : 2, limit);
+                  nameQuery, maxEdits, limit);
         
         SearchSession searchSession = Search.session(em);
         
         var startTime = System.currentTimeMillis();
         var results = searchSession.search(Asset.class)
+                .select(f -> assetProjection(f, "fuzzy-name"))
                 .where(f -> f.match()
                         .field("name")
                         .matching(nameQuery)
-                        .fuzzy(maxEdits != null ? maxEdits : 2))
+                        .fuzzy(maxEdits))
                 .sort(f -> f.score())
+                .loading(o -> o.graph(Asset.SEARCH_HIT_GRAPH, GraphSemantic.FETCH))
                 .fetchHits(limit);
         
         var duration = System.currentTimeMillis() - startTime;
         LOG.infof("Fuzzy name search completed in %d ms, found %d results", 
                   duration, results.size());
         
-        return results.stream()
-                .map(this::mapToDTO)
-                .collect(Collectors.toList());
+        return results;
     }
 
     /**
      * Performs a full-text search across multiple fields (name, description, and brand.name)
+     * @param tenant Tenant of the caller, part of the result cache key
      * @param searchTerm The term to search for across fields
      * @param limit Maximum number of results to return
      * @return List of assets matching the search term
      */
-    public List<AssetSearchDTO> multiFieldSearch(String searchTerm, int limit) {
+    public List<AssetSearchDTO> multiFieldSearch(String tenant, String searchTerm, int limit) {
+        var key = resultCache.key(tenant, "multi-field", searchTerm, 0, limit);
+        return resultCache.get(key, () -> multiFieldSearchHits(searchTerm, limit));
+    }
+
+    private List<AssetSearchDTO> multiFieldSearchHits(String searchTerm, int limit) {
         LOG.infof("Starting multi-field search with term='%s', limit=%d", searchTerm, limit);
         
         SearchSession searchSession = Search.session(em);
         
         var startTime = System.currentTimeMillis();
         var result = searchSession.search(Asset.class)
-                .where(f -> f.bool()
-                        .should(f.match()
-                                .field("name").boost(2.0f)
-                                .field("description")
-                                .field("brand.name")
-                                .field("brand.description")
-                                .matching(searchTerm))
-                        .should(f.phrase()
-                                .field("name").boost(3.0f)
-                                .field("description")
-                                .field("brand.name")
-                                .field("brand.description")
-                                .matching(searchTerm)))
+                .select(f -> assetProjection(f, "multi-field"))
+                .where(f -> multiFieldPredicate(f, searchTerm))
                 .sort(f -> f.score())
+                .loading(o -> o.graph(Asset.SEARCH_HIT_GRAPH, GraphSemantic.FETCH))
                 .fetchHits(limit);
         
         var duration = System.currentTimeMillis() - startTime;
         LOG.infof("Multi-field search completed in %d ms, found %d results", 
                   duration, result.size());
         
-        return result.stream()
-                .map(this::mapToDTO)
-                .collect(Collectors.toList());
+        return result;
+    }
+
+    /**
+     * Typeahead over asset names (prefixes of every word) and serial numbers (prefix of the
+     * whole value), backed by the edge n-gram fields of the assets index. Suggestions are
+     * projected from the index, nothing is loaded from the database and hits are only
+     * counted up to the limit.
+     * @param text Text typed so far
+     * @param limit Maximum number of suggestions
+     * @return Suggestions in score order
+     */
+    public List<AssetSuggestion> suggest(String text, int limit) {
+        var startTime = System.nanoTime();
+        var result = Search.session(em).search(Asset.class)
+                .select(f -> f.composite()
+                        .from(f.id(Long.class),
+                              f.field("name", String.class),
+                              f.field("serialNumber", String.class))
+                        .as((id, name, serialNumber) -> new AssetSuggestion(String.valueOf(id), name, serialNumber)))
+                .where(f -> suggestPredicate(f, text.strip()))
+                .totalHitCountThreshold(limit)
+                .fetchHits(limit);
+        
+        LOG.debugf("Suggest for '%s' completed in %.2f ms, found %d results",
+                   text, (System.nanoTime() - startTime) / 1e6, result.size());
+        return result;
+    }
+
+    private PredicateFinalStep suggestPredicate(SearchPredicateFactory f, String text) {
+        // Every typed word must be the prefix of a word of the name
+        var name = f.bool();
+        for (String word : text.split("\\s+")) {
+            name.must(f.match()
+                    .field("name_autocomplete")
+                    .matching(word));
+        }
+        return f.bool()
+                .should(name)
+                .should(f.match()
+                        .field("serialNumber_autocomplete")
+                        .matching(text));
+    }
+
+    /**
+     * Performs a semantic kNN search against the asset embeddings
+     * @param query Natural language query
+     * @param limit Maximum number of results to return
+     * @return Nearest assets in similarity order
+     */
+    public List<AssetSearchDTO> semanticSearch(String query, int limit) {
+        LOG.infof("Starting semantic search with query='%s', limit=%d", query, limit);
+        
+        var vector = embeddingService.embedQuery(query);
+        SearchSession searchSession = Search.session(em);
+        
+        var startTime = System.currentTimeMillis();
+        var result = searchSession.search(Asset.class)
+                .select(f -> assetProjection(f, "semantic"))
+                .where(f -> f.knn(limit)
+                        .field("embedding")
+                        .matching(vector))
+                .loading(o -> o.graph(Asset.SEARCH_HIT_GRAPH, GraphSemantic.FETCH))
+                .fetchHits(limit);
+        
+        var duration = System.currentTimeMillis() - startTime;
+        LOG.infof("Semantic search completed in %d ms, found %d results", 
+                  duration, result.size());
+        
+        return result;
+    }
+
+    /**
+     * Performs a hybrid search combining the multi-field BM25 query with kNN over the
+     * asset embeddings, in a single Elasticsearch request. With the default {@code rrf}
+     * fusion both rankings are merged by reciprocal rank fusion (Elasticsearch rrf
+     * retriever); {@code linear} sums the scores of both clauses instead.
+     * @param query Search text, used both lexically and semantically
+     * @param limit Maximum number of results to return
+     * @return Fused ranking of matching assets
+     */
+    public List<AssetSearchDTO> hybridSearch(String query, int limit) {
+        LOG.infof("Starting hybrid search with query='%s', limit=%d, fusion=%s", query, limit, hybridFusion);
+        
+        var vector = embeddingService.embedQuery(query);
+        SearchSession searchSession = Search.session(em);
+        
+        var startTime = System.currentTimeMillis();
+        List<AssetSearchDTO> result;
+        if ("linear".equalsIgnoreCase(hybridFusion)) {
+            result = searchSession.search(Asset.class)
+                    .select(f -> assetProjection(f, "hybrid"))
+                    .where(f -> f.bool()
+                            .should(multiFieldPredicate(f, query))
+                            .should(f.knn(limit)
+                                    .field("embedding")
+                                    .matching(vector)))
+                    .loading(o -> o.graph(Asset.SEARCH_HIT_GRAPH, GraphSemantic.FETCH))
+                    .fetchHits(limit);
+        } else {
+            result = searchSession.search(Asset.class)
+                    .extension(ElasticsearchExtension.get())
+                    .select(f -> assetProjection(f, "hybrid"))
+                    .where(f -> multiFieldPredicate(f, query))
+                    .requestTransformer(context -> toReciprocalRankFusion(context.body(), vector, limit))
+                    .loading(o -> o.graph(Asset.SEARCH_HIT_GRAPH, GraphSemantic.FETCH))
+                    .fetchHits(limit);
+        }
+        
+        var duration = System.currentTimeMillis() - startTime;
+        LOG.infof("Hybrid search completed in %d ms, found %d results", 
+                  duration, result.size());
+        
+        return result;
+    }
+
+    /**
+     * Cursor-paginated variant of {@link #fuzzyNameSearch(String, String, Integer, int)}
+     * @param tenant Tenant of the caller, the cursor is bound to it
+     * @param cursor Cursor of the previous page, {@code null} for the first page
+     */
+    public SearchPage<AssetSearchDTO> fuzzyNameSearchPage(String tenant, String nameQuery, Integer maxEdits,
+                                                          int size, String cursor) {
+        var edits = maxEdits != null ? maxEdits : 2;
+        return fetchPage("fuzzy-name", tenant, List.of(nameQuery, edits), cursor, size, f -> f.match()
+                .field("name")
+                .matching(nameQuery)
+                .fuzzy(edits));
+    }
+
+    /**
+     * Cursor-paginated variant of {@link #multiFieldSearch(String, String, int)}
+     * @param tenant Tenant of the caller, the cursor is bound to it
+     * @param cursor Cursor of the previous page, {@code null} for the first page
+     */
+    public SearchPage<AssetSearchDTO> multiFieldSearchPage(String tenant, String searchTerm, int size, String cursor) {
+        return fetchPage("multi-field", tenant, List.of(searchTerm), cursor, size,
+                f -> multiFieldPredicate(f, searchTerm));
+    }
+
+    /**
+     * Cursor-paginated variant of {@link #compoundSearch(CompoundSearchRequest)}; the limit
+     * of the request is the page size and only the hits of the page are enriched
+     * @param tenant Tenant of the caller, the cursor is bound to it
+     * @param cursor Cursor of the previous page, {@code null} for the first page
+     */
+    public SearchPage<AssetSearchDTO> compoundSearchPage(String tenant, CompoundSearchRequest request, String cursor) {
+        var filters = compoundFilters(request);
+        var page = fetchPage("compound", tenant, Arrays.asList(request.naturalLanguageQuery(), request.filters()),
+                cursor, request.limit() != null ? request.limit() : 20,
+                f -> createSearchPredicate(f, filters));
+
+        if (!page.items().isEmpty() && request.naturalLanguageQuery() != null && !request.naturalLanguageQuery().isBlank()) {
+            try {
+                return withItems(page, enhanceSearchResults(page.items(), request.naturalLanguageQuery()));
+            } catch (Exception e) {
+                LOG.error("Failed to enhance search results with LLM", e);
+            }
+        }
+        return page;
+    }
+
+    /**
+     * Cursor-paginated variant of {@link #searchByIssues(AssetIssueSearchRequest)}; the
+     * limit of the request is the page size and only the hits of the page are enriched
+     * @param tenant Tenant of the caller, the cursor is bound to it
+     * @param cursor Cursor of the previous page, {@code null} for the first page
+     */
+    public SearchPage<AssetSearchDTO> searchByIssuesPage(String tenant, AssetIssueSearchRequest request, String cursor) {
+        var requestKey = Arrays.asList(request.naturalLanguageQuery(), request.filters(), request.issueSearchCriteria());
+        var page = fetchPage("issues", tenant, requestKey, cursor, request.limit() != null ? request.limit() : 20,
+                f -> issueSearchPredicate(f, request));
+
+        if (request.enhanceWithLLM() && !page.items().isEmpty() &&
+            request.naturalLanguageQuery() != null && !request.naturalLanguageQuery().isBlank()) {
+            try {
+                return withItems(page, enhanceIssueSearchResults(page.items(), request));
+            } catch (Exception e) {
+                LOG.error("Failed to enhance issue search results with LLM", e);
+            }
+        }
+        return page;
+    }
+
+    /**
+     * Fetches one page sorted by score with the id as tiebreak, continuing after the
+     * position of the cursor inside its point in time
+     * @param request Query and filters the cursor is bound to, see {@link SearchPagination#start}
+     */
+    private SearchPage<AssetSearchDTO> fetchPage(String endpoint, String tenant, List<?> request, String cursorToken,
+                                                 int size, Function<SearchPredicateFactory, PredicateFinalStep> predicate) {
+        LOG.infof("Starting paged %s search, size=%d, continuation=%s", endpoint, size, cursorToken != null);
+        
+        var cursor = pagination.start(endpoint, tenant, request, cursorToken);
+        var startTime = System.currentTimeMillis();
+        var result = Search.session(em).search(Asset.class)
+                .extension(ElasticsearchExtension.get())
+                .select(f -> f.composite()
+                        .from(assetProjection(f, endpoint), f.jsonHit())
+                        .as((asset, hit) -> new SearchPagination.PageHit<>(asset, hit.getAsJsonArray("sort"))))
+                .where(f -> predicate.apply(f))
+                .sort(f -> f.score().then().field("id"))
+                .requestTransformer(context -> pagination.applyCursor(context, cursor))
+                .totalHitCountThreshold(pagination.totalHitsThreshold())
+                .loading(o -> o.graph(Asset.SEARCH_HIT_GRAPH, GraphSemantic.FETCH))
+                .fetch(size);
+        
+        var duration = System.currentTimeMillis() - startTime;
+        LOG.infof("Paged %s search completed in %d ms, found %d results", endpoint, duration, result.hits().size());
+        
+        return pagination.page(cursor, result, size);
+    }
+
+    private SearchPage<AssetSearchDTO> withItems(SearchPage<AssetSearchDTO> page, List<AssetSearchDTO> items) {
+        return new SearchPage<>(items, page.size(), page.totalHits(), page.totalHitsExact(), page.nextCursor());
+    }
+
+    private PredicateFinalStep multiFieldPredicate(SearchPredicateFactory f, String searchTerm) {
+        return f.bool()
+                .should(f.match()
+                        .field("name").boost(2.0f)
+                        .field("description")
+                        .field("brand.name")
+                        .field("brand.description")
+                        .matching(searchTerm))
+                .should(f.phrase()
+                        .field("name").boost(3.0f)
+                        .field("description")
+                        .field("brand.name")
+                        .field("brand.description")
+                        .matching(searchTerm));
+    }
+
+    /**
+     * Rewrites a lexical search request into an rrf retriever over the original query
+     * and a kNN retriever on the embedding field
+     */
+    private void toReciprocalRankFusion(JsonObject body, float[] vector, int limit) {
+        var lexicalQuery = body.remove("query");
+
+        JsonObject standard = new JsonObject();
+        JsonObject standardRetriever = new JsonObject();
+        standardRetriever.add("query", lexicalQuery);
+        standard.add("standard", standardRetriever);
+
+        JsonArray queryVector = new JsonArray(vector.length);
+        for (float value : vector) {
+            queryVector.add(value);
+        }
+        JsonObject knnRetriever = new JsonObject();
+        knnRetriever.addProperty("field", "embedding");
+        knnRetriever.add("query_vector", queryVector);
+        knnRetriever.addProperty("k", Math.max(limit, hybridWindow));
+        knnRetriever.addProperty("num_candidates", Math.max(limit, hybridWindow) * 2);
+        JsonObject knn = new JsonObject();
+        knn.add("knn", knnRetriever);
+
+        JsonArray retrievers = new JsonArray();
+        retrievers.add(standard);
+        retrievers.add(knn);
+        JsonObject rrf = new JsonObject();
+        rrf.add("retrievers", retrievers);
+        rrf.addProperty("rank_window_size", Math.max(limit, hybridWindow));
+        JsonObject retriever = new JsonObject();
+        retriever.add("rrf", rrf);
+
+        body.add("retriever", retriever);
     }
 
     private String cleanupJsonResponse(String response) {
@@ -128,66 +472,13 @@ public class AssetSearchService {
      * Performs a compound search with multiple filters and natural language processing
      */
     public List<AssetSearchDTO> compoundSearch(CompoundSearchRequest request) {
-        LOG.infof("Starting compound search with query='%s', filters=%s", 
-                  request.naturalLanguageQuery(), 
-                  request.filters());
-        
-        // First, perform the database search with explicit filters
-        SearchSession searchSession = Search.session(em);
-        List<AssetSearchDTO> searchResults;
-        
         try {
-            var startTime = System.currentTimeMillis();
-            
-            // Debug: Log the current index status
-            LOG.info("Checking Elasticsearch index status...");
-            var indexer = searchSession.massIndexer(Asset.class);
-            indexer.idFetchSize(150)
-                  .batchSizeToLoadObjects(25)
-                  .threadsToLoadObjects(12)
-                  .startAndWait();
-            LOG.info("Index check/update completed");
-            
-            // Execute the search
-            var results = searchSession.search(Asset.class)
-                    .where(f -> createSearchPredicate(f, request.filters()))
-                    .sort(f -> f.score())
-                    .fetchHits(request.limit() != null ? request.limit() : 20);
-            
-            var duration = System.currentTimeMillis() - startTime;
-            LOG.infof("Database search completed in %d ms, found %d results", duration, results.size());
-            
-            if (results.isEmpty()) {
-                LOG.info("No results found. Current filters:");
-                if (request.filters() != null) {
-                    request.filters().forEach((key, value) -> 
-                        LOG.infof("  %s: '%s'", key, value));
-                }
-                
-                // Debug: Try to fetch all assets to verify database connection
-                var allAssets = searchSession.search(Asset.class)
-                        .where(f -> f.matchAll())
-                        .fetchHits(5);
-                LOG.infof("Debug: Found %d total assets in index", allAssets.size());
-                if (!allAssets.isEmpty()) {
-                    LOG.info("Sample asset from index:");
-                    var sample = allAssets.get(0);
-                    LOG.infof("  Name: %s", sample.getName());
-                    LOG.infof("  Brand: %s", sample.getBrand() != null ? sample.getBrand().getName() : "null");
-                    LOG.infof("  Type: %s", sample.getType() != null ? sample.getType().getName() : "null");
-                    LOG.infof("  Status: %s", sample.getStatus());
-                }
-            }
-            
-            // Convert results to DTOs
-            searchResults = results.stream()
-                    .map(this::mapToDTO)
-                    .collect(Collectors.toList());
+            var searchResults = compoundSearchHits(request);
 
             // If we have a natural language query and results, enhance them with LLM
             if (!searchResults.isEmpty() && request.naturalLanguageQuery() != null && !request.naturalLanguageQuery().isBlank()) {
                 try {
-                    enhanceSearchResults(searchResults, request.naturalLanguageQuery());
+                    searchResults = enhanceSearchResults(searchResults, request.naturalLanguageQuery());
                 } catch (Exception e) {
                     LOG.error("Failed to enhance search results with LLM", e);
                 }
@@ -201,48 +492,320 @@ public class AssetSearchService {
         }
     }
 
-    private void enhanceSearchResults(List<AssetSearchDTO> results, String query) {
-        try {
-            for (int i = 0; i < results.size(); i++) {
-                var asset = results.get(i);
-                
-                // Format context for LLM analysis
-                StringBuilder context = new StringBuilder();
-                context.append("Analyze this IT asset:\n\n");
-                context.append("Name: ").append(asset.name()).append("\n");
-                context.append("Brand: ").append(asset.brandName()).append("\n");
-                context.append("Type: ").append(asset.typeName()).append("\n");
-                context.append("Category: ").append(asset.categoryName()).append("\n");
-                context.append("SubCategory: ").append(asset.subCategoryName()).append("\n");
-                context.append("Status: ").append(asset.status()).append("\n");
-                context.append("Description: ").append(asset.description()).append("\n");
-                context.append("Purchase Price: $").append(asset.purchasePrice()).append("\n");
-                context.append("Purchase Date: ").append(asset.purchaseDate()).append("\n");
-                
-                // Get LLM analysis
-                String analysis = searchBot.analyzeSearchResults(context.toString());
-                LOG.debugf("Generated commentary for asset %s: %s", asset.name(), analysis);
-                
-                // Create new DTO with the commentary
-                results.set(i, new AssetSearchDTO(
-                    asset.id(),
-                    asset.name(),
-                    asset.serialNumber(),
-                    asset.brandName(),
-                    asset.brandDescription(),
-                    asset.categoryName(),
-                    asset.typeName(),
-                    asset.subCategoryName(),
-                    asset.purchaseDate(),
-                    asset.purchasePrice(),
-                    asset.description(),
-                    asset.status(),
-                    analysis
-                ));
+    /**
+     * Executes the filter part of a compound search without any LLM enrichment
+     * @param request The compound search request
+     * @return Matching assets in score order, without commentary
+     */
+    @Transactional
+    public List<AssetSearchDTO> compoundSearchHits(CompoundSearchRequest request) {
+        LOG.infof("Starting compound search with query='%s', filters=%s", 
+                  request.naturalLanguageQuery(), 
+                  request.filters());
+        
+        SearchSession searchSession = Search.session(em);
+        var startTime = System.currentTimeMillis();
+        
+        // Index freshness is maintained out of band by IndexFreshnessTracker
+        if (!freshnessTracker.isInitialized()) {
+            LOG.warn("Initial index build has not completed yet, results may be incomplete");
+        }
+        
+        var filters = compoundFilters(request);
+        
+        // Execute the search
+        var results = searchSession.search(Asset.class)
+                .select(f -> assetProjection(f, "compound"))
+                .where(f -> createSearchPredicate(f, filters))
+                .sort(f -> f.score())
+                .loading(o -> o.graph(Asset.SEARCH_HIT_GRAPH, GraphSemantic.FETCH))
+                .fetchHits(request.limit() != null ? request.limit() : 20);
+        
+        var duration = System.currentTimeMillis() - startTime;
+        LOG.infof("Database search completed in %d ms, found %d results", duration, results.size());
+        
+        if (results.isEmpty()) {
+            LOG.info("No results found. Current filters:");
+            if (filters != null) {
+                filters.forEach((key, value) -> 
+                    LOG.infof("  %s: '%s'", key, value));
+            }
+            LOG.infof("Index generations: %s", freshnessTracker.generations());
+        }
+        
+        return results;
+    }
+
+    /**
+     * Runs the compound search filters and returns the top hits together with term facets
+     * (brand, type, category, status) and range facets (purchasePrice, purchaseDate). The
+     * facets are Elasticsearch aggregations of the same request, so they count exactly the
+     * assets matched by the filters.
+     * @param request Filters, number of hits and number of buckets per term facet
+     * @return Hits, total hit count and facet buckets
+     */
+    public FacetSearchResult facetedSearch(FacetSearchRequest request) {
+        var limit = request.limit() != null ? request.limit() : 20;
+        var maxTerms = request.maxTerms() != null ? request.maxTerms() : facetMaxTerms;
+        LOG.infof("Starting faceted search with filters=%s, limit=%d, maxTerms=%d", request.filters(), limit, maxTerms);
+
+        var priceRanges = priceRanges();
+        var purchaseDateRanges = purchaseDateRanges();
+        AggregationKey<Map<String, Long>> brandKey = AggregationKey.of("brand");
+        AggregationKey<Map<String, Long>> typeKey = AggregationKey.of("type");
+        AggregationKey<Map<String, Long>> categoryKey = AggregationKey.of("category");
+        AggregationKey<Map<String, Long>> statusKey = AggregationKey.of("status");
+        AggregationKey<Map<Range<Double>, Long>> priceKey = AggregationKey.of("purchasePrice");
+        AggregationKey<Map<Range<LocalDateTime>, Long>> purchaseDateKey = AggregationKey.of("purchaseDate");
+
+        var startTime = System.currentTimeMillis();
+        var result = Search.session(em).search(Asset.class)
+                .select(f -> assetProjection(f, "facets"))
+                .where(f -> createSearchPredicate(f, request.filters()))
+                .sort(f -> f.score())
+                .aggregation(brandKey, f -> f.terms().field("brand.name_keyword", String.class).maxTermCount(maxTerms))
+                .aggregation(typeKey, f -> f.terms().field("type.name_keyword", String.class).maxTermCount(maxTerms))
+                .aggregation(categoryKey, f -> f.terms().field("category.name_keyword", String.class).maxTermCount(maxTerms))
+                .aggregation(statusKey, f -> f.terms().field("status", String.class).maxTermCount(maxTerms))
+                .aggregation(priceKey, f -> f.range().field("purchasePrice", Double.class).ranges(priceRanges.values()))
+                .aggregation(purchaseDateKey, f -> f.range().field("purchaseDate", LocalDateTime.class)
+                        .ranges(purchaseDateRanges.values()))
+                .loading(o -> o.graph(Asset.SEARCH_HIT_GRAPH, GraphSemantic.FETCH))
+                .fetch(limit);
+
+        Map<String, List<FacetSearchResult.FacetBucket>> facets = new LinkedHashMap<>();
+        facets.put("brand", termBuckets(result.aggregation(brandKey)));
+        facets.put("type", termBuckets(result.aggregation(typeKey)));
+        facets.put("category", termBuckets(result.aggregation(categoryKey)));
+        facets.put("status", termBuckets(result.aggregation(statusKey)));
+        facets.put("purchasePrice", rangeBuckets(result.aggregation(priceKey), priceRanges));
+        facets.put("purchaseDate", rangeBuckets(result.aggregation(purchaseDateKey), purchaseDateRanges));
+
+        var duration = System.currentTimeMillis() - startTime;
+        LOG.infof("Faceted search completed in %d ms, found %d results", duration, result.total().hitCountLowerBound());
+
+        return new FacetSearchResult(result.hits(), result.total().hitCountLowerBound(), facets);
+    }
+
+    /**
+     * @return Purchase price buckets by label, from {@code asset.search.facets.price-ranges}
+     */
+    private Map<String, Range<Double>> priceRanges() {
+        var bounds = priceFacetBounds.stream().sorted().toList();
+        Map<String, Range<Double>> ranges = new LinkedHashMap<>();
+        ranges.put("< " + formatBound(bounds.get(0)), Range.lessThan(bounds.get(0)));
+        for (int i = 1; i < bounds.size(); i++) {
+            ranges.put(formatBound(bounds.get(i - 1)) + " - " + formatBound(bounds.get(i)),
+                       Range.canonical(bounds.get(i - 1), bounds.get(i)));
+        }
+        ranges.put(">= " + formatBound(bounds.get(bounds.size() - 1)), Range.atLeast(bounds.get(bounds.size() - 1)));
+        return ranges;
+    }
+
+    /**
+     * @return Purchase date buckets by asset age, from {@code asset.search.facets.purchase-age-years}
+     */
+    private Map<String, Range<LocalDateTime>> purchaseDateRanges() {
+        var ages = purchaseAgeFacetYears.stream().sorted().toList();
+        var today = LocalDate.now().atStartOfDay();
+        Map<String, Range<LocalDateTime>> ranges = new LinkedHashMap<>();
+        ranges.put("< " + ages.get(0) + " years", Range.atLeast(today.minusYears(ages.get(0))));
+        for (int i = 1; i < ages.size(); i++) {
+            ranges.put(ages.get(i - 1) + " - " + ages.get(i) + " years",
+                       Range.canonical(today.minusYears(ages.get(i)), today.minusYears(ages.get(i - 1))));
+        }
+        ranges.put(">= " + ages.get(ages.size() - 1) + " years", Range.lessThan(today.minusYears(ages.get(ages.size() - 1))));
+        return ranges;
+    }
+
+    private static String formatBound(Double bound) {
+        return BigDecimal.valueOf(bound).stripTrailingZeros().toPlainString();
+    }
+
+    private static List<FacetSearchResult.FacetBucket> termBuckets(Map<String, Long> counts) {
+        return counts.entrySet().stream()
+                .map(entry -> new FacetSearchResult.FacetBucket(entry.getKey(), entry.getValue()))
+                .toList();
+    }
+
+    private static <T> List<FacetSearchResult.FacetBucket> rangeBuckets(Map<Range<T>, Long> counts, Map<String, Range<T>> ranges) {
+        return ranges.entrySet().stream()
+                .map(entry -> new FacetSearchResult.FacetBucket(entry.getKey(), counts.getOrDefault(entry.getValue(), 0L)))
+                .toList();
+    }
+
+    /**
+     * Filters of a compound search: those understood from the natural language query,
+     * overridden by the explicit filters of the request
+     */
+    private Map<String, String> compoundFilters(CompoundSearchRequest request) {
+        if (request.naturalLanguageQuery() == null || request.naturalLanguageQuery().isBlank()) {
+            return request.filters();
+        }
+
+        var parsed = queryUnderstanding.parse(request.naturalLanguageQuery());
+        Map<String, String> filters = new LinkedHashMap<>();
+        parsed.filters().forEach((key, value) -> {
+            boolean explicit = request.filters() != null && request.filters().entrySet().stream()
+                    .anyMatch(entry -> entry.getKey().equalsIgnoreCase(key) && entry.getValue() != null && !entry.getValue().isBlank());
+            if (!explicit) {
+                filters.put(key, value);
+            }
+        });
+        if (request.filters() != null) {
+            filters.putAll(request.filters());
+        }
+        LOG.infof("Query '%s' understood via %s as %s", request.naturalLanguageQuery(), parsed.path(), parsed.filters());
+        return filters;
+    }
+
+    /**
+     * Streams a compound search: the hits are emitted first, then the commentary of each
+     * asset as it is generated. Cached commentary is emitted immediately; the rest is
+     * streamed token by token from the LLM, at most {@code asset.enrichment.parallelism}
+     * assets at a time. Cancelling the subscription (e.g. client disconnect) stops the
+     * outstanding LLM streams and prevents queued assets from being analyzed.
+     * @param request The compound search request
+     * @param includeTokens Whether to emit individual token events or only complete commentary
+     */
+    public Multi<CompoundSearchEvent> streamCompoundSearch(CompoundSearchRequest request, boolean includeTokens) {
+        var hits = compoundSearchHits(request);
+        var promptHash = commentaryCache.promptHash(null, "streamSearchResults");
+
+        var commentary = Multi.createFrom().iterable(hits)
+                .onItem().transformToMulti(asset -> streamCommentary(asset, promptHash, includeTokens))
+                .merge(enrichmentExecutor.parallelism());
+
+        return Multi.createBy().concatenating().streams(
+                        Multi.createFrom().item(CompoundSearchEvent.hits(hits)),
+                        commentary,
+                        Multi.createFrom().item(CompoundSearchEvent.complete()))
+                .onCancellation().invoke(() ->
+                        LOG.infof("Compound search stream cancelled, dropping outstanding LLM work for query '%s'",
+                                  request.naturalLanguageQuery()));
+    }
+
+    private Multi<CompoundSearchEvent> streamCommentary(AssetSearchDTO asset, String promptHash, boolean includeTokens) {
+        var cached = commentaryCache.get(asset, promptHash);
+        if (cached.isPresent()) {
+            return Multi.createFrom().item(CompoundSearchEvent.commentary(asset.id(), cached.get()));
+        }
+
+        StringBuilder analysis = new StringBuilder();
+        Multi<CompoundSearchEvent> tokens = searchBot.streamSearchResults(buildAssetContext(asset))
+                .onItem().invoke(analysis::append)
+                .filter(token -> includeTokens)
+                .map(token -> CompoundSearchEvent.token(asset.id(), token));
+
+        Multi<CompoundSearchEvent> completed = Multi.createFrom().item(() -> {
+            commentaryCache.put(asset, promptHash, analysis.toString());
+            return CompoundSearchEvent.commentary(asset.id(), analysis.toString());
+        });
+
+        return Multi.createBy().concatenating().streams(tokens, completed)
+                .onFailure().recoverWithItem(e -> {
+                    LOG.errorf(e, "Failed to stream commentary for asset %s", asset.name());
+                    return CompoundSearchEvent.commentary(asset.id(), AssetEnrichmentExecutor.FAILED_COMMENTARY);
+                });
+    }
+
+    private List<AssetSearchDTO> enhanceSearchResults(List<AssetSearchDTO> results, String query) {
+        var promptHash = commentaryCache.promptHash(null, "analyzeSearchResults");
+        var batchPromptHash = commentaryCache.promptHash(null, "analyzeSearchResultsBatch");
+        // Pages are analyzed in one batched call, with per-asset calls for what it misses
+        var enriched = batchEnrichmentEnabled
+                ? commentaryCache.applyCached(results, batchPromptHash, promptHash)
+                : commentaryCache.applyCached(results, promptHash);
+        var misses = enriched.stream()
+                .filter(asset -> asset.llmCommentary() == null)
+                .toList();
+        LOG.debugf("Commentary cache served %d/%d results", results.size() - misses.size(), results.size());
+        if (misses.isEmpty()) {
+            return enriched;
+        }
+
+        if (batchEnrichmentEnabled && misses.size() > 1) {
+            try {
+                return replaceById(enriched, enhanceSearchResultsBatch(misses, batchPromptHash, promptHash));
+            } catch (Exception e) {
+                LOG.warnf("Batched LLM analysis failed, falling back to per-asset calls: %s", e.getMessage());
+            }
+        }
+        return replaceById(enriched, enrichmentExecutor.enrich(misses,
+                asset -> analyzeAsset(asset, promptHash)));
+    }
+
+    private String analyzeAsset(AssetSearchDTO asset, String promptHash) {
+        String analysis = searchBot.analyzeSearchResults(buildAssetContext(asset));
+        commentaryCache.put(asset, promptHash, analysis);
+        return analysis;
+    }
+
+    /**
+     * Generates commentary for the whole page with a single LLM call. Assets missing
+     * from the bot's JSON answer are analyzed individually.
+     */
+    private List<AssetSearchDTO> enhanceSearchResultsBatch(
+            List<AssetSearchDTO> results, String batchPromptHash, String promptHash) throws Exception {
+        var startTime = System.currentTimeMillis();
+
+        StringBuilder contexts = new StringBuilder();
+        for (var asset : results) {
+            contexts.append("Asset ID: ").append(asset.id()).append("\n");
+            contexts.append(buildAssetContext(asset)).append("\n---\n");
+        }
+
+        String response = searchBot.analyzeSearchResultsBatch(contexts.toString());
+        JsonNode json = objectMapper.readTree(cleanupJsonResponse(response));
+
+        List<AssetSearchDTO> enriched = new ArrayList<>(results.size());
+        List<AssetSearchDTO> missing = new ArrayList<>();
+        for (var asset : results) {
+            JsonNode commentary = json.get(asset.id());
+            if (commentary == null || commentary.isNull()) {
+                missing.add(asset);
+                enriched.add(asset);
+            } else {
+                String analysis = commentary.isTextual() ? commentary.asText() : commentary.toString();
+                commentaryCache.put(asset, batchPromptHash, analysis);
+                enriched.add(asset.withLlmCommentary(analysis));
             }
-        } catch (Exception e) {
-            LOG.error("Error enhancing search results with LLM analysis", e);
         }
+
+        var duration = System.currentTimeMillis() - startTime;
+        LOG.infof("Batched LLM analysis completed in %d ms, %d/%d assets covered",
+                  duration, results.size() - missing.size(), results.size());
+
+        if (!missing.isEmpty()) {
+            LOG.infof("Falling back to per-asset analysis for %d assets", missing.size());
+            enriched = replaceById(enriched, enrichmentExecutor.enrich(missing,
+                    asset -> analyzeAsset(asset, promptHash)));
+        }
+        return enriched;
+    }
+
+    private List<AssetSearchDTO> replaceById(List<AssetSearchDTO> results, List<AssetSearchDTO> updates) {
+        Map<String, AssetSearchDTO> byId = new HashMap<>();
+        updates.forEach(asset -> byId.put(asset.id(), asset));
+        List<AssetSearchDTO> replaced = new ArrayList<>(results);
+        replaced.replaceAll(asset -> byId.getOrDefault(asset.id(), asset));
+        return replaced;
+    }
+
+    private String buildAssetContext(AssetSearchDTO asset) {
+        // Format context for LLM analysis
+        StringBuilder context = new StringBuilder();
+        context.append("Analyze this IT asset:\n\n");
+        context.append("Name: ").append(asset.name()).append("\n");
+        context.append("Brand: ").append(asset.brandName()).append("\n");
+        context.append("Type: ").append(asset.typeName()).append("\n");
+        context.append("Category: ").append(asset.categoryName()).append("\n");
+        context.append("SubCategory: ").append(asset.subCategoryName()).append("\n");
+        context.append("Status: ").append(asset.status()).append("\n");
+        context.append("Description: ").append(asset.description()).append("\n");
+        context.append("Purchase Price: $").append(asset.purchasePrice()).append("\n");
+        context.append("Purchase Date: ").append(asset.purchaseDate()).append("\n");
+        return context.toString();
     }
 
     private org.hibernate.search.engine.search.predicate.dsl.BooleanPredicateClausesStep createSearchPredicate(
@@ -269,6 +832,13 @@ public class AssetSearchService {
                                     .matching(value)
                                     .fuzzy(1));
                         }
+                        case "category" -> {
+                            LOG.debugf("Adding category filter: %s", value);
+                            bool.must(f.match()
+                                    .field("category.name")
+                                    .matching(value)
+                                    .fuzzy(1));
+                        }
                         case "status" -> {
                             LOG.debugf("Adding status filter: %s", value);
                             bool.must(f.match()
@@ -281,6 +851,34 @@ public class AssetSearchService {
                                     .field("conditionHistory.condition")
                                     .matching(value));
                         }
+                        case "minprice", "maxprice" -> {
+                            LOG.debugf("Adding price filter: %s=%s", key, value);
+                            try {
+                                var price = Double.parseDouble(value);
+                                bool.must(key.equalsIgnoreCase("minPrice")
+                                        ? f.range().field("purchasePrice").atLeast(price)
+                                        : f.range().field("purchasePrice").atMost(price));
+                            } catch (NumberFormatException e) {
+                                LOG.warnf("Ignoring invalid %s filter: %s", key, value);
+                            }
+                        }
+                        case "purchasedafter", "purchasedbefore" -> {
+                            LOG.debugf("Adding purchase date filter: %s=%s", key, value);
+                            try {
+                                var date = LocalDate.parse(value).atStartOfDay();
+                                bool.must(key.equalsIgnoreCase("purchasedAfter")
+                                        ? f.range().field("purchaseDate").atLeast(date)
+                                        : f.range().field("purchaseDate").lessThan(date));
+                            } catch (DateTimeParseException e) {
+                                LOG.warnf("Ignoring invalid %s filter: %s", key, value);
+                            }
+                        }
+                        case "text" -> {
+                            // Free text left over by query understanding ("for the finance team") only
+                            // ranks assets matched by the other filters; on its own it must match
+                            LOG.debugf("Adding text clause: %s", value);
+                            bool.should(multiFieldPredicate(f, value));
+                        }
                         default -> LOG.warnf("Ignoring unknown filter key: %s", key);
                     }
                 }
@@ -290,6 +888,53 @@ public class AssetSearchService {
         return bool;
     }
 
+    /**
+     * Projection of an asset hit. By default the DTO is built from the fields stored in the
+     * assets index, so no entity is loaded from the database. An endpoint falls back to
+     * loading entities with {@code asset.search.projection.<endpoint>=false}.
+     * @param endpoint Endpoint name used to look up the fallback flag, e.g. {@code fuzzy-name}
+     */
+    private ProjectionFinalStep<AssetSearchDTO> assetProjection(SearchProjectionFactory<?, Asset> f, String endpoint) {
+        var useProjection = config.getOptionalValue("asset.search.projection." + endpoint, Boolean.class)
+                .orElse(projectionEnabled);
+        if (!useProjection) {
+            return f.composite()
+                    .from(f.entity())
+                    .as(this::mapToDTO);
+        }
+
+        return f.composite()
+                .from(f.id(Long.class),
+                      f.field("name", String.class),
+                      f.field("serialNumber", String.class),
+                      f.field("brand.name", String.class),
+                      f.field("brand.description", String.class),
+                      f.field("category.name", String.class),
+                      f.field("type.name", String.class),
+                      f.field("subCategory.name", String.class),
+                      f.field("purchaseDate", LocalDateTime.class),
+                      f.field("purchasePrice", Double.class),
+                      f.field("description", String.class),
+                      f.field("status", String.class),
+                      f.field("version", Long.class))
+                .asList(values -> new AssetSearchDTO(
+                        String.valueOf(values.get(0)),
+                        (String) values.get(1),
+                        (String) values.get(2),
+                        (String) values.get(3),
+                        (String) values.get(4),
+                        (String) values.get(5),
+                        (String) values.get(6),
+                        (String) values.get(7),
+                        (LocalDateTime) values.get(8),
+                        (Double) values.get(9),
+                        (String) values.get(10),
+                        (String) values.get(11),
+                        (Long) values.get(12),
+                        null  // LLM commentary will be added later
+                ));
+    }
+
     private AssetSearchDTO mapToDTO(Asset asset) {
         return new AssetSearchDTO(
             asset.getId().toString(),
@@ -304,25 +949,11 @@ public class AssetSearchService {
             asset.getPurchasePrice(),
             asset.getDescription(),
             asset.getStatus(),
+            asset.getVersion(),
             null  // LLM commentary will be added later
         );
     }
 
-    public void reindexAll() throws InterruptedException {
-        LOG.info("Starting full reindexing of assets");
-        var startTime = System.currentTimeMillis();
-        
-        SearchSession searchSession = Search.session(em);
-        searchSession.massIndexer()
-                .threadsToLoadObjects(4)
-                .batchSizeToLoadObjects(50)
-                .idFetchSize(150)
-                .startAndWait();
-        
-        var duration = System.currentTimeMillis() - startTime;
-        LOG.infof("Reindexing completed in %d ms", duration);
-    }
-
     /**
      * Search for assets based on their issues (open issues, issue count, priority)
      */
@@ -337,38 +968,25 @@ public class AssetSearchService {
             
             // Build the search predicate
             var searchQuery = searchSession.search(Asset.class)
-                    .where(f -> {
-                        var bool = f.bool();
-                        
-                        // Add basic filters if present
-                        if (request.filters() != null && !request.filters().isEmpty()) {
-                            bool.must(createSearchPredicate(f, request.filters()));
-                        }
-                        
-                        // Add issue-specific predicates
-                        addIssuePredicates(f, bool, request.issueSearchCriteria());
-                        
-                        return bool;
-                    });
+                    .select(f -> assetProjection(f, "issues"))
+                    .where(f -> issueSearchPredicate(f, request));
             
             // Execute search
             var results = searchQuery
                     .sort(f -> f.score())
+                    .loading(o -> o.graph(Asset.SEARCH_HIT_GRAPH, GraphSemantic.FETCH))
                     .fetchHits(request.limit() != null ? request.limit() : 20);
             
             var duration = System.currentTimeMillis() - startTime;
             LOG.infof("Issue search completed in %d ms, found %d results", duration, results.size());
             
-            // Convert to DTOs
-            searchResults = results.stream()
-                    .map(this::mapToDTO)
-                    .collect(Collectors.toList());
+            searchResults = results;
 
             // Enhance with LLM if requested and we have results
             if (request.enhanceWithLLM() && !searchResults.isEmpty() && 
                 request.naturalLanguageQuery() != null && !request.naturalLanguageQuery().isBlank()) {
                 try {
-                    enhanceIssueSearchResults(searchResults, request);
+                    searchResults = enhanceIssueSearchResults(searchResults, request);
                 } catch (Exception e) {
                     LOG.error("Failed to enhance issue search results with LLM", e);
                 }
@@ -382,6 +1000,20 @@ public class AssetSearchService {
         }
     }
 
+    private PredicateFinalStep issueSearchPredicate(SearchPredicateFactory f, AssetIssueSearchRequest request) {
+        var bool = f.bool();
+        
+        // Add basic filters if present
+        if (request.filters() != null && !request.filters().isEmpty()) {
+            bool.must(createSearchPredicate(f, request.filters()));
+        }
+        
+        // Add issue-specific predicates
+        addIssuePredicates(f, bool, request.issueSearchCriteria());
+        
+        return bool;
+    }
+
     private void addIssuePredicates(
             SearchPredicateFactory f, 
             org.hibernate.search.engine.search.predicate.dsl.BooleanPredicateClausesStep bool,
@@ -389,84 +1021,123 @@ public class AssetSearchService {
         
         if (criteria == null) return;
 
+        // Numeric filters on the issue statistics derived into the asset document
         if (Boolean.TRUE.equals(criteria.hasOpenIssues())) {
             LOG.debug("Adding open issues predicate");
-            bool.must(f.match()
-                    .field("issues.status")
-                    .matching("OPEN"));
+            bool.filter(f.range()
+                    .field("openIssueCount")
+                    .atLeast(1));
+        } else if (Boolean.FALSE.equals(criteria.hasOpenIssues())) {
+            LOG.debug("Adding no open issues predicate");
+            bool.filter(f.match()
+                    .field("openIssueCount")
+                    .matching(0));
         }
 
         if (criteria.minIssueCount() != null && criteria.minIssueCount() > 0) {
-            LOG.debugf("Adding minimum issue count predicate: %d", criteria.minIssueCount());
-            // Use exists() to count issues
-            bool.must(f.bool()
-                    .should(f.exists()
-                            .field("issues"))
-                    .minimumShouldMatchNumber(criteria.minIssueCount()));
+            // Resolved and closed issues only count when they are included
+            var countField = Boolean.TRUE.equals(criteria.includeResolved()) ? "issueCount" : "openIssueCount";
+            LOG.debugf("Adding minimum issue count predicate: %s >= %d", countField, criteria.minIssueCount());
+            bool.filter(f.range()
+                    .field(countField)
+                    .atLeast(criteria.minIssueCount()));
         }
 
-        if (criteria.minPriority() != null) {
+        var hasText = criteria.issueText() != null && !criteria.issueText().isBlank();
+        var includeResolved = Boolean.TRUE.equals(criteria.includeResolved());
+        if (hasText || (criteria.minPriority() != null && includeResolved)) {
+            // Text, priority and status must hold for one and the same issue; the derived
+            // maxOpenIssuePriority only covers open issues, so resolved ones need the nested documents
+            LOG.debugf("Adding nested issue predicate: text='%s', minPriority=%s, includeResolved=%s",
+                       criteria.issueText(), criteria.minPriority(), criteria.includeResolved());
+            if (hasText) {
+                bool.must(issuePredicate(f, criteria));
+            } else {
+                bool.filter(issuePredicate(f, criteria));
+            }
+        } else if (criteria.minPriority() != null) {
             LOG.debugf("Adding minimum priority predicate: %s", criteria.minPriority());
-            bool.must(f.range()
+            bool.filter(f.range()
+                    .field("maxOpenIssuePriority")
+                    .atLeast(criteria.minPriority().rank()));
+        }
+    }
+
+    /**
+     * Predicate on the nested issue documents of an asset: matches if a single issue that
+     * is not soft-deleted mentions the text (if any), has at least the minimum priority (if
+     * any) and, unless resolved issues are included, is still open
+     */
+    private PredicateFinalStep issuePredicate(SearchPredicateFactory f, AssetIssueSearchRequest.IssueSearchCriteria criteria) {
+        var nested = f.nested("issues")
+                .add(f.not(f.match()
+                        .field("issues.isDeleted")
+                        .matching(true)));
+
+        if (criteria.issueText() != null && !criteria.issueText().isBlank()) {
+            nested.add(f.match()
+                    .field("issues.title").boost(2.0f)
+                    .field("issues.description")
+                    .matching(criteria.issueText()));
+        }
+
+        if (criteria.minPriority() != null) {
+            var priorities = Arrays.stream(IssuePriority.values())
+                    .filter(priority -> priority.rank() >= criteria.minPriority().rank())
+                    .map(IssuePriority::name)
+                    .toList();
+            nested.add(f.terms()
                     .field("issues.priority")
-                    .atLeast(criteria.minPriority().toString()));
+                    .matchingAny(priorities));
         }
 
-        // If we should include resolved issues
         if (!Boolean.TRUE.equals(criteria.includeResolved())) {
-            bool.mustNot(f.match()
+            nested.add(f.not(f.terms()
                     .field("issues.status")
-                    .matching("RESOLVED"));
+                    .matchingAny(List.of("RESOLVED", "CLOSED"))));
         }
+        return nested;
     }
 
-    private void enhanceIssueSearchResults(List<AssetSearchDTO> results, AssetIssueSearchRequest request) {
-        try {
-            for (int i = 0; i < results.size(); i++) {
-                var asset = results.get(i);
-                
-                // Simplified context focusing on key details
-                String context = String.format("""
-                    Asset: %s (%s)
-                    Type: %s
-                    Status: %s
-                    Issue Criteria:
-                    - Open Issues: %s
-                    - Min Issues: %s
-                    - Min Priority: %s
-                    """,
-                    asset.name(),
-                    asset.serialNumber(),
-                    asset.typeName(),
-                    asset.status(),
-                    request.issueSearchCriteria().hasOpenIssues(),
-                    request.issueSearchCriteria().minIssueCount(),
-                    request.issueSearchCriteria().minPriority()
-                );
-                
-                // Get LLM analysis
-                String analysis = searchBot.analyzeIssueSearchResults(context);
-                LOG.debugf("Generated issue commentary for asset %s: %s", asset.name(), analysis);
-                
-                // Create new DTO with the commentary
-                results.set(i, new AssetSearchDTO(
-                    asset.id(),
-                    asset.name(),
-                    asset.serialNumber(),
-                    asset.brandName(),
-                    asset.brandDescription(),
-                    asset.categoryName(),
-                    asset.typeName(),
-                    asset.subCategoryName(),
-                    asset.purchaseDate(),
-                    asset.purchasePrice(),
-                    asset.description(),
-                    asset.status(),
-                    analysis
-                ));
-            }
-        } catch (Exception e) {
-            LOG.error("Error enhancing issue search results with LLM analysis", e);
+    private List<AssetSearchDTO> enhanceIssueSearchResults(List<AssetSearchDTO> results, AssetIssueSearchRequest request) {
+        // The criteria are part of the prompt, so they are part of the cache key too
+        var promptHash = commentaryCache.promptHash(
+                String.valueOf(request.issueSearchCriteria()), "analyzeIssueSearchResults");
+        var enriched = commentaryCache.applyCached(results, promptHash);
+        var misses = enriched.stream()
+                .filter(asset -> asset.llmCommentary() == null)
+                .toList();
+        if (misses.isEmpty()) {
+            return enriched;
         }
+
+        return replaceById(enriched, enrichmentExecutor.enrich(misses, asset -> {
+            String analysis = searchBot.analyzeIssueSearchResults(buildIssueContext(asset, request));
+            commentaryCache.put(asset, promptHash, analysis);
+            return analysis;
+        }));
+    }
+
+    private String buildIssueContext(AssetSearchDTO asset, AssetIssueSearchRequest request) {
+        // Simplified context focusing on key details
+        return String.format("""
+            Asset: %s (%s)
+            Type: %s
+            Status: %s
+            Issue Criteria:
+            - Open Issues: %s
+            - Min Issues: %s
+            - Min Priority: %s
+            - Issue Text: %s
+            """,
+            asset.name(),
+            asset.serialNumber(),
+            asset.typeName(),
+            asset.status(),
+            request.issueSearchCriteria().hasOpenIssues(),
+            request.issueSearchCriteria().minIssueCount(),
+            request.issueSearchCriteria().minPriority(),
+            request.issueSearchCriteria().issueText()
+        );
     }
-} 
\ No newline at end of file
+}
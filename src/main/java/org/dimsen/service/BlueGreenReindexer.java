@@ -0,0 +1,449 @@
+package org.dimsen.service;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.dimsen.dto.BlueGreenStatus;
+import org.dimsen.dto.ReindexJobRequest;
+import org.dimsen.model.base.BaseEntity;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.RestClient;
+import org.hibernate.search.backend.elasticsearch.ElasticsearchBackend;
+import org.hibernate.search.backend.elasticsearch.ElasticsearchExtension;
+import org.hibernate.search.backend.elasticsearch.index.ElasticsearchIndexManager;
+import org.hibernate.search.backend.elasticsearch.metamodel.ElasticsearchIndexDescriptor;
+import org.hibernate.search.engine.common.schema.management.SchemaExport;
+import org.hibernate.search.engine.common.schema.management.SearchSchemaCollector;
+import org.hibernate.search.mapper.orm.mapping.SearchMapping;
+import org.jboss.logging.Logger;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Zero-downtime full rebuilds of the Elasticsearch indexes.
+ * <p>
+ * Hibernate Search reads through the {@code <index>-read} alias and writes through the
+ * {@code <index>-write} alias of each index. A rebuild creates the next generation of every
+ * index ({@code assets-000002}) from the current mapping, points the write aliases at the
+ * new generation and runs a {@link ReindexJobService reindex job}, while searches keep
+ * reading the complete current generation. Every document the {@link IndexSyncQueue} or
+ * the {@link IndexFreshnessTracker} writes meanwhile is mirrored into the current
+ * generation (dual write), so searches see changes during the rebuild too. Once the job
+ * completes, the read aliases of all indexes are swapped in one atomic alias update.
+ * <p>
+ * The previous generation is kept, and mirrored, so that a rollback can swap back to it
+ * without losing changes; older generations are deleted. Mirroring is held in memory:
+ * after a restart the previous generation no longer receives changes, and a rollback
+ * serves it as of the restart. A rebuild interrupted by a restart is discarded on startup.
+ */
+@ApplicationScoped
+public class BlueGreenReindexer {
+
+    private static final Logger LOG = Logger.getLogger(BlueGreenReindexer.class);
+
+    @Inject
+    SearchMapping searchMapping;
+
+    @Inject
+    ReindexJobService reindexJobs;
+
+    @Inject
+    IndexFreshnessTracker freshnessTracker;
+
+    @Inject
+    SearchResultCache resultCache;
+
+    @Inject
+    MeterRegistry registry;
+
+    // Index each type's writes are mirrored to, by type
+    private final Map<Class<?>, String> mirrors = new ConcurrentHashMap<>();
+    private final AtomicReference<Rebuild> rebuild = new AtomicReference<>();
+    private volatile String lastJobId;
+    private Counter mirrored;
+    private Counter mirrorFailures;
+
+    /**
+     * Generations of one index during a rebuild
+     * @param current Generation serving searches
+     * @param next Generation being built
+     */
+    private record Generation(String current, String next) {}
+
+    private record Rebuild(String jobId, Map<Class<? extends BaseEntity>, Generation> generations) {}
+
+    @PostConstruct
+    void init() {
+        mirrored = registry.counter("asset.index.blue-green.mirrored");
+        mirrorFailures = registry.counter("asset.index.blue-green.mirror.failures");
+    }
+
+    /**
+     * A rebuild interrupted by a restart leaves write aliases on an unfinished generation,
+     * which no longer receives mirrored writes. The write aliases are pointed back at the
+     * generation serving searches and the unfinished generation is deleted.
+     */
+    void onStart(@Observes StartupEvent event) {
+        try {
+            var actions = new JsonArray();
+            List<String> unfinished = new ArrayList<>();
+            for (var type : freshnessTracker.trackedTypes()) {
+                var names = names(type);
+                var read = aliasedIndex(names.readName());
+                var write = aliasedIndex(names.writeName());
+                if (!read.equals(write)) {
+                    moveAlias(actions, names.writeName(), write, read, true);
+                    unfinished.add(write);
+                }
+            }
+            if (unfinished.isEmpty()) {
+                return;
+            }
+            updateAliases(actions);
+            unfinished.forEach(index -> perform("DELETE", "/" + index, null));
+            LOG.warnf("Discarded unfinished generations %s of a rebuild interrupted by a restart", unfinished);
+        } catch (RuntimeException e) {
+            LOG.errorf(e, "Failed to check for an interrupted rebuild: %s", e.getMessage());
+        }
+    }
+
+    /**
+     * Starts a rebuild of every index
+     * @param request Parallelism and fetch sizes of the reindex job; its types are ignored
+     * @throws IllegalStateException When a rebuild or another reindex job is running
+     */
+    public synchronized BlueGreenStatus start(ReindexJobRequest request) {
+        if (rebuild.get() != null) {
+            throw new IllegalStateException("A rebuild is already running");
+        }
+
+        Map<Class<? extends BaseEntity>, Generation> generations = new LinkedHashMap<>();
+        try {
+            for (var type : freshnessTracker.trackedTypes()) {
+                var names = names(type);
+                var current = aliasedIndex(names.readName());
+                var next = nextGeneration(names.hibernateSearchName());
+                createIndex(type, next);
+                generations.put(type, new Generation(current, next));
+            }
+
+            // Mirror first: from the alias update on, writes land in the next generation only
+            generations.forEach((type, generation) -> mirrors.put(type, generation.current()));
+            var actions = new JsonArray();
+            generations.forEach((type, generation) ->
+                    moveAlias(actions, names(type).writeName(), generation.current(), generation.next(), true));
+            updateAliases(actions);
+
+            var options = request != null ? request : new ReindexJobRequest(null, null, null);
+            var job = reindexJobs.start(new ReindexJobRequest(null, options.parallelism(), options.fetchSize()), this::swap);
+            rebuild.set(new Rebuild(job.id(), generations));
+            lastJobId = job.id();
+            LOG.infof("Started rebuild into %s with reindex job %s",
+                      generations.values().stream().map(Generation::next).toList(), job.id());
+        } catch (RuntimeException e) {
+            discard(generations);
+            throw e;
+        }
+        return status();
+    }
+
+    /**
+     * Stops a rebuild: cancels its job, points the write aliases back at the current
+     * generation and deletes the next one
+     * @throws IllegalStateException When no rebuild is running
+     */
+    public synchronized BlueGreenStatus abort() {
+        var current = rebuild.getAndSet(null);
+        if (current == null) {
+            throw new IllegalStateException("No rebuild is running");
+        }
+        reindexJobs.cancel(current.jobId());
+        discard(current.generations());
+        LOG.infof("Aborted rebuild of reindex job %s", current.jobId());
+        return status();
+    }
+
+    /**
+     * Points the read and write aliases back at the previous generation, which becomes
+     * the mirror of the generation rolled back from
+     * @throws IllegalStateException During a rebuild, or when an index has no previous generation
+     */
+    public synchronized BlueGreenStatus rollback() {
+        if (rebuild.get() != null) {
+            throw new IllegalStateException("Cannot roll back during a rebuild, abort it first");
+        }
+
+        Map<Class<? extends BaseEntity>, Generation> generations = new LinkedHashMap<>();
+        for (var type : freshnessTracker.trackedTypes()) {
+            var names = names(type);
+            var current = aliasedIndex(names.readName());
+            var previous = Optional.ofNullable(mirrors.get(type))
+                    .or(() -> generationsOf(names.hibernateSearchName()).stream()
+                            .filter(index -> !index.equals(current))
+                            .reduce((first, second) -> second))
+                    .orElseThrow(() -> new IllegalStateException("No previous generation of " + names.hibernateSearchName()));
+            generations.put(type, new Generation(current, previous));
+        }
+
+        var actions = new JsonArray();
+        generations.forEach((type, generation) -> {
+            var names = names(type);
+            moveAlias(actions, names.readName(), generation.current(), generation.next(), false);
+            moveAlias(actions, names.writeName(), generation.current(), generation.next(), true);
+        });
+        updateAliases(actions);
+        generations.forEach((type, generation) -> mirrors.put(type, generation.current()));
+        resultCache.invalidateAll();
+
+        LOG.infof("Rolled back to %s", generations.values().stream().map(Generation::next).toList());
+        return status();
+    }
+
+    /**
+     * @return Current generations behind the aliases
+     */
+    public BlueGreenStatus status() {
+        Map<String, BlueGreenStatus.IndexGenerations> indexes = new LinkedHashMap<>();
+        for (var type : freshnessTracker.trackedTypes()) {
+            var names = names(type);
+            indexes.put(type.getSimpleName(), new BlueGreenStatus.IndexGenerations(
+                    aliasedIndex(names.readName()), aliasedIndex(names.writeName()), mirrors.get(type)));
+        }
+        return new BlueGreenStatus(rebuild.get() != null, lastJobId, indexes);
+    }
+
+    /**
+     * Copies documents just written through the write alias of the type to its mirror, if
+     * it has one. Reads are real time, so the documents need not be refreshed first.
+     */
+    public void mirror(Class<?> type, Collection<Long> indexedIds, Collection<Long> purgedIds) {
+        var target = mirrors.get(type);
+        if (target == null || (indexedIds.isEmpty() && purgedIds.isEmpty())) {
+            return;
+        }
+
+        try {
+            var bulk = new StringBuilder();
+            if (!indexedIds.isEmpty()) {
+                var ids = new JsonArray();
+                indexedIds.forEach(id -> ids.add(String.valueOf(id)));
+                var body = new JsonObject();
+                body.add("ids", ids);
+                var docs = perform("POST", "/" + names(type).writeName() + "/_mget", body.toString())
+                        .getAsJsonObject().getAsJsonArray("docs");
+                for (var doc : docs) {
+                    var document = doc.getAsJsonObject();
+                    if (document.get("found").getAsBoolean()) {
+                        bulk.append(bulkAction("index", target, document.get("_id").getAsString())).append('\n')
+                                .append(document.get("_source")).append('\n');
+                    }
+                }
+            }
+            for (var id : purgedIds) {
+                bulk.append(bulkAction("delete", target, String.valueOf(id))).append('\n');
+            }
+            if (bulk.isEmpty()) {
+                return;
+            }
+
+            var response = perform("POST", "/_bulk", bulk.toString()).getAsJsonObject();
+            var items = response.getAsJsonArray("items");
+            int failures = 0;
+            if (response.get("errors").getAsBoolean()) {
+                for (var item : items) {
+                    var result = item.getAsJsonObject().entrySet().iterator().next().getValue().getAsJsonObject();
+                    // Deleting a document the mirror never had is fine
+                    if (result.has("error") && result.get("status").getAsInt() != 404) {
+                        failures++;
+                    }
+                }
+            }
+            mirrored.increment(items.size() - failures);
+            if (failures > 0) {
+                mirrorFailures.increment(failures);
+                LOG.warnf("Failed to mirror %d of %d %s documents to %s", failures, items.size(),
+                          type.getSimpleName(), target);
+            }
+        } catch (RuntimeException e) {
+            mirrorFailures.increment(indexedIds.size() + purgedIds.size());
+            LOG.warnf(e, "Failed to mirror %s documents to %s: %s", type.getSimpleName(), target, e.getMessage());
+        }
+    }
+
+    /**
+     * Completion action of the rebuild's reindex job: swaps the read aliases of all
+     * indexes at once, keeps the previous generation as mirror and deletes older ones
+     */
+    private synchronized void swap() {
+        var current = rebuild.get();
+        if (current == null) {
+            throw new IllegalStateException("The rebuild was aborted");
+        }
+
+        var actions = new JsonArray();
+        current.generations().forEach((type, generation) -> {
+            perform("POST", "/" + generation.next() + "/_refresh", null);
+            moveAlias(actions, names(type).readName(), generation.current(), generation.next(), false);
+        });
+        updateAliases(actions);
+        rebuild.set(null);
+
+        current.generations().forEach((type, generation) -> {
+            mirrors.put(type, generation.current());
+            for (var index : generationsOf(names(type).hibernateSearchName())) {
+                if (!index.equals(generation.current()) && !index.equals(generation.next())) {
+                    perform("DELETE", "/" + index, null);
+                    LOG.infof("Deleted old index generation %s", index);
+                }
+            }
+        });
+        resultCache.invalidateAll();
+        LOG.infof("Swapped read aliases to %s, previous generation kept for rollback",
+                  current.generations().values().stream().map(Generation::next).toList());
+    }
+
+    private void discard(Map<Class<? extends BaseEntity>, Generation> generations) {
+        var actions = new JsonArray();
+        generations.forEach((type, generation) -> {
+            var write = names(type).writeName();
+            if (generation.next().equals(aliasedIndex(write))) {
+                moveAlias(actions, write, generation.next(), generation.current(), true);
+            }
+        });
+        if (!actions.isEmpty()) {
+            updateAliases(actions);
+        }
+        generations.forEach((type, generation) -> {
+            mirrors.remove(type);
+            perform("DELETE", "/" + generation.next(), null);
+        });
+    }
+
+    /**
+     * Creates an index with the mapping and settings Hibernate Search expects for the type,
+     * without aliases
+     */
+    private void createIndex(Class<?> type, String name) {
+        var body = new AtomicReference<JsonObject>();
+        searchMapping.scope(type).schemaManager().exportExpectedSchema(new SearchSchemaCollector() {
+            @Override
+            public void indexSchema(Optional<String> backendName, String indexName, SchemaExport export) {
+                body.set(export.extension(ElasticsearchExtension.get()).bodyParts().get(0).deepCopy());
+            }
+        });
+        var schema = body.get();
+        schema.remove("aliases");
+        perform("PUT", "/" + name, schema.toString());
+        LOG.infof("Created index %s", name);
+    }
+
+    private static void moveAlias(JsonArray actions, String alias, String from, String to, boolean writeIndex) {
+        var remove = new JsonObject();
+        remove.addProperty("index", from);
+        remove.addProperty("alias", alias);
+        var removeAction = new JsonObject();
+        removeAction.add("remove", remove);
+        actions.add(removeAction);
+
+        var add = new JsonObject();
+        add.addProperty("index", to);
+        add.addProperty("alias", alias);
+        if (writeIndex) {
+            add.addProperty("is_write_index", true);
+        }
+        var addAction = new JsonObject();
+        addAction.add("add", add);
+        actions.add(addAction);
+    }
+
+    /**
+     * Applies alias changes atomically
+     */
+    private void updateAliases(JsonArray actions) {
+        var body = new JsonObject();
+        body.add("actions", actions);
+        perform("POST", "/_aliases", body.toString());
+    }
+
+    private String aliasedIndex(String alias) {
+        return perform("GET", "/_alias/" + alias, null).getAsJsonObject().keySet().iterator().next();
+    }
+
+    /**
+     * @return Existing generations of an index, oldest first
+     */
+    private List<String> generationsOf(String hibernateSearchName) {
+        List<String> indexes = new ArrayList<>();
+        for (var index : perform("GET", "/_cat/indices/" + hibernateSearchName + "-*?format=json&h=index", null)
+                .getAsJsonArray()) {
+            indexes.add(index.getAsJsonObject().get("index").getAsString());
+        }
+        indexes.sort(null);
+        return indexes;
+    }
+
+    private String nextGeneration(String hibernateSearchName) {
+        var generations = generationsOf(hibernateSearchName);
+        long last = 0;
+        for (var index : generations) {
+            var suffix = index.substring(index.lastIndexOf('-') + 1);
+            if (suffix.chars().allMatch(Character::isDigit)) {
+                last = Math.max(last, Long.parseLong(suffix));
+            }
+        }
+        return String.format("%s-%06d", hibernateSearchName, last + 1);
+    }
+
+    private static String bulkAction(String action, String index, String id) {
+        var metadata = new JsonObject();
+        metadata.addProperty("_index", index);
+        metadata.addProperty("_id", id);
+        var line = new JsonObject();
+        line.add(action, metadata);
+        return line.toString();
+    }
+
+    private ElasticsearchIndexDescriptor names(Class<?> type) {
+        return searchMapping.indexedEntity(type).indexManager()
+                .unwrap(ElasticsearchIndexManager.class)
+                .descriptor();
+    }
+
+    private JsonElement perform(String method, String endpoint, String body) {
+        var request = new Request(method, endpoint);
+        if (body != null) {
+            request.setJsonEntity(body);
+        }
+        try {
+            var response = restClient().performRequest(request);
+            try (var reader = new InputStreamReader(response.getEntity().getContent(), StandardCharsets.UTF_8)) {
+                return JsonParser.parseReader(reader);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(method + " " + endpoint + " failed", e);
+        }
+    }
+
+    private RestClient restClient() {
+        return searchMapping.backend().unwrap(ElasticsearchBackend.class).client(RestClient.class);
+    }
+}
@@ -0,0 +1,221 @@
+package org.dimsen.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import dev.langchain4j.service.SystemMessage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import org.dimsen.dto.AssetSearchDTO;
+import org.dimsen.model.AssetCommentary;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bounded cache of LLM commentary keyed by asset id, asset {@code @Version}, a hash of
+ * the {@link SystemMessage} text that produced it and a hash of the asset's brand, type,
+ * category and sub-category names.
+ * <p>
+ * Because the entity version is part of the key, any update to an asset makes its
+ * previous commentary unreachable without explicit invalidation; stale entries simply
+ * age out of the in-memory tier. Renaming a brand, type or category does not bump the
+ * version of its assets, which is why their names are hashed into the key as well. Optionally, entries spill to the
+ * {@code asset_commentaries} table so they survive restarts. Hit and miss counters are
+ * exported through Micrometer as {@code cache.gets{cache=asset-commentary}}.
+ */
+@ApplicationScoped
+public class CommentaryCache {
+
+    private static final Logger LOG = Logger.getLogger(CommentaryCache.class);
+
+    @Inject
+    EntityManager em;
+
+    @Inject
+    MeterRegistry registry;
+
+    @ConfigProperty(name = "asset.commentary-cache.maximum-size", defaultValue = "10000")
+    long maximumSize;
+
+    @ConfigProperty(name = "asset.commentary-cache.expire-after-write", defaultValue = "24H")
+    Duration expireAfterWrite;
+
+    @ConfigProperty(name = "asset.commentary-cache.persistent.enabled", defaultValue = "false")
+    boolean persistentEnabled;
+
+    private Cache<Key, String> cache;
+    // System message hashes by bot method, they only change with a deployment
+    private final Map<String, String> systemMessageHashes = new ConcurrentHashMap<>();
+    private Counter persistentHits;
+    private Counter persistentMisses;
+
+    record Key(Long assetId, Long version, String promptHash, int referenceHash) {}
+
+    @PostConstruct
+    void init() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(registry, cache, "asset-commentary");
+        persistentHits = registry.counter("asset.commentary.cache.persistent", "result", "hit");
+        persistentMisses = registry.counter("asset.commentary.cache.persistent", "result", "miss");
+    }
+
+    /**
+     * Hashes the system message of the given {@link AssetSearchBot} method together with
+     * an optional variant (e.g. request criteria that are part of the user message).
+     * Methods sharing a system message, such as a call and its streamed variant, share
+     * their commentary.
+     * @param variant Extra prompt input that changes the commentary, may be null
+     * @param botMethod Name of the bot method whose system message produces the commentary
+     * @return Hex encoded SHA-256 hash
+     */
+    public String promptHash(String variant, String botMethod) {
+        var systemMessageHash = systemMessageHashes.computeIfAbsent(botMethod,
+                name -> sha256(systemMessage(name)));
+        return variant != null ? sha256(systemMessageHash + '\n' + variant) : systemMessageHash;
+    }
+
+    public Optional<String> get(AssetSearchDTO asset, String promptHash) {
+        var key = keyOf(asset, promptHash);
+        if (key == null) {
+            return Optional.empty();
+        }
+
+        var commentary = cache.getIfPresent(key);
+        if (commentary == null && persistentEnabled) {
+            commentary = loadPersistent(key);
+            if (commentary != null) {
+                cache.put(key, commentary);
+            }
+        }
+        return Optional.ofNullable(commentary);
+    }
+
+    public void put(AssetSearchDTO asset, String promptHash, String commentary) {
+        var key = keyOf(asset, promptHash);
+        if (key == null || commentary == null || commentary.isBlank()) {
+            return;
+        }
+
+        cache.put(key, commentary);
+        if (persistentEnabled) {
+            storePersistent(key, commentary);
+        }
+    }
+
+    /**
+     * @param promptHashes Prompts whose commentary is acceptable, in order of preference
+     * @return Copy of the results where every cached commentary is filled in; misses keep a null commentary
+     */
+    public List<AssetSearchDTO> applyCached(List<AssetSearchDTO> results, String... promptHashes) {
+        List<AssetSearchDTO> applied = new ArrayList<>(results.size());
+        for (var asset : results) {
+            var commentary = Optional.<String>empty();
+            for (int i = 0; i < promptHashes.length && commentary.isEmpty(); i++) {
+                commentary = get(asset, promptHashes[i]);
+            }
+            applied.add(commentary.map(asset::withLlmCommentary).orElse(asset));
+        }
+        return applied;
+    }
+
+    private Key keyOf(AssetSearchDTO asset, String promptHash) {
+        if (asset.id() == null || asset.version() == null) {
+            return null;
+        }
+        var referenceHash = Objects.hash(asset.brandName(), asset.typeName(), asset.categoryName(),
+                asset.subCategoryName());
+        return new Key(Long.valueOf(asset.id()), asset.version(), promptHash, referenceHash);
+    }
+
+    private String loadPersistent(Key key) {
+        try {
+            var rows = QuarkusTransaction.requiringNew().call(() -> em.createQuery("""
+                            select c.commentary from AssetCommentary c
+                            where c.assetId = :assetId and c.assetVersion = :version and c.promptHash = :promptHash
+                              and c.referenceHash = :referenceHash
+                            """, String.class)
+                    .setParameter("assetId", key.assetId())
+                    .setParameter("version", key.version())
+                    .setParameter("promptHash", key.promptHash())
+                    .setParameter("referenceHash", key.referenceHash())
+                    .getResultList());
+            if (rows.isEmpty()) {
+                persistentMisses.increment();
+                return null;
+            }
+            persistentHits.increment();
+            return rows.get(0);
+        } catch (Exception e) {
+            LOG.warnf("Failed to read persisted commentary for asset %d: %s", key.assetId(), e.getMessage());
+            return null;
+        }
+    }
+
+    private void storePersistent(Key key, String commentary) {
+        try {
+            QuarkusTransaction.requiringNew().run(() -> {
+                // Older versions of this asset's commentary, and commentary on renamed reference
+                // data, can never be hit again
+                em.createQuery("""
+                                delete from AssetCommentary c
+                                where c.assetId = :assetId and c.promptHash = :promptHash and c.assetVersion <= :version
+                                """)
+                        .setParameter("assetId", key.assetId())
+                        .setParameter("promptHash", key.promptHash())
+                        .setParameter("version", key.version())
+                        .executeUpdate();
+
+                var row = new AssetCommentary();
+                row.setAssetId(key.assetId());
+                row.setAssetVersion(key.version());
+                row.setPromptHash(key.promptHash());
+                row.setReferenceHash(key.referenceHash());
+                row.setCommentary(commentary);
+                em.persist(row);
+            });
+        } catch (Exception e) {
+            LOG.warnf("Failed to persist commentary for asset %d: %s", key.assetId(), e.getMessage());
+        }
+    }
+
+    private static String sha256(String text) {
+        try {
+            var digest = MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static String systemMessage(String botMethod) {
+        for (Method method : AssetSearchBot.class.getMethods()) {
+            if (method.getName().equals(botMethod)) {
+                var systemMessage = method.getAnnotation(SystemMessage.class);
+                return systemMessage != null ? String.join("\n", systemMessage.value()) : "";
+            }
+        }
+        throw new IllegalArgumentException("Unknown AssetSearchBot method: " + botMethod);
+    }
+}
@@ -0,0 +1,488 @@
+package org.dimsen.service;
+
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import org.dimsen.model.Asset;
+import org.dimsen.model.AssetConditionHistory;
+import org.dimsen.model.AssetLocationHistory;
+import org.dimsen.model.Brand;
+import org.dimsen.model.Category;
+import org.dimsen.model.IndexWatermark;
+import org.dimsen.model.Issue;
+import org.dimsen.model.SubCategory;
+import org.dimsen.model.Type;
+import org.dimsen.model.base.BaseEntity;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.hibernate.jpa.SpecHints;
+import org.hibernate.search.mapper.orm.Search;
+import org.hibernate.search.mapper.orm.mapping.SearchMapping;
+import org.hibernate.search.mapper.orm.session.SearchSession;
+import org.jboss.logging.Logger;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Keeps the Elasticsearch indexes in step with the database out of band, so that
+ * search requests never have to run a mass indexer themselves.
+ * <p>
+ * For every indexed entity type the tracker remembers the last indexed generation:
+ * the highest {@code coalesce(updatedAt, createdAt)} watermark that has been pushed
+ * to the index. The first refresh runs a full mass index, which updates documents in
+ * place since the indexes outlive restarts; subsequent refreshes only reindex rows whose
+ * timestamp moved past the watermark. Timestamps are set at flush, before commit, so each
+ * refresh re-reads the {@code asset.index.freshness.overlap} window behind the watermark
+ * and skips the rows whose version it already indexed. Soft-deleted rows are deleted
+ * from the index. Embedded entities (issues, condition and location history) are
+ * reindexed through the indexing plan, which also reindexes the {@link Asset} documents
+ * that embed them.
+ * <p>
+ * Deleted rows leave no timestamp behind: documents without a live row are purged after
+ * the full index and every {@code asset.index.freshness.purge-interval}.
+ * <p>
+ * Generations and watermarks are stored in the {@link IndexWatermark} table whenever they
+ * move, and loaded by the first refresh after a restart. The full mass index only runs
+ * when no watermark is stored yet.
+ */
+@ApplicationScoped
+public class IndexFreshnessTracker {
+
+    private static final Logger LOG = Logger.getLogger(IndexFreshnessTracker.class);
+
+    private static final List<Class<? extends BaseEntity>> TRACKED_TYPES = List.of(
+            Asset.class,
+            Issue.class,
+            AssetConditionHistory.class,
+            AssetLocationHistory.class,
+            Brand.class,
+            Category.class,
+            Type.class,
+            SubCategory.class
+    );
+
+    @Inject
+    EntityManager em;
+
+    @Inject
+    SearchMapping searchMapping;
+
+    @Inject
+    SearchResultCache resultCache;
+
+    @Inject
+    BlueGreenReindexer blueGreen;
+
+    @ConfigProperty(name = "asset.index.freshness.batch-size", defaultValue = "100")
+    int batchSize;
+
+    @ConfigProperty(name = "asset.index.freshness.overlap", defaultValue = "1m")
+    Duration overlap;
+
+    @ConfigProperty(name = "asset.index.freshness.purge-batch-size", defaultValue = "1000")
+    int purgeBatchSize;
+
+    private final Map<Class<? extends BaseEntity>, IndexGeneration> generations = new ConcurrentHashMap<>();
+    // Versions indexed by delta passes, by type and id, for rows inside the overlap window
+    private final Map<Class<? extends BaseEntity>, Map<Long, IndexedVersion>> indexedVersions = new ConcurrentHashMap<>();
+    private final ReentrantLock refreshLock = new ReentrantLock();
+
+    /**
+     * Last indexed state of a single entity type
+     * @param generation Monotonic counter, incremented each time entities of this type were reindexed
+     * @param watermark Highest modification timestamp known to be in the index
+     * @param lastIndexedCount Number of entities pushed to the index by the last refresh
+     * @param refreshedAt When this type was last checked
+     */
+    public record IndexGeneration(
+            long generation,
+            LocalDateTime watermark,
+            long lastIndexedCount,
+            LocalDateTime refreshedAt
+    ) {}
+
+    /**
+     * State of a row pushed to the index
+     * @param version Optimistic lock version of the row
+     * @param modifiedAt {@code coalesce(updatedAt, createdAt)} of the row
+     */
+    private record IndexedVersion(Long version, LocalDateTime modifiedAt) {}
+
+    @Scheduled(every = "${asset.index.freshness.interval}",
+               delayed = "${asset.index.freshness.initial-delay}",
+               concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void scheduledRefresh() {
+        refresh();
+    }
+
+    @Scheduled(every = "${asset.index.freshness.purge-interval}",
+               delayed = "${asset.index.freshness.purge-interval}",
+               concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void scheduledPurge() {
+        if (!isInitialized() || !refreshLock.tryLock()) {
+            return;
+        }
+        try {
+            TRACKED_TYPES.forEach(this::purgeOrphans);
+        } catch (Exception e) {
+            LOG.errorf(e, "Purging deleted documents failed: %s", e.getMessage());
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    /**
+     * Brings the indexes up to date. Runs a full mass index on the first call and
+     * incremental reindexing afterwards. Concurrent callers skip instead of queueing.
+     * @return true if a refresh ran, false if another refresh was already in progress
+     */
+    public boolean refresh() {
+        if (!refreshLock.tryLock()) {
+            LOG.debug("Index refresh already in progress, skipping");
+            return false;
+        }
+        try {
+            if (!generations.containsKey(Asset.class)) {
+                loadGenerations();
+            }
+            if (!generations.containsKey(Asset.class)) {
+                fullReindex();
+                // The mass index does not purge, documents of rows deleted meanwhile are left over
+                TRACKED_TYPES.forEach(this::purgeOrphans);
+            } else {
+                for (var type : TRACKED_TYPES) {
+                    deltaReindex(type);
+                }
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOG.warn("Index refresh interrupted");
+            return false;
+        } catch (Exception e) {
+            LOG.errorf(e, "Index refresh failed: %s", e.getMessage());
+            return false;
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    /**
+     * @return Indexed entity types whose generations are tracked
+     */
+    public List<Class<? extends BaseEntity>> trackedTypes() {
+        return TRACKED_TYPES;
+    }
+
+    /**
+     * @return Whether the initial full index has completed
+     */
+    public boolean isInitialized() {
+        return generations.containsKey(Asset.class);
+    }
+
+    /**
+     * @return Snapshot of the last indexed generation per entity type, keyed by simple class name
+     */
+    public Map<String, IndexGeneration> generations() {
+        Map<String, IndexGeneration> snapshot = new LinkedHashMap<>();
+        for (var type : TRACKED_TYPES) {
+            var generation = generations.get(type);
+            if (generation != null) {
+                snapshot.put(type.getSimpleName(), generation);
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * Records that every tracked type has been fully indexed up to the given watermarks,
+     * e.g. after an explicit mass index triggered outside the tracker.
+     */
+    public void markFullyIndexed(Map<Class<? extends BaseEntity>, LocalDateTime> watermarks) {
+        var now = LocalDateTime.now();
+        watermarks.forEach((type, watermark) -> {
+            var previous = generations.get(type);
+            record(type, new IndexGeneration(previous != null ? previous.generation() + 1 : 1, watermark, -1, now));
+        });
+    }
+
+    /**
+     * Loads the generations stored by a previous run
+     */
+    private void loadGenerations() {
+        var stored = QuarkusTransaction.requiringNew().call(() -> em.createQuery(
+                "from IndexWatermark w", IndexWatermark.class).getResultList());
+        var now = LocalDateTime.now();
+        for (var row : stored) {
+            TRACKED_TYPES.stream()
+                    .filter(type -> type.getSimpleName().equals(row.getEntityType()))
+                    .findFirst()
+                    .ifPresent(type -> generations.putIfAbsent(type,
+                            new IndexGeneration(row.getGeneration(), row.getWatermark(), 0, now)));
+        }
+        if (generations.containsKey(Asset.class)) {
+            LOG.infof("Resuming incremental index refreshes from stored watermarks %s", generations());
+        }
+    }
+
+    /**
+     * Records the generation of a type, storing it when its generation or watermark moved
+     */
+    private void record(Class<? extends BaseEntity> type, IndexGeneration generation) {
+        var previous = generations.put(type, generation);
+        if (previous != null && previous.generation() == generation.generation()
+                && Objects.equals(previous.watermark(), generation.watermark())) {
+            return;
+        }
+        QuarkusTransaction.requiringNew().run(() -> {
+            var row = em.createQuery("from IndexWatermark w where w.entityType = :type", IndexWatermark.class)
+                    .setParameter("type", type.getSimpleName())
+                    .getResultStream()
+                    .findFirst()
+                    .orElseGet(() -> {
+                        var created = new IndexWatermark();
+                        created.setEntityType(type.getSimpleName());
+                        return created;
+                    });
+            row.setGeneration(generation.generation());
+            row.setWatermark(generation.watermark());
+            if (row.getId() == null) {
+                em.persist(row);
+            }
+        });
+    }
+
+    /**
+     * Reads the current modification watermark of every tracked type. Must be captured
+     * before a mass index starts so that rows modified during indexing are picked up
+     * by the next incremental refresh.
+     */
+    public Map<Class<? extends BaseEntity>, LocalDateTime> currentWatermarks() {
+        return QuarkusTransaction.requiringNew().call(() -> {
+            Map<Class<? extends BaseEntity>, LocalDateTime> watermarks = new LinkedHashMap<>();
+            for (var type : TRACKED_TYPES) {
+                watermarks.put(type, readWatermark(type));
+            }
+            return watermarks;
+        });
+    }
+
+    private void fullReindex() throws InterruptedException {
+        LOG.info("No index generation recorded yet, running initial full index");
+        var startTime = System.currentTimeMillis();
+
+        var watermarks = currentWatermarks();
+        // No purge: searches keep answering from the existing documents while indexing
+        searchMapping.scope(Object.class).massIndexer()
+                .purgeAllOnStart(false)
+                .threadsToLoadObjects(4)
+                .batchSizeToLoadObjects(50)
+                .idFetchSize(150)
+                .startAndWait();
+        markFullyIndexed(watermarks);
+        resultCache.invalidateAll();
+
+        var duration = System.currentTimeMillis() - startTime;
+        LOG.infof("Initial full index completed in %d ms", duration);
+    }
+
+    private void deltaReindex(Class<? extends BaseEntity> type) {
+        var previous = generations.get(type);
+        var since = previous != null ? previous.watermark() : null;
+        var startTime = System.currentTimeMillis();
+
+        var result = QuarkusTransaction.requiringNew().call(() -> {
+            var upTo = readWatermark(type);
+            if (upTo == null) {
+                return new DeltaResult(since, 0, 0);
+            }
+            // Timestamps are taken at flush: a row stamped before the watermark may commit after
+            // it was read, so every pass re-reads an overlap window behind the watermark
+            var watermark = since != null && since.isAfter(upTo) ? since : upTo;
+            var from = since != null ? since.minus(overlap) : null;
+            return reindexRange(type, from, upTo, watermark);
+        });
+
+        var now = LocalDateTime.now();
+        var changed = result.indexed() + result.purged();
+        if (changed == 0) {
+            record(type, previous != null
+                    ? new IndexGeneration(previous.generation(), result.watermark(), 0, now)
+                    : new IndexGeneration(0, result.watermark(), 0, now));
+            return;
+        }
+
+        var generation = previous != null ? previous.generation() + 1 : 1;
+        record(type, new IndexGeneration(generation, result.watermark(), changed, now));
+
+        var duration = System.currentTimeMillis() - startTime;
+        LOG.infof("Reindexed %d changed and purged %d deleted %s entities in %d ms (generation %d)",
+                  result.indexed(), result.purged(), type.getSimpleName(), duration, generation);
+    }
+
+    /**
+     * Reindexes the rows modified in {@code (since, upTo]}. Rows already indexed at their
+     * current version by a previous pass of the overlap window are skipped, soft-deleted
+     * rows are deleted from the index.
+     * @param watermark Watermark after this pass, versions are remembered for rows inside its overlap window
+     */
+    private DeltaResult reindexRange(Class<? extends BaseEntity> type, LocalDateTime since, LocalDateTime upTo,
+                                     LocalDateTime watermark) {
+        SearchSession searchSession = Search.session(em);
+        var versions = indexedVersions.computeIfAbsent(type, key -> new ConcurrentHashMap<>());
+        var windowStart = watermark.minus(overlap);
+        var jpql = "select e from " + type.getSimpleName() + " e"
+                + " where coalesce(e.updatedAt, e.createdAt) <= :upTo"
+                + (since != null ? " and coalesce(e.updatedAt, e.createdAt) > :since" : "")
+                + " and e.id > :lastId order by e.id";
+
+        long indexed = 0;
+        long purged = 0;
+        long lastId = 0;
+        while (true) {
+            var query = em.createQuery(jpql, type)
+                    .setParameter("upTo", upTo)
+                    .setParameter("lastId", lastId)
+                    .setMaxResults(batchSize);
+            if (since != null) {
+                query.setParameter("since", since);
+            }
+            if (type == Asset.class) {
+                query.setHint(SpecHints.HINT_SPEC_LOAD_GRAPH, em.getEntityGraph(Asset.SEARCH_HIT_GRAPH));
+            }
+
+            var batch = query.getResultList();
+            if (batch.isEmpty()) {
+                break;
+            }
+
+            var indexingPlan = searchSession.indexingPlan();
+            List<BaseEntity> live = new ArrayList<>();
+            List<Long> deleted = new ArrayList<>();
+            Set<Long> containingAssetIds = new LinkedHashSet<>();
+            Map<Long, IndexedVersion> seen = new HashMap<>();
+            for (var entity : batch) {
+                var version = new IndexedVersion(entity.getVersion(), modifiedAt(entity));
+                if (version.equals(versions.get(entity.getId()))) {
+                    continue;
+                }
+                // Also reindexes the documents embedding the entity
+                if (Boolean.TRUE.equals(entity.getIsDeleted())) {
+                    indexingPlan.delete(entity);
+                    deleted.add(entity.getId());
+                } else {
+                    indexingPlan.addOrUpdate(entity);
+                    live.add(entity);
+                }
+                IndexSyncQueue.documentRefs(entity).stream()
+                        .filter(document -> document.type() != type)
+                        .forEach(document -> containingAssetIds.add(document.id()));
+                if (version.modifiedAt().isAfter(windowStart)) {
+                    seen.put(entity.getId(), version);
+                }
+            }
+
+            if (!live.isEmpty() || !deleted.isEmpty()) {
+                indexingPlan.execute();
+                versions.putAll(seen);
+                blueGreen.mirror(type, live.stream().map(BaseEntity::getId).toList(), deleted);
+                blueGreen.mirror(Asset.class, containingAssetIds, List.of());
+                resultCache.onIndexed(type, live, deleted);
+            }
+            em.clear();
+
+            indexed += live.size();
+            purged += deleted.size();
+            lastId = batch.get(batch.size() - 1).getId();
+            if (batch.size() < batchSize) {
+                break;
+            }
+        }
+
+        versions.values().removeIf(version -> !version.modifiedAt().isAfter(windowStart));
+        return new DeltaResult(watermark, indexed, purged);
+    }
+
+    /**
+     * Purges the documents of the type whose rows no longer exist or are soft deleted.
+     * Deletes made through the ORM are purged by the {@link IndexSyncQueue}; this catches
+     * rows deleted by SQL, while the application was down, or before a full index.
+     * @return Number of purged documents
+     */
+    public long purgeOrphans(Class<? extends BaseEntity> type) {
+        long purged = 0;
+        long lastId = 0;
+        while (true) {
+            var afterId = lastId;
+            var chunk = QuarkusTransaction.requiringNew().call(() -> purgeChunk(type, afterId));
+            if (!chunk.purged().isEmpty()) {
+                blueGreen.mirror(type, List.of(), chunk.purged());
+                resultCache.onIndexed(type, List.of(), chunk.purged());
+                purged += chunk.purged().size();
+            }
+            if (chunk.scanned() < purgeBatchSize) {
+                break;
+            }
+            lastId = chunk.lastId();
+        }
+        if (purged > 0) {
+            LOG.infof("Purged %d %s documents without a live row", purged, type.getSimpleName());
+        }
+        return purged;
+    }
+
+    /**
+     * Checks the next indexed ids, in id order, against the database
+     */
+    private PurgeChunk purgeChunk(Class<? extends BaseEntity> type, long afterId) {
+        var searchSession = Search.session(em);
+        List<Long> ids = searchSession.search(type)
+                .select(f -> f.id(Long.class))
+                .where(f -> f.range().field("id").greaterThan(afterId))
+                .sort(f -> f.field("id"))
+                .fetchHits(purgeBatchSize);
+        if (ids.isEmpty()) {
+            return new PurgeChunk(0, afterId, List.of());
+        }
+
+        Set<Long> live = new HashSet<>(em.createQuery("select e.id from " + type.getSimpleName() + " e"
+                        + " where e.id in :ids and e.isDeleted = false", Long.class)
+                .setParameter("ids", ids)
+                .getResultList());
+        List<Long> orphans = ids.stream().filter(id -> !live.contains(id)).toList();
+        if (!orphans.isEmpty()) {
+            var indexingPlan = searchSession.indexingPlan();
+            orphans.forEach(id -> indexingPlan.purge(type, id, null));
+            indexingPlan.execute();
+        }
+        return new PurgeChunk(ids.size(), ids.get(ids.size() - 1), orphans);
+    }
+
+    private static LocalDateTime modifiedAt(BaseEntity entity) {
+        return entity.getUpdatedAt() != null ? entity.getUpdatedAt() : entity.getCreatedAt();
+    }
+
+    private LocalDateTime readWatermark(Class<? extends BaseEntity> type) {
+        return em.createQuery("select max(coalesce(e.updatedAt, e.createdAt)) from "
+                        + type.getSimpleName() + " e", LocalDateTime.class)
+                .getSingleResult();
+    }
+
+    private record DeltaResult(LocalDateTime watermark, long indexed, long purged) {}
+
+    private record PurgeChunk(int scanned, long lastId, List<Long> purged) {}
+}
@@ -0,0 +1,21 @@
+package org.dimsen.service;
+
+import io.quarkus.arc.Arc;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.dimsen.model.base.BaseEntity;
+
+/**
+ * Hands written indexed entities over to the {@link IndexSyncQueue}. Hibernate Search's
+ * own listeners are disabled, so nothing is indexed during the ORM flush.
+ */
+public class IndexSyncListener {
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    void onWrite(BaseEntity entity) {
+        Arc.container().instance(IndexSyncQueue.class).get().recordChange(entity);
+    }
+}
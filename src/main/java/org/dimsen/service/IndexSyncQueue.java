@@ -0,0 +1,565 @@
+package org.dimsen.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+import org.dimsen.enums.IndexConsistencyMode;
+import org.dimsen.model.Asset;
+import org.dimsen.model.AssetConditionHistory;
+import org.dimsen.model.AssetLocationHistory;
+import org.dimsen.model.Issue;
+import org.dimsen.model.base.BaseEntity;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.hibernate.Hibernate;
+import org.hibernate.jpa.SpecHints;
+import org.hibernate.search.mapper.orm.Search;
+import org.hibernate.search.mapper.orm.mapping.SearchMapping;
+import org.hibernate.search.mapper.pojo.work.IndexingPlanSynchronizationStrategy;
+import org.jboss.logging.Logger;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Write-behind synchronization of the Elasticsearch indexes.
+ * <p>
+ * Hibernate Search's automatic indexing is disabled; {@link IndexSyncListener} reports
+ * every written indexed entity instead. The changes of a transaction are handed to this
+ * queue only once it commits. Changes to the same document are coalesced while queued,
+ * and changes to issues and history entries are recorded against their asset as well,
+ * so a burst of issue updates reindexes the asset once. A single virtual-thread consumer
+ * drains the queue in batches and pushes each batch with one indexing plan execution,
+ * which the Elasticsearch backend sends as bulk requests.
+ * <p>
+ * Writers choose how long they wait with {@link #withConsistency(IndexConsistencyMode, Callable)}:
+ * not at all, until the batch holding their changes has been written, or until it has
+ * also been refreshed.
+ * <p>
+ * A failed batch is split in halves until the failing documents are isolated, so one bad
+ * document (e.g. a vector of the wrong dimension) does not hold back the documents
+ * coalesced with it. Failing documents are queued again after
+ * {@code asset.index.write-behind.retry-backoff}; after
+ * {@code asset.index.write-behind.max-attempts} attempts they are moved to the dead
+ * letters reported by {@link #status()}, until a later change queues them again.
+ */
+@ApplicationScoped
+public class IndexSyncQueue {
+
+    private static final Logger LOG = Logger.getLogger(IndexSyncQueue.class);
+
+    @Inject
+    EntityManager em;
+
+    @Inject
+    MeterRegistry registry;
+
+    @Inject
+    TransactionSynchronizationRegistry transactionRegistry;
+
+    @Inject
+    SearchResultCache resultCache;
+
+    @Inject
+    BlueGreenReindexer blueGreen;
+
+    @Inject
+    SearchMapping searchMapping;
+
+    @ConfigProperty(name = "asset.index.write-behind.batch-size", defaultValue = "200")
+    int batchSize;
+
+    @ConfigProperty(name = "asset.index.write-behind.linger", defaultValue = "250ms")
+    Duration linger;
+
+    @ConfigProperty(name = "asset.index.write-behind.sync-timeout", defaultValue = "10s")
+    Duration syncTimeout;
+
+    @ConfigProperty(name = "asset.index.write-behind.retry-backoff", defaultValue = "1s")
+    Duration retryBackoff;
+
+    @ConfigProperty(name = "asset.index.write-behind.max-attempts", defaultValue = "5")
+    int maxAttempts;
+
+    private final BlockingQueue<DocumentRef> queue = new LinkedBlockingQueue<>();
+    private final Map<DocumentRef, PendingDocument> pending = new ConcurrentHashMap<>();
+    // Failed attempts of documents that are being retried
+    private final Map<DocumentRef, Integer> attempts = new ConcurrentHashMap<>();
+    private final Map<DocumentRef, DeadLetter> deadLetters = new ConcurrentHashMap<>();
+    private final ThreadLocal<ConsistencyScope> scope = new ThreadLocal<>();
+    private final ThreadLocal<Boolean> unrecorded = new ThreadLocal<>();
+    private volatile boolean running;
+    private Thread consumer;
+
+    private Counter indexed;
+    private Counter purged;
+    private Counter retried;
+    private Counter failed;
+    private Counter coalesced;
+    private DistributionSummary batchSizes;
+    private Timer batchTimer;
+    private Timer indexingLag;
+    private Timer syncWait;
+
+    /**
+     * Document of an indexed entity
+     */
+    public record DocumentRef(Class<? extends BaseEntity> type, Long id) {}
+
+    /**
+     * Snapshot of the queue
+     * @param backlog Documents waiting to be indexed
+     * @param lagSeconds Age of the oldest waiting change
+     * @param deadLetters Documents that are no longer retried
+     */
+    public record QueueStatus(int backlog, double lagSeconds, List<DeadLetter> deadLetters) {}
+
+    /**
+     * A document whose indexing failed {@code asset.index.write-behind.max-attempts} times
+     * @param error Message of the last failure
+     */
+    public record DeadLetter(String type, Long id, int attempts, String error, LocalDateTime failedAt) {}
+
+    /**
+     * A queued document and the writers waiting for it. Mutated only inside
+     * {@link ConcurrentHashMap#compute} of {@link #pending}.
+     */
+    private static final class PendingDocument {
+        final long enqueuedAt = System.nanoTime();
+        final List<Waiter> waiters = new ArrayList<>(1);
+    }
+
+    private record Waiter(CompletableFuture<Void> future, boolean refresh) {}
+
+    private record ConsistencyScope(IndexConsistencyMode mode, List<CompletableFuture<Void>> futures) {}
+
+    void onStart(@Observes StartupEvent event) {
+        registry.gauge("asset.index.write-behind.backlog", queue, BlockingQueue::size);
+        registry.gauge("asset.index.write-behind.lag.seconds", this, self -> self.status().lagSeconds());
+        indexed = registry.counter("asset.index.write-behind.documents", "result", "indexed");
+        purged = registry.counter("asset.index.write-behind.documents", "result", "purged");
+        retried = registry.counter("asset.index.write-behind.documents", "result", "retried");
+        failed = registry.counter("asset.index.write-behind.documents", "result", "failed");
+        registry.gauge("asset.index.write-behind.dead-letters", deadLetters, Map::size);
+        coalesced = registry.counter("asset.index.write-behind.documents", "result", "coalesced");
+        batchSizes = registry.summary("asset.index.write-behind.batch.size");
+        batchTimer = registry.timer("asset.index.write-behind.batch.duration");
+        indexingLag = registry.timer("asset.index.write-behind.latency");
+        syncWait = registry.timer("asset.index.write-behind.sync.wait");
+
+        running = true;
+        consumer = Thread.ofVirtual().name("index-write-behind").start(this::consume);
+    }
+
+    void onStop(@Observes ShutdownEvent event) {
+        running = false;
+        if (consumer != null) {
+            consumer.interrupt();
+        }
+    }
+
+    /**
+     * @return Current backlog, lag and dead letters
+     */
+    public QueueStatus status() {
+        var head = queue.peek();
+        var document = head != null ? pending.get(head) : null;
+        var lag = document != null ? (System.nanoTime() - document.enqueuedAt) / 1e9 : 0d;
+        var dead = deadLetters.values().stream()
+                .sorted(Comparator.comparing(DeadLetter::failedAt))
+                .toList();
+        return new QueueStatus(queue.size(), lag, dead);
+    }
+
+    /**
+     * Runs an action and waits until the index changes of the transactions it committed
+     * reached the given consistency. Waiting longer than
+     * {@code asset.index.write-behind.sync-timeout} is logged, not failed: the data is
+     * committed and the queue keeps retrying.
+     */
+    public <T> T withConsistency(IndexConsistencyMode mode, Callable<T> action) throws Exception {
+        var previous = scope.get();
+        var current = new ConsistencyScope(mode, Collections.synchronizedList(new ArrayList<>()));
+        scope.set(current);
+        T result;
+        try {
+            result = action.call();
+        } finally {
+            if (previous != null) {
+                scope.set(previous);
+            } else {
+                scope.remove();
+            }
+        }
+        awaitIndexed(current);
+        return result;
+    }
+
+    /**
+     * Runs a bulk write whose changes are not recorded. The caller indexes the written
+     * documents itself once committed, with {@link #index(Collection)}.
+     */
+    public <T> T withoutRecording(Callable<T> action) throws Exception {
+        var previous = unrecorded.get();
+        unrecorded.set(Boolean.TRUE);
+        try {
+            return action.call();
+        } finally {
+            if (previous != null) {
+                unrecorded.set(previous);
+            } else {
+                unrecorded.remove();
+            }
+        }
+    }
+
+    /**
+     * Indexes documents synchronously on the calling thread with a single indexing plan,
+     * bypassing the queue. Meant for bulk writes made {@link #withoutRecording(Callable) without recording}.
+     */
+    public void index(Collection<DocumentRef> documents) {
+        if (documents.isEmpty()) {
+            return;
+        }
+        var startTime = System.nanoTime();
+        indexBatch(List.copyOf(documents), false);
+        batchTimer.record(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Refreshes the indexes of the types, so that the next search sees every document
+     * written to them
+     */
+    public void refresh(Collection<Class<? extends BaseEntity>> types) {
+        searchMapping.scope(types).workspace().refresh();
+    }
+
+    /**
+     * Records a written entity. Inside a transaction the change is queued when the
+     * transaction commits and dropped when it rolls back; without one it is queued at once.
+     */
+    public void recordChange(BaseEntity entity) {
+        if (Boolean.TRUE.equals(unrecorded.get())) {
+            return;
+        }
+        var documents = documentRefs(entity);
+        if (documents.isEmpty()) {
+            return;
+        }
+
+        if (transactionRegistry.getTransactionKey() == null) {
+            submit(documents, IndexConsistencyMode.NONE);
+            return;
+        }
+
+        @SuppressWarnings("unchecked")
+        var changes = (Set<DocumentRef>) transactionRegistry.getResource(IndexSyncQueue.class);
+        if (changes == null) {
+            var transactionChanges = new LinkedHashSet<DocumentRef>();
+            var owner = scope.get();
+            transactionRegistry.putResource(IndexSyncQueue.class, transactionChanges);
+            transactionRegistry.registerInterposedSynchronization(new Synchronization() {
+                @Override
+                public void beforeCompletion() {
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != Status.STATUS_COMMITTED) {
+                        return;
+                    }
+                    var mode = owner != null ? owner.mode() : IndexConsistencyMode.NONE;
+                    var futures = submit(transactionChanges, mode);
+                    if (owner != null) {
+                        owner.futures().addAll(futures);
+                    }
+                }
+            });
+            changes = transactionChanges;
+        }
+        changes.addAll(documents);
+    }
+
+    /**
+     * Queues documents for indexing, coalescing with documents that are already queued
+     * @return One future per document when the mode waits, completed once it is indexed
+     */
+    public List<CompletableFuture<Void>> submit(Collection<DocumentRef> documents, IndexConsistencyMode mode) {
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (var document : documents) {
+            var waiter = mode == IndexConsistencyMode.NONE
+                    ? null
+                    : new Waiter(new CompletableFuture<>(), mode == IndexConsistencyMode.READ_SYNC);
+            var added = new boolean[1];
+            pending.compute(document, (key, queued) -> {
+                if (queued == null) {
+                    queued = new PendingDocument();
+                    added[0] = true;
+                }
+                if (waiter != null) {
+                    queued.waiters.add(waiter);
+                }
+                return queued;
+            });
+
+            if (added[0]) {
+                deadLetters.remove(document);
+                queue.offer(document);
+            } else {
+                coalesced.increment();
+            }
+            if (waiter != null) {
+                futures.add(waiter.future());
+            }
+        }
+        return futures;
+    }
+
+    /**
+     * Documents affected by a change of the entity: the entity itself and, for entities
+     * embedded in the asset document, the asset
+     */
+    static List<DocumentRef> documentRefs(BaseEntity entity) {
+        if (entity.getId() == null) {
+            return List.of();
+        }
+        @SuppressWarnings("unchecked")
+        var type = (Class<? extends BaseEntity>) Hibernate.getClass(entity);
+        List<DocumentRef> documents = new ArrayList<>(2);
+        documents.add(new DocumentRef(type, entity.getId()));
+
+        Asset asset = switch (entity) {
+            case Issue issue -> issue.getAsset();
+            case AssetConditionHistory history -> history.getAsset();
+            case AssetLocationHistory history -> history.getAsset();
+            default -> null;
+        };
+        if (asset != null && asset.getId() != null) {
+            documents.add(new DocumentRef(Asset.class, asset.getId()));
+        }
+        return documents;
+    }
+
+    private void awaitIndexed(ConsistencyScope current) {
+        List<CompletableFuture<Void>> futures;
+        synchronized (current.futures()) {
+            futures = List.copyOf(current.futures());
+        }
+        if (futures.isEmpty()) {
+            return;
+        }
+
+        var startTime = System.nanoTime();
+        try {
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new))
+                    .get(syncTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            LOG.warnf("%d documents not indexed within %s (%s), continuing; backlog=%d",
+                      futures.size(), syncTimeout, current.mode(), queue.size());
+        } catch (ExecutionException e) {
+            LOG.warnf(e.getCause(), "Index sync failed (%s), changes will be retried in the background",
+                      current.mode());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            syncWait.record(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void consume() {
+        while (running) {
+            try {
+                var first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+
+                List<DocumentRef> batch = new ArrayList<>(batchSize);
+                batch.add(first);
+                var lingerUntil = System.nanoTime() + linger.toNanos();
+                while (batch.size() < batchSize) {
+                    var remaining = lingerUntil - System.nanoTime();
+                    var next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+
+                // Removed before indexing so that writes committed during the batch are queued again
+                Map<DocumentRef, List<Waiter>> waiters = new LinkedHashMap<>();
+                long oldest = System.nanoTime();
+                for (var document : batch) {
+                    var queued = pending.remove(document);
+                    if (queued != null) {
+                        waiters.put(document, queued.waiters);
+                        oldest = Math.min(oldest, queued.enqueuedAt);
+                    }
+                }
+
+                var refresh = waiters.values().stream().flatMap(List::stream).anyMatch(Waiter::refresh);
+                var startTime = System.nanoTime();
+                var failures = indexIsolatingFailures(batch, refresh);
+                batchTimer.record(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+                indexingLag.record(System.nanoTime() - oldest, TimeUnit.NANOSECONDS);
+
+                for (var document : batch) {
+                    var failure = failures.get(document);
+                    for (var waiter : waiters.getOrDefault(document, List.of())) {
+                        if (failure != null) {
+                            waiter.future().completeExceptionally(failure);
+                        } else {
+                            waiter.future().complete(null);
+                        }
+                    }
+                    if (failure == null) {
+                        attempts.remove(document);
+                    }
+                }
+                if (!failures.isEmpty()) {
+                    retryOrDeadLetter(failures);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                LOG.errorf(e, "Index write-behind consumer failed: %s", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Indexes a batch, splitting it in halves on failure until every failing document is
+     * indexed on its own
+     * @return The documents that failed on their own, with their failure
+     */
+    private Map<DocumentRef, Exception> indexIsolatingFailures(List<DocumentRef> batch, boolean refresh) {
+        try {
+            indexBatch(batch, refresh);
+            return Map.of();
+        } catch (Exception e) {
+            if (batch.size() == 1) {
+                return Map.of(batch.get(0), e);
+            }
+            LOG.warnf("Indexing batch of %d documents failed, splitting it: %s", batch.size(), e.getMessage());
+            var half = batch.size() / 2;
+            Map<DocumentRef, Exception> failures = new LinkedHashMap<>();
+            failures.putAll(indexIsolatingFailures(batch.subList(0, half), refresh));
+            failures.putAll(indexIsolatingFailures(batch.subList(half, batch.size()), refresh));
+            return failures;
+        }
+    }
+
+    private void retryOrDeadLetter(Map<DocumentRef, Exception> failures) throws InterruptedException {
+        List<DocumentRef> retries = new ArrayList<>();
+        failures.forEach((document, failure) -> {
+            int attempt = attempts.merge(document, 1, Integer::sum);
+            if (attempt < maxAttempts) {
+                retries.add(document);
+                return;
+            }
+            attempts.remove(document);
+            deadLetters.put(document, new DeadLetter(document.type().getSimpleName(), document.id(), attempt,
+                    failure.getMessage(), LocalDateTime.now()));
+            failed.increment();
+            LOG.errorf(failure, "Giving up on indexing %s %d after %d attempts: %s",
+                       document.type().getSimpleName(), document.id(), attempt, failure.getMessage());
+        });
+        if (retries.isEmpty()) {
+            return;
+        }
+
+        retried.increment(retries.size());
+        LOG.warnf("Indexing %d documents failed, retrying in %s", retries.size(), retryBackoff);
+        Thread.sleep(retryBackoff.toMillis());
+        submit(retries, IndexConsistencyMode.NONE);
+    }
+
+    private void indexBatch(List<DocumentRef> batch, boolean refresh) {
+        Map<Class<? extends BaseEntity>, List<Long>> idsByType = new LinkedHashMap<>();
+        for (var document : batch) {
+            idsByType.computeIfAbsent(document.type(), type -> new ArrayList<>()).add(document.id());
+        }
+
+        QuarkusTransaction.requiringNew().run(() -> {
+            var session = Search.session(em);
+            session.indexingPlanSynchronizationStrategy(IndexingPlanSynchronizationStrategy.writeSync());
+            var indexingPlan = session.indexingPlan();
+            Map<Class<? extends BaseEntity>, List<? extends BaseEntity>> indexedByType = new LinkedHashMap<>();
+            Map<Class<? extends BaseEntity>, List<Long>> purgedByType = new LinkedHashMap<>();
+
+            for (var entry : idsByType.entrySet()) {
+                var type = entry.getKey();
+                var query = em.createQuery("select e from " + type.getSimpleName() + " e where e.id in :ids", type)
+                        .setParameter("ids", entry.getValue());
+                if (type == Asset.class) {
+                    query.setHint(SpecHints.HINT_SPEC_LOAD_GRAPH, em.getEntityGraph(Asset.SEARCH_HIT_GRAPH));
+                }
+                Set<Long> found = new HashSet<>();
+                List<BaseEntity> live = new ArrayList<>();
+                List<Long> removed = new ArrayList<>();
+                for (var entity : query.getResultList()) {
+                    found.add(entity.getId());
+                    // Soft-deleted rows leave the index like deleted ones
+                    if (Boolean.TRUE.equals(entity.getIsDeleted())) {
+                        indexingPlan.delete(entity);
+                        removed.add(entity.getId());
+                    } else {
+                        indexingPlan.addOrUpdate(entity);
+                        live.add(entity);
+                    }
+                }
+                for (var id : entry.getValue()) {
+                    if (!found.contains(id)) {
+                        indexingPlan.purge(type, id, null);
+                        removed.add(id);
+                    }
+                }
+                indexed.increment(live.size());
+                purged.increment(removed.size());
+                indexedByType.put(type, live);
+                purgedByType.put(type, removed);
+            }
+            indexingPlan.execute();
+
+            if (refresh) {
+                session.workspace(idsByType.keySet()).refresh();
+            }
+            indexedByType.forEach((type, entities) -> {
+                blueGreen.mirror(type, entities.stream().map(BaseEntity::getId).toList(), purgedByType.get(type));
+                resultCache.onIndexed(type, entities, purgedByType.get(type));
+            });
+        });
+
+        batchSizes.record(batch.size());
+        LOG.debugf("Indexed %d documents (refresh=%s), backlog=%d", batch.size(), refresh, queue.size());
+    }
+}
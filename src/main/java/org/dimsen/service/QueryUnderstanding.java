@@ -0,0 +1,412 @@
+package org.dimsen.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.runtime.StartupEvent;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Turns the natural language query of a compound search into search filters.
+ * <p>
+ * A deterministic parser handles the common cases in microseconds: price and purchase
+ * date phrases are recognized by patterns, and brand, type, category, status and
+ * condition names by longest match against a dictionary built from the catalog tables.
+ * Words that are not recognized are kept as free {@code text}, which ranks the assets
+ * matched by the other filters without excluding any. Only when left-over words hint at
+ * a filter the parser could not extract (e.g. "cheap" or "broken"), the query is sent to
+ * the LLM, which answers with the filters as JSON. LLM answers are cached by normalized
+ * query.
+ * <p>
+ * Exported through Micrometer as {@code asset.search.query-understanding.duration{path}}
+ * (rules, llm, llm-cached) and {@code asset.search.query-understanding.fallback.ratio}.
+ */
+@ApplicationScoped
+public class QueryUnderstanding {
+
+    private static final Logger LOG = Logger.getLogger(QueryUnderstanding.class);
+
+    private static final Pattern TOKEN_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private static final String AMOUNT = "\\$?\\s*(\\d[\\d,]*(?:\\.\\d+)?)\\s*(k\\b)?";
+    private static final Pattern PRICE_BETWEEN = Pattern.compile(
+            "\\b(?:between|from)\\s+" + AMOUNT + "\\s*(?:and|to|-)\\s*" + AMOUNT + "(?:\\s*(?:dollars|usd))?");
+    private static final Pattern PRICE_RANGE = Pattern.compile(
+            "\\$\\s*(\\d[\\d,]*(?:\\.\\d+)?)\\s*(k\\b)?\\s*(?:-|to)\\s*" + AMOUNT);
+    private static final Pattern PRICE_MAX = Pattern.compile(
+            "\\b(?:under|below|less than|cheaper than|at most|up to|max(?:imum)?|no more than)\\s+" + AMOUNT
+                    + "(?:\\s*(?:dollars|usd))?");
+    private static final Pattern PRICE_MIN = Pattern.compile(
+            "\\b(?:over|above|more than|greater than|at least|min(?:imum)?|pricier than|costlier than)\\s+" + AMOUNT
+                    + "(?:\\s*(?:dollars|usd))?");
+    private static final Pattern AGE_OLDER = Pattern.compile(
+            "\\b(?:older than|more than|over)\\s+(\\d+)\\s+(year|month|week)s?(?:\\s+old)?");
+    private static final Pattern AGE_NEWER = Pattern.compile(
+            "\\b(?:newer than|less than|under|within(?: the)?(?: last)?|in the (?:last|past)|last|past)\\s+(\\d+)\\s+(year|month|week)s?(?:\\s+old)?");
+    private static final Pattern YEAR_IN = Pattern.compile(
+            "\\b(?:(?:bought|purchased|acquired)\\s+)?(?:in|during)\\s+((?:19|20)\\d\\d)\\b");
+    private static final Pattern YEAR_BEFORE = Pattern.compile("\\b(?:(?:bought|purchased|acquired)\\s+)?(?:before|prior to)\\s+((?:19|20)\\d\\d)\\b");
+    private static final Pattern YEAR_AFTER = Pattern.compile("\\b(?:(?:bought|purchased|acquired)\\s+)?(after|since)\\s+((?:19|20)\\d\\d)\\b");
+
+    // Words that carry no filter
+    private static final Set<String> STOPWORDS = Set.of(
+            "a", "an", "the", "all", "any", "some", "every", "show", "me", "find", "list", "get", "give", "search",
+            "for", "of", "in", "on", "at", "by", "with", "without", "and", "or", "that", "which", "who", "are", "is",
+            "be", "were", "was", "have", "has", "our", "my", "we", "i", "you", "need", "want", "looking", "please",
+            "what", "whats", "where", "to", "from", "currently", "asset", "assets", "device", "devices", "item",
+            "items", "equipment", "status", "condition", "state", "brand", "type", "category", "made", "one", "ones");
+
+    // Words that hint at a filter; left over, they mean the parser missed something
+    private static final Set<String> FILTER_CUES = Set.of(
+            "cheap", "cheaper", "cheapest", "inexpensive", "expensive", "pricey", "budget", "cost", "costs",
+            "costing", "price", "priced", "dollars", "usd", "old", "older", "oldest", "recent", "recently", "newer",
+            "newest", "latest", "bought", "purchased", "acquired", "year", "years", "month", "months", "week",
+            "weeks", "broken", "damaged", "faulty", "defective", "repair", "working", "unused", "idle", "spare",
+            "retired", "available", "assigned", "deployed");
+
+    @Inject
+    EntityManager em;
+
+    @Inject
+    AssetSearchBot searchBot;
+
+    @Inject
+    ObjectMapper objectMapper;
+
+    @Inject
+    MeterRegistry registry;
+
+    @ConfigProperty(name = "asset.search.query-understanding.llm-fallback", defaultValue = "true")
+    boolean llmFallback;
+
+    @ConfigProperty(name = "asset.search.query-understanding.cache.maximum-size", defaultValue = "5000")
+    long cacheSize;
+
+    // Cached answers hold absolute dates computed from relative ones ("last 2 years")
+    @ConfigProperty(name = "asset.search.query-understanding.cache.expire-after-write", defaultValue = "12h")
+    Duration cacheExpiry;
+
+    private volatile Dictionary dictionary = new Dictionary(Map.of(), 1, Map.of());
+    private Cache<String, Map<String, String>> llmCache;
+    private Timer rulesTimer;
+    private Timer llmTimer;
+    private Timer llmCachedTimer;
+
+    /**
+     * Filters understood from a query
+     * @param filters Filter map in the format of {@code CompoundSearchRequest.filters}
+     * @param path How the filters were obtained: rules, llm or llm-cached
+     */
+    public record ParsedQuery(Map<String, String> filters, String path) {}
+
+    /**
+     * Catalog vocabulary
+     * @param phrases Normalized phrase to the filter it selects
+     * @param maxWords Length of the longest phrase in words
+     * @param values Canonical values per filter key, passed to the LLM
+     */
+    private record Dictionary(Map<String, Term> phrases, int maxWords, Map<String, List<String>> values) {}
+
+    private record Term(String filter, String value) {}
+
+    void onStart(@Observes StartupEvent event) {
+        llmCache = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(cacheExpiry)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(registry, llmCache, "asset-query-understanding");
+        rulesTimer = registry.timer("asset.search.query-understanding.duration", "path", "rules");
+        llmTimer = registry.timer("asset.search.query-understanding.duration", "path", "llm");
+        llmCachedTimer = registry.timer("asset.search.query-understanding.duration", "path", "llm-cached");
+        registry.gauge("asset.search.query-understanding.fallback.ratio", this, self -> self.fallbackRatio());
+        refreshDictionary();
+    }
+
+    @Scheduled(every = "${asset.search.query-understanding.dictionary-refresh}",
+               delayed = "${asset.search.query-understanding.dictionary-refresh}",
+               concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void refreshDictionary() {
+        try {
+            Map<String, List<String>> values = QuarkusTransaction.requiringNew().call(() -> {
+                Map<String, List<String>> loaded = new LinkedHashMap<>();
+                loaded.put("brand", em.createQuery("select b.name from Brand b", String.class).getResultList());
+                loaded.put("type", em.createQuery("select t.name from Type t", String.class).getResultList());
+                loaded.put("category", em.createQuery("select c.name from Category c", String.class).getResultList());
+                loaded.put("status", em.createQuery("select distinct a.status from Asset a", String.class).getResultList());
+                loaded.put("condition", em.createQuery("select distinct h.condition from AssetConditionHistory h", String.class)
+                        .getResultList());
+                return loaded;
+            });
+
+            Map<String, Term> phrases = new HashMap<>();
+            int maxWords = 1;
+            for (var entry : values.entrySet()) {
+                for (var value : entry.getValue()) {
+                    var phrase = String.join(" ", tokens(value.replace('_', ' ')));
+                    if (phrase.isEmpty()) {
+                        continue;
+                    }
+                    phrases.putIfAbsent(phrase, new Term(entry.getKey(), value));
+                    if (entry.getKey().equals("type") || entry.getKey().equals("category")) {
+                        phrases.putIfAbsent(phrase + "s", new Term(entry.getKey(), value));
+                        phrases.putIfAbsent(phrase + "es", new Term(entry.getKey(), value));
+                    }
+                    maxWords = Math.max(maxWords, phrase.split(" ").length);
+                }
+            }
+            dictionary = new Dictionary(phrases, maxWords, values);
+            LOG.debugf("Query dictionary refreshed with %d phrases", phrases.size());
+        } catch (Exception e) {
+            LOG.errorf(e, "Failed to refresh the query dictionary: %s", e.getMessage());
+        }
+    }
+
+    /**
+     * @return Filters expressed by the query
+     */
+    public ParsedQuery parse(String query) {
+        var startTime = System.nanoTime();
+        var normalized = String.join(" ", query.toLowerCase(Locale.ROOT).strip().split("\\s+"));
+
+        Map<String, String> filters = new LinkedHashMap<>();
+        // Dates first, "less than 2 years" is not a price
+        var remainder = extractPurchaseDates(normalized, filters);
+        remainder = extractPrices(remainder, filters);
+        var unrecognized = extractTerms(remainder, filters);
+
+        if (!unrecognized.isEmpty()) {
+            filters.put("text", String.join(" ", unrecognized));
+        }
+        boolean missedFilter = unrecognized.stream().anyMatch(FILTER_CUES::contains);
+        if (!llmFallback || !missedFilter) {
+            rulesTimer.record(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+            LOG.debugf("Query '%s' parsed by rules into %s", query, filters);
+            return new ParsedQuery(filters, "rules");
+        }
+
+        var cached = llmCache.getIfPresent(normalized);
+        if (cached != null) {
+            llmCachedTimer.record(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+            return new ParsedQuery(merge(filters, cached), "llm-cached");
+        }
+
+        try {
+            var understood = askLlm(query);
+            llmCache.put(normalized, understood);
+            llmTimer.record(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+            LOG.infof("Query '%s' parsed by LLM into %s", query, understood);
+            return new ParsedQuery(merge(filters, understood), "llm");
+        } catch (Exception e) {
+            LOG.warnf("LLM query understanding failed, using rule-based filters: %s", e.getMessage());
+            llmTimer.record(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+            return new ParsedQuery(filters, "rules");
+        }
+    }
+
+    /**
+     * Share of parsed queries that needed the LLM, cached answers included
+     */
+    private double fallbackRatio() {
+        double llm = llmTimer.count() + llmCachedTimer.count();
+        double total = llm + rulesTimer.count();
+        return total == 0 ? 0 : llm / total;
+    }
+
+    private static String extractPrices(String text, Map<String, String> filters) {
+        for (var pattern : List.of(PRICE_BETWEEN, PRICE_RANGE)) {
+            var matcher = pattern.matcher(text);
+            if (matcher.find()) {
+                filters.put("minPrice", amount(matcher.group(1), matcher.group(2)));
+                filters.put("maxPrice", amount(matcher.group(3), matcher.group(4)));
+                return remove(text, matcher);
+            }
+        }
+        var max = PRICE_MAX.matcher(text);
+        if (max.find()) {
+            filters.put("maxPrice", amount(max.group(1), max.group(2)));
+            text = remove(text, max);
+        }
+        var min = PRICE_MIN.matcher(text);
+        if (min.find()) {
+            filters.put("minPrice", amount(min.group(1), min.group(2)));
+            text = remove(text, min);
+        }
+        return text;
+    }
+
+    private static String extractPurchaseDates(String text, Map<String, String> filters) {
+        var today = LocalDate.now();
+        var older = AGE_OLDER.matcher(text);
+        if (older.find()) {
+            filters.put("purchasedBefore", minus(today, older.group(1), older.group(2)).toString());
+            text = remove(text, older);
+        }
+        var newer = AGE_NEWER.matcher(text);
+        if (newer.find()) {
+            filters.put("purchasedAfter", minus(today, newer.group(1), newer.group(2)).toString());
+            text = remove(text, newer);
+        }
+        var in = YEAR_IN.matcher(text);
+        if (in.find()) {
+            var year = Integer.parseInt(in.group(1));
+            filters.put("purchasedAfter", LocalDate.of(year, 1, 1).toString());
+            filters.put("purchasedBefore", LocalDate.of(year + 1, 1, 1).toString());
+            text = remove(text, in);
+        }
+        var before = YEAR_BEFORE.matcher(text);
+        if (before.find()) {
+            filters.put("purchasedBefore", LocalDate.of(Integer.parseInt(before.group(1)), 1, 1).toString());
+            text = remove(text, before);
+        }
+        var after = YEAR_AFTER.matcher(text);
+        if (after.find()) {
+            var year = Integer.parseInt(after.group(2));
+            filters.put("purchasedAfter", LocalDate.of(after.group(1).equals("after") ? year + 1 : year, 1, 1).toString());
+            text = remove(text, after);
+        }
+        return text;
+    }
+
+    /**
+     * Matches catalog names, longest phrase first
+     * @return Words that are neither part of a name nor stopwords
+     */
+    private List<String> extractTerms(String text, Map<String, String> filters) {
+        var dictionary = this.dictionary;
+        var words = tokens(text);
+        List<String> unrecognized = new ArrayList<>();
+        int i = 0;
+        while (i < words.size()) {
+            Term term = null;
+            int length = Math.min(dictionary.maxWords(), words.size() - i);
+            for (; length > 0; length--) {
+                term = dictionary.phrases().get(String.join(" ", words.subList(i, i + length)));
+                if (term != null) {
+                    break;
+                }
+            }
+            if (term != null) {
+                filters.putIfAbsent(term.filter(), term.value());
+                i += length;
+                continue;
+            }
+            if (!STOPWORDS.contains(words.get(i))) {
+                unrecognized.add(words.get(i));
+            }
+            i++;
+        }
+        return unrecognized;
+    }
+
+    private Map<String, String> askLlm(String query) throws Exception {
+        var dictionary = this.dictionary;
+        StringBuilder request = new StringBuilder();
+        request.append("Today: ").append(LocalDate.now()).append("\n");
+        dictionary.values().forEach((filter, values) -> request.append("Known ").append(filter).append(" values: ")
+                .append(String.join(", ", values.subList(0, Math.min(values.size(), 200)))).append("\n"));
+        request.append("Query: ").append(query);
+
+        var response = searchBot.extractSearchFilters(request.toString());
+        var start = response.indexOf('{');
+        var end = response.lastIndexOf('}');
+        if (start == -1 || end <= start) {
+            throw new IllegalStateException("Invalid JSON response from bot");
+        }
+        JsonNode json = objectMapper.readTree(response.substring(start, end + 1));
+
+        // Only keep well-formed values of known filters
+        Map<String, String> filters = new LinkedHashMap<>();
+        for (var key : List.of("brand", "type", "category", "status", "condition", "text")) {
+            var value = json.get(key);
+            if (value != null && value.isTextual() && !value.asText().isBlank()) {
+                var term = dictionary.phrases().get(String.join(" ", tokens(value.asText().replace('_', ' '))));
+                filters.put(key, term != null && term.filter().equals(key) ? term.value() : value.asText().strip());
+            }
+        }
+        for (var key : List.of("minPrice", "maxPrice")) {
+            var value = json.get(key);
+            if (value != null && (value.isNumber() || value.isTextual())) {
+                try {
+                    filters.put(key, String.valueOf(Double.parseDouble(value.asText().replaceAll("[$,\\s]", ""))));
+                } catch (NumberFormatException e) {
+                    LOG.debugf("Ignoring %s=%s from LLM", key, value);
+                }
+            }
+        }
+        for (var key : List.of("purchasedAfter", "purchasedBefore")) {
+            var value = json.get(key);
+            if (value != null && value.isTextual()) {
+                try {
+                    filters.put(key, LocalDate.parse(value.asText().strip()).toString());
+                } catch (RuntimeException e) {
+                    LOG.debugf("Ignoring %s=%s from LLM", key, value);
+                }
+            }
+        }
+        return filters;
+    }
+
+    /**
+     * Rule-based filters win over the LLM's, except for the free text which the LLM may
+     * have understood
+     */
+    private static Map<String, String> merge(Map<String, String> rules, Map<String, String> llm) {
+        Map<String, String> merged = new LinkedHashMap<>(llm);
+        rules.forEach((key, value) -> {
+            if (!key.equals("text")) {
+                merged.put(key, value);
+            }
+        });
+        return merged;
+    }
+
+    private static List<String> tokens(String text) {
+        return Arrays.stream(TOKEN_SEPARATOR.split(text.toLowerCase(Locale.ROOT)))
+                .filter(token -> !token.isEmpty())
+                .toList();
+    }
+
+    private static String amount(String number, String thousands) {
+        var value = Double.parseDouble(number.replace(",", ""));
+        return String.valueOf(thousands != null ? value * 1000 : value);
+    }
+
+    private static LocalDate minus(LocalDate today, String amount, String unit) {
+        var count = Long.parseLong(amount);
+        return switch (unit) {
+            case "year" -> today.minusYears(count);
+            case "month" -> today.minusMonths(count);
+            default -> today.minusWeeks(count);
+        };
+    }
+
+    private static String remove(String text, Matcher matcher) {
+        return text.substring(0, matcher.start()) + " " + text.substring(matcher.end());
+    }
+}
@@ -0,0 +1,18 @@
+package org.dimsen.service;
+
+import io.quarkus.arc.Arc;
+import jakarta.persistence.PostUpdate;
+import org.dimsen.model.base.BaseEntity;
+
+/**
+ * Hands updated brands, types, categories and sub-categories over to the
+ * {@link AssetEmbeddingPipeline}: their names are part of the embedding text of every
+ * asset that references them. New reference data has no assets yet.
+ */
+public class ReferenceEmbeddingListener {
+
+    @PostUpdate
+    void onUpdate(BaseEntity reference) {
+        Arc.container().instance(AssetEmbeddingPipeline.class).get().recordReferenceChange(reference);
+    }
+}
@@ -0,0 +1,475 @@
+package org.dimsen.service;
+
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import org.dimsen.dto.ReindexJobRequest;
+import org.dimsen.dto.ReindexJobStatus;
+import org.dimsen.enums.ReindexJobState;
+import org.dimsen.model.Asset;
+import org.dimsen.model.base.BaseEntity;
+import org.eclipse.microprofile.config.Config;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.hibernate.SessionFactory;
+import org.hibernate.jpa.HibernateHints;
+import org.hibernate.jpa.SpecHints;
+import org.hibernate.search.mapper.orm.Search;
+import org.jboss.logging.Logger;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Full reindexing as background jobs that can be observed, cancelled and resumed.
+ * <p>
+ * When a job is started, the id range of every entity type is split into
+ * {@code asset.reindex.parallelism} partitions. Each partition is indexed on its own
+ * virtual thread in id order, {@code asset.reindex.fetch-size} entities per batch, and
+ * every batch runs in a short transaction of its own. Both settings can be overridden per
+ * type ({@code asset.reindex.parallelism.Asset}) and per job. The last indexed id of a
+ * partition is its checkpoint: a cancelled or failed job resumes after it instead of
+ * starting over. Checkpoints are kept in memory, so jobs do not survive a restart.
+ * <p>
+ * Entities created after the job was planned are outside of its id ranges; like every
+ * other change, they are indexed by the {@link IndexSyncQueue}. Documents are updated in
+ * place, so search keeps answering while a job runs; soft-deleted rows are deleted from the
+ * index. Rows deleted outright leave documents that no batch reaches, so once every
+ * partition is done a final pass per type purges the documents without a live row (see
+ * {@link IndexFreshnessTracker#purgeOrphans(Class)}). A completed job covering every
+ * indexed type records a new generation in the {@link IndexFreshnessTracker}.
+ */
+@ApplicationScoped
+public class ReindexJobService {
+
+    private static final Logger LOG = Logger.getLogger(ReindexJobService.class);
+
+    @Inject
+    EntityManager em;
+
+    @Inject
+    SessionFactory sessionFactory;
+
+    @Inject
+    IndexFreshnessTracker freshnessTracker;
+
+    @Inject
+    SearchResultCache resultCache;
+
+    @Inject
+    Config config;
+
+    @ConfigProperty(name = "asset.reindex.parallelism", defaultValue = "2")
+    int defaultParallelism;
+
+    @ConfigProperty(name = "asset.reindex.fetch-size", defaultValue = "200")
+    int defaultFetchSize;
+
+    @ConfigProperty(name = "asset.reindex.retained-jobs", defaultValue = "20")
+    int retainedJobs;
+
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+    private ExecutorService executor;
+
+    /**
+     * Id range of a type indexed by one thread
+     */
+    private static final class Partition {
+        final long upperId;
+        volatile long lastId;
+
+        Partition(long lastId, long upperId) {
+            this.lastId = lastId;
+            this.upperId = upperId;
+        }
+
+        boolean done() {
+            return lastId >= upperId;
+        }
+    }
+
+    private static final class TypePlan {
+        final Class<? extends BaseEntity> type;
+        final int fetchSize;
+        final long total;
+        final List<Partition> partitions;
+        final AtomicLong indexed = new AtomicLong();
+
+        TypePlan(Class<? extends BaseEntity> type, int fetchSize, long total, List<Partition> partitions) {
+            this.type = type;
+            this.fetchSize = fetchSize;
+            this.total = total;
+            this.partitions = partitions;
+        }
+    }
+
+    private static final class Job {
+        final String id = UUID.randomUUID().toString();
+        final LocalDateTime createdAt = LocalDateTime.now();
+        final List<TypePlan> plans;
+        final boolean allTypes;
+        final Map<Class<? extends BaseEntity>, LocalDateTime> watermarks;
+        volatile ReindexJobState state = ReindexJobState.RUNNING;
+        volatile boolean stopRequested;
+        volatile LocalDateTime finishedAt;
+        volatile String error;
+        volatile long runStartedAt;
+        volatile long runFinishedAt;
+        final AtomicLong indexedThisRun = new AtomicLong();
+        final Runnable onCompleted;
+
+        Job(List<TypePlan> plans, boolean allTypes, Map<Class<? extends BaseEntity>, LocalDateTime> watermarks,
+            Runnable onCompleted) {
+            this.plans = plans;
+            this.allTypes = allTypes;
+            this.watermarks = watermarks;
+            this.onCompleted = onCompleted;
+        }
+    }
+
+    private record BatchResult(int size, long lastId) {}
+
+    @PostConstruct
+    void init() {
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        jobs.values().forEach(job -> job.stopRequested = true);
+        executor.shutdownNow();
+    }
+
+    /**
+     * Plans and starts a job
+     * @throws IllegalArgumentException For unknown types or non-positive options
+     * @throws IllegalStateException When another job is running
+     */
+    public ReindexJobStatus start(ReindexJobRequest request) {
+        return start(request, null);
+    }
+
+    /**
+     * Plans and starts a job
+     * @param onCompleted Runs once every partition is indexed and deleted rows are purged, before the job is reported
+     *                    completed; if it fails, the job fails and resuming it retries the action
+     * @throws IllegalArgumentException For unknown types or non-positive options
+     * @throws IllegalStateException When another job is running
+     */
+    public synchronized ReindexJobStatus start(ReindexJobRequest request, Runnable onCompleted) {
+        ensureNoRunningJob();
+        var options = request != null ? request : new ReindexJobRequest(null, null, null);
+        var types = resolveTypes(options.types());
+
+        // Captured before planning, so rows modified while the job runs are picked up by the next refresh
+        var watermarks = freshnessTracker.currentWatermarks();
+        List<TypePlan> plans = QuarkusTransaction.requiringNew().call(() -> {
+            List<TypePlan> planned = new ArrayList<>();
+            for (var type : types) {
+                planned.add(plan(type, option(options.parallelism(), "parallelism", type, defaultParallelism),
+                        option(options.fetchSize(), "fetch-size", type, defaultFetchSize)));
+            }
+            return planned;
+        });
+
+        var job = new Job(plans, types.size() == freshnessTracker.trackedTypes().size(), watermarks, onCompleted);
+        jobs.put(job.id, job);
+        evictFinishedJobs();
+        launch(job);
+        LOG.infof("Started reindex job %s for %d entities of %s", job.id, total(job),
+                  plans.stream().map(plan -> plan.type.getSimpleName() + "x" + plan.partitions.size()).toList());
+        return status(job);
+    }
+
+    /**
+     * Continues a cancelled or failed job after the last indexed id of each partition
+     * @throws NoSuchElementException For an unknown job
+     * @throws IllegalStateException When the job is not resumable or another job is running
+     */
+    public synchronized ReindexJobStatus resume(String id) {
+        var job = find(id);
+        if (job.state != ReindexJobState.CANCELLED && job.state != ReindexJobState.FAILED) {
+            throw new IllegalStateException("Job " + id + " is " + job.state + ", only cancelled or failed jobs can be resumed");
+        }
+        ensureNoRunningJob();
+
+        job.stopRequested = false;
+        job.error = null;
+        job.finishedAt = null;
+        job.state = ReindexJobState.RUNNING;
+        launch(job);
+        LOG.infof("Resumed reindex job %s, %d of %d entities indexed", id, indexed(job), total(job));
+        return status(job);
+    }
+
+    /**
+     * Asks a running job to stop after the batches in flight
+     * @throws NoSuchElementException For an unknown job
+     */
+    public ReindexJobStatus cancel(String id) {
+        var job = find(id);
+        if (job.state == ReindexJobState.RUNNING) {
+            job.stopRequested = true;
+            LOG.infof("Cancelling reindex job %s", id);
+        }
+        return status(job);
+    }
+
+    /**
+     * @throws NoSuchElementException For an unknown job
+     */
+    public ReindexJobStatus status(String id) {
+        return status(find(id));
+    }
+
+    /**
+     * @return Retained jobs, most recent first
+     */
+    public List<ReindexJobStatus> list() {
+        return jobs.values().stream()
+                .sorted((a, b) -> b.createdAt.compareTo(a.createdAt))
+                .map(this::status)
+                .toList();
+    }
+
+    private void launch(Job job) {
+        job.runStartedAt = System.nanoTime();
+        job.runFinishedAt = 0;
+        job.indexedThisRun.set(0);
+        executor.submit(() -> run(job));
+    }
+
+    private void run(Job job) {
+        var statistics = sessionFactory.getStatistics();
+        var statementsBefore = statistics.getPrepareStatementCount();
+
+        List<Future<?>> partitions = new ArrayList<>();
+        for (var plan : job.plans) {
+            for (var partition : plan.partitions) {
+                if (!partition.done()) {
+                    partitions.add(executor.submit(() -> indexPartition(job, plan, partition)));
+                }
+            }
+        }
+
+        for (var partition : partitions) {
+            try {
+                partition.get();
+            } catch (ExecutionException e) {
+                if (job.error == null) {
+                    job.error = e.getCause().getMessage();
+                }
+                job.stopRequested = true;
+                LOG.errorf(e.getCause(), "Reindex job %s failed: %s", job.id, e.getCause().getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                job.stopRequested = true;
+                job.error = "Interrupted";
+            }
+        }
+
+        job.runFinishedAt = System.nanoTime();
+        var duration = (job.runFinishedAt - job.runStartedAt) / 1_000_000;
+        var statementInfo = statistics.isStatisticsEnabled()
+                ? ", " + (statistics.getPrepareStatementCount() - statementsBefore) + " SQL statements"
+                : "";
+        if (job.error != null) {
+            job.state = ReindexJobState.FAILED;
+        } else if (job.plans.stream().allMatch(plan -> plan.partitions.stream().allMatch(Partition::done))) {
+            complete(job);
+        } else {
+            job.state = ReindexJobState.CANCELLED;
+        }
+        job.finishedAt = LocalDateTime.now();
+        LOG.infof("Reindex job %s %s after %d ms, %d of %d entities indexed%s",
+                  job.id, job.state, duration, indexed(job), total(job), statementInfo);
+    }
+
+    private void complete(Job job) {
+        try {
+            for (var plan : job.plans) {
+                freshnessTracker.purgeOrphans(plan.type);
+            }
+            if (job.onCompleted != null) {
+                job.onCompleted.run();
+            }
+        } catch (RuntimeException e) {
+            // Every partition is done, resuming the job only retries the purge and the completion action
+            LOG.errorf(e, "Completion of reindex job %s failed: %s", job.id, e.getMessage());
+            job.error = "Completion failed: " + e.getMessage();
+            job.state = ReindexJobState.FAILED;
+            return;
+        }
+        if (job.allTypes) {
+            freshnessTracker.markFullyIndexed(job.watermarks);
+        }
+        resultCache.invalidateAll();
+        job.state = ReindexJobState.COMPLETED;
+    }
+
+    private void indexPartition(Job job, TypePlan plan, Partition partition) {
+        while (!job.stopRequested && !partition.done()) {
+            var batch = QuarkusTransaction.requiringNew().call(
+                    () -> indexBatch(plan.type, partition.lastId, partition.upperId, plan.fetchSize));
+            if (batch.size() == 0) {
+                partition.lastId = partition.upperId;
+                break;
+            }
+            partition.lastId = batch.size() < plan.fetchSize ? partition.upperId : batch.lastId();
+            plan.indexed.addAndGet(batch.size());
+            job.indexedThisRun.addAndGet(batch.size());
+        }
+    }
+
+    private BatchResult indexBatch(Class<? extends BaseEntity> type, long afterId, long upToId, int fetchSize) {
+        var query = em.createQuery("select e from " + type.getSimpleName() + " e"
+                        + " where e.id > :afterId and e.id <= :upToId order by e.id", type)
+                .setParameter("afterId", afterId)
+                .setParameter("upToId", upToId)
+                .setMaxResults(fetchSize)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize)
+                .setHint(HibernateHints.HINT_READ_ONLY, true);
+        if (type == Asset.class) {
+            query.setHint(SpecHints.HINT_SPEC_LOAD_GRAPH, em.getEntityGraph(Asset.SEARCH_HIT_GRAPH));
+        }
+
+        var entities = query.getResultList();
+        if (entities.isEmpty()) {
+            return new BatchResult(0, afterId);
+        }
+        var indexingPlan = Search.session(em).indexingPlan();
+        for (var entity : entities) {
+            if (Boolean.TRUE.equals(entity.getIsDeleted())) {
+                indexingPlan.delete(entity);
+            } else {
+                indexingPlan.addOrUpdate(entity);
+            }
+        }
+        indexingPlan.execute();
+        em.clear();
+        return new BatchResult(entities.size(), entities.get(entities.size() - 1).getId());
+    }
+
+    /**
+     * Splits the current id range of the type into equal partitions
+     */
+    private TypePlan plan(Class<? extends BaseEntity> type, int parallelism, int fetchSize) {
+        var range = em.createQuery("select min(e.id), max(e.id), count(e) from " + type.getSimpleName() + " e",
+                Object[].class).getSingleResult();
+        var count = (Long) range[2];
+        List<Partition> partitions = new ArrayList<>();
+        if (count > 0) {
+            long min = (Long) range[0];
+            long max = (Long) range[1];
+            long span = max - min + 1;
+            int parts = (int) Math.max(1, Math.min(parallelism, span));
+            long lower = min - 1;
+            for (int i = 1; i <= parts; i++) {
+                long upper = i == parts ? max : min - 1 + span * i / parts;
+                partitions.add(new Partition(lower, upper));
+                lower = upper;
+            }
+        }
+        return new TypePlan(type, fetchSize, count, partitions);
+    }
+
+    private List<Class<? extends BaseEntity>> resolveTypes(List<String> names) {
+        var tracked = freshnessTracker.trackedTypes();
+        if (names == null || names.isEmpty()) {
+            return tracked;
+        }
+        List<Class<? extends BaseEntity>> types = new ArrayList<>();
+        for (var name : names) {
+            var type = tracked.stream().filter(candidate -> candidate.getSimpleName().equalsIgnoreCase(name)).findFirst()
+                    .orElseThrow(() -> new IllegalArgumentException("Unknown indexed type: " + name));
+            if (!types.contains(type)) {
+                types.add(type);
+            }
+        }
+        return types;
+    }
+
+    /**
+     * @return The request's value for the type, else {@code asset.reindex.<name>.<Type>}, else the default
+     */
+    private int option(Map<String, Integer> requested, String name, Class<?> type, int defaultValue) {
+        var value = Optional.ofNullable(requested)
+                .flatMap(values -> values.entrySet().stream()
+                        .filter(entry -> entry.getKey().equalsIgnoreCase(type.getSimpleName()))
+                        .map(Map.Entry::getValue)
+                        .findFirst())
+                .or(() -> config.getOptionalValue("asset.reindex." + name + "." + type.getSimpleName(), Integer.class))
+                .orElse(defaultValue);
+        if (value == null || value < 1) {
+            throw new IllegalArgumentException(name + " of " + type.getSimpleName() + " must be positive");
+        }
+        return value;
+    }
+
+    private void ensureNoRunningJob() {
+        jobs.values().stream()
+                .filter(job -> job.state == ReindexJobState.RUNNING)
+                .findFirst()
+                .ifPresent(job -> {
+                    throw new IllegalStateException("Reindex job " + job.id + " is already running");
+                });
+    }
+
+    private void evictFinishedJobs() {
+        var finished = jobs.values().stream()
+                .filter(job -> job.state != ReindexJobState.RUNNING)
+                .sorted((a, b) -> b.createdAt.compareTo(a.createdAt))
+                .toList();
+        finished.stream().skip(Math.max(0, retainedJobs)).forEach(job -> jobs.remove(job.id));
+    }
+
+    private Job find(String id) {
+        var job = jobs.get(id);
+        if (job == null) {
+            throw new NoSuchElementException("Unknown reindex job: " + id);
+        }
+        return job;
+    }
+
+    private ReindexJobStatus status(Job job) {
+        Map<String, ReindexJobStatus.TypeProgress> types = new LinkedHashMap<>();
+        for (var plan : job.plans) {
+            types.put(plan.type.getSimpleName(), new ReindexJobStatus.TypeProgress(
+                    plan.indexed.get(), plan.total, plan.fetchSize,
+                    plan.partitions.stream().map(partition -> partition.lastId).toList()));
+        }
+
+        var indexed = indexed(job);
+        var total = total(job);
+        var runEnd = job.runFinishedAt != 0 ? job.runFinishedAt : System.nanoTime();
+        var elapsed = (runEnd - job.runStartedAt) / 1e9;
+        var rate = elapsed > 0 ? job.indexedThisRun.get() / elapsed : 0d;
+        Long eta = job.state == ReindexJobState.RUNNING && rate > 0
+                ? (long) Math.ceil(Math.max(0, total - indexed) / rate)
+                : null;
+        return new ReindexJobStatus(job.id, job.state, job.createdAt, job.finishedAt, indexed, total,
+                rate, eta, types, job.error);
+    }
+
+    private static long indexed(Job job) {
+        return job.plans.stream().mapToLong(plan -> plan.indexed.get()).sum();
+    }
+
+    private static long total(Job job) {
+        return job.plans.stream().mapToLong(plan -> plan.total).sum();
+    }
+}
@@ -0,0 +1,235 @@
+package org.dimsen.service;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.dimsen.dto.SearchPage;
+import org.dimsen.model.Asset;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.RestClient;
+import org.hibernate.search.backend.elasticsearch.ElasticsearchBackend;
+import org.hibernate.search.backend.elasticsearch.index.ElasticsearchIndexManager;
+import org.hibernate.search.backend.elasticsearch.search.query.ElasticsearchSearchRequestTransformerContext;
+import org.hibernate.search.backend.elasticsearch.search.query.ElasticsearchSearchResult;
+import org.hibernate.search.mapper.orm.mapping.SearchMapping;
+import org.jboss.logging.Logger;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Cursor pagination of asset searches with {@code search_after} inside an Elasticsearch
+ * point in time (PIT).
+ * <p>
+ * The first page opens a PIT on the assets index; every page is sorted by score with the
+ * document id as tiebreak and starts after the sort values of the previous page's last
+ * hit, so page N costs the same as page 1. Both are carried between requests in an
+ * opaque cursor token, together with the tenant and a hash of the normalized request it
+ * was issued for, so a cursor cannot continue another query. The PIT is closed when the last page has been served and
+ * otherwise expires after {@code asset.search.cursor.keep-alive} of inactivity.
+ */
+@ApplicationScoped
+public class SearchPagination {
+
+    private static final Logger LOG = Logger.getLogger(SearchPagination.class);
+
+    // Index scoped options that Elasticsearch rejects on PIT searches
+    private static final Set<String> INDEX_PARAMETERS = Set.of(
+            "ignore_unavailable", "allow_no_indices", "expand_wildcards", "routing", "preference");
+
+    @Inject
+    SearchMapping searchMapping;
+
+    @ConfigProperty(name = "asset.search.cursor.keep-alive", defaultValue = "2m")
+    String keepAlive;
+
+    @ConfigProperty(name = "asset.search.cursor.total-hits-threshold", defaultValue = "1000")
+    long totalHitsThreshold;
+
+    /**
+     * Position of a paginated search
+     * @param endpoint Endpoint the cursor was issued by, a cursor cannot be replayed on another one
+     * @param tenant Tenant the cursor was issued to
+     * @param requestHash Hash of the normalized query and filters of the first page
+     * @param pitId Point in time the pages are read from
+     * @param searchAfter Sort values of the last hit served, {@code null} for the first page
+     */
+    public record Cursor(String endpoint, String tenant, String requestHash, String pitId, JsonArray searchAfter) {}
+
+    /**
+     * Hit of a page with its sort values
+     */
+    public record PageHit<T>(T item, JsonArray sortValues) {}
+
+    /**
+     * @param request Query and filters of the search, the page size excluded
+     * @return The position to continue from, or a fresh PIT for the first page
+     * @throws IllegalArgumentException For a malformed cursor or one issued by another endpoint,
+     *                                  to another tenant or for another request
+     */
+    public Cursor start(String endpoint, String tenant, List<?> request, String token) {
+        var requestHash = requestHash(request);
+        if (token == null || token.isBlank()) {
+            return new Cursor(endpoint, tenant, requestHash, openPointInTime(), null);
+        }
+
+        var cursor = decode(token);
+        if (!endpoint.equals(cursor.endpoint())) {
+            throw new IllegalArgumentException("Cursor was issued by the " + cursor.endpoint() + " search");
+        }
+        if (!tenant.equals(cursor.tenant())) {
+            throw new IllegalArgumentException("Cursor was issued to another tenant");
+        }
+        if (!requestHash.equals(cursor.requestHash())) {
+            throw new IllegalArgumentException("Cursor was issued for another query or filters");
+        }
+        return cursor;
+    }
+
+    /**
+     * @return Threshold up to which total hits are counted exactly
+     */
+    public long totalHitsThreshold() {
+        return totalHitsThreshold;
+    }
+
+    /**
+     * Points a search request at the cursor's PIT and position
+     */
+    public void applyCursor(ElasticsearchSearchRequestTransformerContext context, Cursor cursor) {
+        // PIT searches must not name an index
+        context.path("/_search");
+        context.parametersMap().keySet().removeAll(INDEX_PARAMETERS);
+
+        var body = context.body();
+        var pit = new JsonObject();
+        pit.addProperty("id", cursor.pitId());
+        pit.addProperty("keep_alive", keepAlive);
+        body.add("pit", pit);
+        if (cursor.searchAfter() != null) {
+            body.add("search_after", cursor.searchAfter());
+        }
+    }
+
+    /**
+     * Builds the page envelope. The next cursor uses the PIT id returned by Elasticsearch,
+     * which may differ from the one sent; after the last page the PIT is closed.
+     */
+    public <T> SearchPage<T> page(Cursor cursor, ElasticsearchSearchResult<PageHit<T>> result, int size) {
+        var hits = result.hits();
+        var items = hits.stream().map(PageHit::item).toList();
+
+        var responsePit = result.responseBody().get("pit_id");
+        var pitId = responsePit != null ? responsePit.getAsString() : cursor.pitId();
+
+        String nextCursor = null;
+        if (hits.size() == size && size > 0) {
+            var last = hits.get(hits.size() - 1);
+            nextCursor = encode(new Cursor(cursor.endpoint(), cursor.tenant(), cursor.requestHash(),
+                    pitId, last.sortValues()));
+        } else {
+            closePointInTime(pitId);
+        }
+
+        var total = result.total();
+        return new SearchPage<>(items, size, total.hitCountLowerBound(), total.isHitCountExact(), nextCursor);
+    }
+
+    private String openPointInTime() {
+        var indexName = searchMapping.indexedEntity(Asset.class).indexManager()
+                .unwrap(ElasticsearchIndexManager.class)
+                .descriptor()
+                .readName();
+        var request = new Request("POST", "/" + indexName + "/_pit");
+        request.addParameter("keep_alive", keepAlive);
+        try {
+            var response = restClient().performRequest(request);
+            try (var reader = new InputStreamReader(response.getEntity().getContent(), StandardCharsets.UTF_8)) {
+                return JsonParser.parseReader(reader).getAsJsonObject().get("id").getAsString();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open a point in time on " + indexName, e);
+        }
+    }
+
+    private void closePointInTime(String pitId) {
+        var body = new JsonObject();
+        body.addProperty("id", pitId);
+        var request = new Request("DELETE", "/_pit");
+        request.setJsonEntity(body.toString());
+        try {
+            restClient().performRequest(request);
+        } catch (IOException e) {
+            // Not fatal, the PIT expires after its keep alive
+            LOG.debugf(e, "Failed to close point in time: %s", e.getMessage());
+        }
+    }
+
+    private RestClient restClient() {
+        return searchMapping.backend().unwrap(ElasticsearchBackend.class).client(RestClient.class);
+    }
+
+    /**
+     * Hashes the request with its text stripped and whitespace collapsed and its maps sorted,
+     * so that reformatting a request does not invalidate its cursor
+     */
+    private static String requestHash(List<?> request) {
+        var normalized = request.stream().map(SearchPagination::normalize).toList().toString();
+        try {
+            var digest = MessageDigest.getInstance("SHA-256").digest(normalized.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static String normalize(Object part) {
+        if (part instanceof String text) {
+            return text.strip().replaceAll("\\s+", " ");
+        }
+        if (part instanceof Map<?, ?> map) {
+            return new TreeMap<Object, Object>(map).toString();
+        }
+        return String.valueOf(part);
+    }
+
+    private static String encode(Cursor cursor) {
+        var json = new JsonObject();
+        json.addProperty("e", cursor.endpoint());
+        json.addProperty("t", cursor.tenant());
+        json.addProperty("h", cursor.requestHash());
+        json.addProperty("p", cursor.pitId());
+        json.add("a", cursor.searchAfter());
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(json.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Cursor decode(String token) {
+        try {
+            var json = JsonParser.parseString(new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8))
+                    .getAsJsonObject();
+            var searchAfter = json.get("a");
+            return new Cursor(
+                    json.get("e").getAsString(),
+                    json.get("t").getAsString(),
+                    json.get("h").getAsString(),
+                    json.get("p").getAsString(),
+                    searchAfter != null && searchAfter.isJsonArray() ? searchAfter.getAsJsonArray() : null);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+}
@@ -0,0 +1,391 @@
+package org.dimsen.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import io.quarkus.runtime.configuration.MemorySize;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.dimsen.dto.AssetSearchDTO;
+import org.dimsen.model.Asset;
+import org.dimsen.model.Brand;
+import org.dimsen.model.Category;
+import org.dimsen.model.SubCategory;
+import org.dimsen.model.Type;
+import org.dimsen.model.base.BaseEntity;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * In-process cache of fuzzy-name and multi-field search results, keyed by tenant,
+ * endpoint, normalized query text and parameters and bounded by an estimate of the
+ * entries' heap footprint.
+ * <p>
+ * Entries do not expire; they are invalidated when assets are indexed. An indexed or
+ * purged asset invalidates every entry it is a hit of, and every entry whose query it may
+ * match now: a query term equal to a term of the asset's searchable text, or for fuzzy
+ * queries within the query's edit distance of one. Indexing brands, categories, types or
+ * sub-categories, whose names are part of the hits, and full reindexes clear the cache.
+ * Entries are indexed by asset id and by query term, fuzzy entries also by every variant
+ * of their terms with up to {@code maxEdits} characters deleted, so an invalidation only
+ * looks up the terms of the indexed assets and their deletion variants; two terms within
+ * the edit distance always share such a variant.
+ * Elasticsearch only exposes indexed changes after its refresh interval, so every
+ * invalidation is repeated once {@code asset.search.result-cache.refresh-delay} later.
+ * <p>
+ * Exported through Micrometer as {@code cache.gets{cache=asset-search-results}},
+ * {@code asset.search.result-cache.hit.ratio}, {@code asset.search.result-cache.memory.bytes}
+ * and {@code asset.search.result-cache.invalidations}.
+ */
+@ApplicationScoped
+public class SearchResultCache {
+
+    private static final Logger LOG = Logger.getLogger(SearchResultCache.class);
+
+    // Approximates the standard analyzer: lowercased runs of letters and digits
+    private static final Pattern TOKEN_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    // Largest edit distance Elasticsearch fuzzy matching supports
+    private static final int MAX_EDITS = 2;
+
+    private static final Set<Class<?>> REFERENCE_TYPES = Set.of(Brand.class, Category.class, Type.class, SubCategory.class);
+
+    @Inject
+    MeterRegistry registry;
+
+    @ConfigProperty(name = "asset.search.result-cache.enabled", defaultValue = "true")
+    boolean enabled;
+
+    @ConfigProperty(name = "asset.search.result-cache.max-memory", defaultValue = "64M")
+    MemorySize maxMemory;
+
+    @ConfigProperty(name = "asset.search.result-cache.refresh-delay", defaultValue = "1s")
+    Duration refreshDelay;
+
+    private Cache<Key, Entry> cache;
+    private final Map<Long, Set<Key>> keysByAsset = new ConcurrentHashMap<>();
+    // Query terms, and their deletion variants for fuzzy entries
+    private final Map<String, Set<Key>> keysByTerm = new ConcurrentHashMap<>();
+    private final AtomicLong invalidations = new AtomicLong();
+    private Counter invalidated;
+
+    /**
+     * @param tenant Tenant the search ran for
+     * @param endpoint Search endpoint, e.g. {@code fuzzy-name}
+     * @param query Lowercased query text with collapsed whitespace
+     * @param maxEdits Edit distance of the query terms, 0 for exact term matching
+     * @param limit Maximum number of hits
+     */
+    public record Key(String tenant, String endpoint, String query, int maxEdits, int limit) {}
+
+    private record Entry(List<AssetSearchDTO> results, Set<String> terms) {}
+
+    /**
+     * Indexed assets: their ids and the terms they can be found by
+     * @param nameTerms Terms of the name, searched by fuzzy-name
+     * @param textTerms Terms of name, description and brand, searched by multi-field
+     */
+    private record Change(Set<Long> ids, Set<String> nameTerms, Set<String> textTerms) {}
+
+    @PostConstruct
+    void init() {
+        cache = Caffeine.newBuilder()
+                .maximumWeight(maxMemory.asLongValue())
+                .weigher(SearchResultCache::weigh)
+                .removalListener((Key key, Entry entry, RemovalCause cause) -> unlink(key, entry))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(registry, cache, "asset-search-results");
+        registry.gauge("asset.search.result-cache.hit.ratio", cache, c -> c.stats().hitRate());
+        registry.gauge("asset.search.result-cache.memory.bytes", cache,
+                c -> c.policy().eviction().map(eviction -> (double) eviction.weightedSize().orElse(0)).orElse(0d));
+        invalidated = registry.counter("asset.search.result-cache.invalidations");
+    }
+
+    /**
+     * @return Cache key of a search, with the query normalized the way the standard analyzer sees it
+     */
+    public Key key(String tenant, String endpoint, String query, int maxEdits, int limit) {
+        var normalized = query.strip().toLowerCase(Locale.ROOT).replaceAll("\\s+", " ");
+        return new Key(tenant, endpoint, normalized, maxEdits, limit);
+    }
+
+    /**
+     * @return The cached results of the search, running and caching it on a miss
+     */
+    public List<AssetSearchDTO> get(Key key, Supplier<List<AssetSearchDTO>> search) {
+        if (!enabled) {
+            return search.get();
+        }
+
+        var cached = cache.getIfPresent(key);
+        if (cached != null) {
+            return cached.results();
+        }
+
+        var generation = invalidations.get();
+        var results = List.copyOf(search.get());
+        var entry = new Entry(results, terms(key.query()));
+        cache.put(key, entry);
+        for (var asset : results) {
+            link(keysByAsset, Long.valueOf(asset.id()), key);
+        }
+        for (var term : indexedTerms(key, entry)) {
+            link(keysByTerm, term, key);
+        }
+        // An invalidation that ran while searching may have missed this entry
+        if (invalidations.get() != generation) {
+            cache.invalidate(key);
+        }
+        return results;
+    }
+
+    /**
+     * Invalidates the entries affected by documents of the type that were indexed or purged
+     */
+    public void onIndexed(Class<?> type, Collection<? extends BaseEntity> indexed, Collection<Long> purgedIds) {
+        if (!enabled || (indexed.isEmpty() && purgedIds.isEmpty())) {
+            return;
+        }
+        if (REFERENCE_TYPES.contains(type)) {
+            invalidateAll();
+            return;
+        }
+        if (type != Asset.class) {
+            return;
+        }
+
+        Set<Long> ids = new HashSet<>(purgedIds);
+        Set<String> nameTerms = new HashSet<>();
+        Set<String> textTerms = new HashSet<>();
+        for (var entity : indexed) {
+            var asset = (Asset) entity;
+            ids.add(asset.getId());
+            nameTerms.addAll(terms(asset.getName()));
+            textTerms.addAll(terms(asset.getName()));
+            textTerms.addAll(terms(asset.getDescription()));
+            if (asset.getBrand() != null) {
+                textTerms.addAll(terms(asset.getBrand().getName()));
+                textTerms.addAll(terms(asset.getBrand().getDescription()));
+            }
+        }
+
+        var change = new Change(ids, nameTerms, textTerms);
+        invalidate(change);
+        CompletableFuture.delayedExecutor(refreshDelay.toMillis(), TimeUnit.MILLISECONDS)
+                .execute(() -> invalidate(change));
+    }
+
+    /**
+     * Drops every entry, e.g. after a full reindex
+     */
+    public void invalidateAll() {
+        if (!enabled) {
+            return;
+        }
+        clear();
+        CompletableFuture.delayedExecutor(refreshDelay.toMillis(), TimeUnit.MILLISECONDS)
+                .execute(this::clear);
+    }
+
+    private void clear() {
+        invalidations.incrementAndGet();
+        invalidated.increment(cache.estimatedSize());
+        cache.invalidateAll();
+    }
+
+    private void invalidate(Change change) {
+        invalidations.incrementAndGet();
+
+        Set<Key> affected = new HashSet<>();
+        for (var id : change.ids()) {
+            var keys = keysByAsset.get(id);
+            if (keys != null) {
+                affected.addAll(keys);
+            }
+        }
+
+        Set<String> assetTerms = new HashSet<>(change.nameTerms());
+        assetTerms.addAll(change.textTerms());
+        Set<Key> candidates = new HashSet<>();
+        for (var term : assetTerms) {
+            for (var variant : deletionVariants(term, MAX_EDITS)) {
+                var keys = keysByTerm.get(variant);
+                if (keys != null) {
+                    candidates.addAll(keys);
+                }
+            }
+        }
+        for (var key : candidates) {
+            var entry = cache.asMap().get(key);
+            if (entry != null && mayMatch(key, entry.terms(), change)) {
+                affected.add(key);
+            }
+        }
+
+        cache.invalidateAll(affected);
+        invalidated.increment(affected.size());
+        LOG.debugf("Invalidated %d cached searches for %d indexed assets", affected.size(), change.ids().size());
+    }
+
+    private static boolean mayMatch(Key key, Set<String> queryTerms, Change change) {
+        var assetTerms = "fuzzy-name".equals(key.endpoint()) ? change.nameTerms() : change.textTerms();
+        for (var term : queryTerms) {
+            if (assetTerms.contains(term)) {
+                return true;
+            }
+            if (key.maxEdits() > 0 && assetTerms.stream().anyMatch(candidate -> withinEdits(term, candidate, key.maxEdits()))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Whether two terms are at most {@code maxEdits} insertions, deletions, substitutions or
+     * transpositions apart, as Elasticsearch fuzzy matching counts them
+     */
+    private static boolean withinEdits(String a, String b, int maxEdits) {
+        if (Math.abs(a.length() - b.length()) > maxEdits) {
+            return false;
+        }
+        // Optimal string alignment distance over three rows
+        var previous2 = new int[b.length() + 1];
+        var previous = new int[b.length() + 1];
+        var current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMinimum = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    current[j] = Math.min(current[j], previous2[j - 2] + 1);
+                }
+                rowMinimum = Math.min(rowMinimum, current[j]);
+            }
+            if (rowMinimum > maxEdits) {
+                return false;
+            }
+            var recycled = previous2;
+            previous2 = previous;
+            previous = current;
+            current = recycled;
+        }
+        return previous[b.length()] <= maxEdits;
+    }
+
+    private void unlink(Key key, Entry entry) {
+        if (key == null || entry == null) {
+            return;
+        }
+        for (var asset : entry.results()) {
+            unlink(keysByAsset, Long.valueOf(asset.id()), key);
+        }
+        for (var term : indexedTerms(key, entry)) {
+            unlink(keysByTerm, term, key);
+        }
+    }
+
+    private static <T> void link(Map<T, Set<Key>> index, T value, Key key) {
+        index.compute(value, (v, keys) -> {
+            var linked = keys != null ? keys : ConcurrentHashMap.<Key>newKeySet();
+            linked.add(key);
+            return linked;
+        });
+    }
+
+    private <T> void unlink(Map<T, Set<Key>> index, T value, Key key) {
+        index.computeIfPresent(value, (v, keys) -> {
+            // Replaced rather than removed: the new entry owns the link
+            if (!cache.asMap().containsKey(key)) {
+                keys.remove(key);
+            }
+            return keys.isEmpty() ? null : keys;
+        });
+    }
+
+    /**
+     * @return Terms an entry is indexed by: its query terms, with their deletion variants for fuzzy queries
+     */
+    private static Set<String> indexedTerms(Key key, Entry entry) {
+        if (key.maxEdits() <= 0) {
+            return entry.terms();
+        }
+        Set<String> indexed = new HashSet<>();
+        for (var term : entry.terms()) {
+            indexed.addAll(deletionVariants(term, Math.min(key.maxEdits(), MAX_EDITS)));
+        }
+        return indexed;
+    }
+
+    /**
+     * @return The term and every string obtained by deleting up to {@code deletions} of its characters
+     */
+    private static Set<String> deletionVariants(String term, int deletions) {
+        Set<String> variants = new HashSet<>();
+        variants.add(term);
+        Set<String> frontier = Set.of(term);
+        for (int round = 0; round < deletions; round++) {
+            Set<String> next = new HashSet<>();
+            for (var variant : frontier) {
+                for (int i = 0; i < variant.length(); i++) {
+                    var shorter = variant.substring(0, i) + variant.substring(i + 1);
+                    if (variants.add(shorter)) {
+                        next.add(shorter);
+                    }
+                }
+            }
+            frontier = next;
+        }
+        return variants;
+    }
+
+    private static Set<String> terms(String text) {
+        if (text == null || text.isBlank()) {
+            return Set.of();
+        }
+        return Arrays.stream(TOKEN_SEPARATOR.split(text.toLowerCase(Locale.ROOT)))
+                .filter(term -> !term.isEmpty())
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * @return Rough heap footprint of an entry in bytes
+     */
+    private static int weigh(Key key, Entry entry) {
+        long bytes = 96 + 2L * key.query().length() + 48L * indexedTerms(key, entry).size();
+        for (var asset : entry.results()) {
+            bytes += 160 + 2L * Stream.of(asset.id(), asset.name(), asset.serialNumber(), asset.brandName(),
+                            asset.brandDescription(), asset.categoryName(), asset.typeName(),
+                            asset.subCategoryName(), asset.description(), asset.status())
+                    .mapToLong(value -> value != null ? value.length() : 0)
+                    .sum();
+        }
+        return (int) Math.min(Integer.MAX_VALUE, bytes);
+    }
+}
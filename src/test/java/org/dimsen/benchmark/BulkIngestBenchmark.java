@@ -0,0 +1,120 @@
+package org.dimsen.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Random;
+
+/**
+ * Streams generated assets to {@code /assets/ingest} of a running application and reports
+ * the throughput, against a target of 10,000 assets per second. Every asset comes with
+ * two issues, a location and a condition history entry, so each asset is five rows and
+ * five documents.
+ * <p>
+ * The brands, categories and types are those of {@code import.sql}. Serial numbers carry
+ * the run's start time, so the benchmark can be repeated against the same database.
+ * <p>
+ * Run with:
+ * {@code java -cp <test classpath> org.dimsen.benchmark.BulkIngestBenchmark [baseUrl] [assets] [rounds]}
+ */
+public class BulkIngestBenchmark {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final double TARGET_ASSETS_PER_SECOND = 10_000;
+
+    private static final String[] BRANDS = {"Dell", "HP"};
+    private static final String[] CATEGORIES = {"Hardware", "Software"};
+    private static final String[] TYPES = {"Laptop", "Desktop"};
+    private static final String[] STATUSES = {"IN_USE", "IN_STOCK", "IN_REPAIR"};
+    private static final String[] PRIORITIES = {"LOW", "MEDIUM", "HIGH", "CRITICAL"};
+    private static final String[] CONDITIONS = {"NEW", "GOOD", "FAIR", "POOR"};
+
+    public static void main(String[] args) throws Exception {
+        var baseUrl = args.length > 0 ? args[0] : "http://localhost:8787";
+        int assets = args.length > 1 ? Integer.parseInt(args[1]) : 50_000;
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+        var client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+        // warm up
+        ingest(client, baseUrl, generate(1_000, "warmup-" + System.currentTimeMillis()));
+
+        System.out.printf("assets=%d rows per asset=5 rounds=%d%n", assets, rounds);
+        double best = 0;
+        for (int round = 1; round <= rounds; round++) {
+            var body = generate(assets, "bench-" + System.currentTimeMillis() + "-" + round);
+            long start = System.nanoTime();
+            var result = ingest(client, baseUrl, body);
+            var seconds = (System.nanoTime() - start) / 1e9;
+
+            var committed = result.get("assets").asLong();
+            var clientRate = committed / seconds;
+            best = Math.max(best, clientRate);
+            System.out.printf("round %d: committed=%d rejected=%d  server=%8.0f assets/s  client=%8.0f assets/s  (%.2f s, %.1f MB)%n",
+                    round, committed, result.get("rejected").asLong(), result.get("assetsPerSecond").asDouble(),
+                    clientRate, seconds, body.length / 1e6);
+            if (result.get("rejected").asLong() > 0) {
+                System.out.println("  errors: " + result.get("errors"));
+            }
+        }
+        System.out.printf("best=%.0f assets/s, target=%.0f assets/s: %s%n",
+                best, TARGET_ASSETS_PER_SECOND, best >= TARGET_ASSETS_PER_SECOND ? "met" : "NOT met");
+    }
+
+    private static byte[] generate(int count, String run) throws Exception {
+        var random = new Random(42);
+        var out = new ByteArrayOutputStream(count * 900);
+        var today = LocalDate.now();
+        for (int i = 0; i < count; i++) {
+            var asset = MAPPER.createObjectNode();
+            asset.put("name", BRANDS[i % 2] + " Model " + (1000 + random.nextInt(9000)));
+            asset.put("serialNumber", run + "-" + i);
+            asset.put("brand", BRANDS[i % 2]);
+            asset.put("category", CATEGORIES[random.nextInt(2)]);
+            asset.put("type", TYPES[random.nextInt(2)]);
+            asset.put("purchaseDate", today.minusDays(random.nextInt(2000)).atStartOfDay().toString());
+            asset.put("purchasePrice", 200 + random.nextInt(4800) + 0.99);
+            asset.put("description", "Generated asset " + i + " with " + (8 << random.nextInt(3)) + "GB RAM");
+            asset.put("status", STATUSES[random.nextInt(STATUSES.length)]);
+
+            var issues = asset.putArray("issues");
+            for (int j = 0; j < 2; j++) {
+                var issue = issues.addObject();
+                issue.put("title", "Issue " + j + " of asset " + i);
+                issue.put("description", "Reported problem number " + j);
+                issue.put("priority", PRIORITIES[random.nextInt(PRIORITIES.length)]);
+                issue.put("status", random.nextBoolean() ? "OPEN" : "RESOLVED");
+            }
+            var location = asset.putArray("locationHistory").addObject();
+            location.put("location", "Headquarters");
+            location.put("building", "Main Building");
+            location.put("floor", (1 + random.nextInt(5)) + "F");
+            location.put("room", "Room " + (100 + random.nextInt(400)));
+            var condition = asset.putArray("conditionHistory").addObject();
+            condition.put("condition", CONDITIONS[random.nextInt(CONDITIONS.length)]);
+            condition.put("notes", "Recorded at intake");
+
+            out.write(MAPPER.writeValueAsBytes(asset));
+            out.write('\n');
+        }
+        return out.toByteArray();
+    }
+
+    private static JsonNode ingest(HttpClient client, String baseUrl, byte[] body) throws Exception {
+        var request = HttpRequest.newBuilder(URI.create(baseUrl + "/assets/ingest"))
+                .header("Content-Type", "application/x-ndjson")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+                .build();
+        var response = client.send(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("HTTP " + response.statusCode() + ": " + response.body());
+        }
+        return MAPPER.readTree(response.body());
+    }
+}
@@ -0,0 +1,116 @@
+package org.dimsen.benchmark;
+
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.inmemory.InMemoryEmbeddingStore;
+import org.dimsen.rag.MappedEmbeddingStore;
+import org.dimsen.rag.VectorMath;
+
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Compares startup cost of the JSON-serialized in-memory store with the memory-mapped
+ * store: load time, retained heap and top-k search latency on the same synthetic catalog.
+ * <p>
+ * Run with:
+ * {@code java --add-modules jdk.incubator.vector -cp <test classpath> org.dimsen.benchmark.EmbeddingStoreBenchmark [entries] [dimension]}
+ */
+public class EmbeddingStoreBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int entries = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int dimension = args.length > 1 ? Integer.parseInt(args[1]) : 4096;
+        var workDir = Files.createTempDirectory("embedding-store-bench");
+        var random = new Random(42);
+
+        List<Embedding> embeddings = new ArrayList<>(entries);
+        List<TextSegment> segments = new ArrayList<>(entries);
+        for (int i = 0; i < entries; i++) {
+            var vector = new float[dimension];
+            for (int d = 0; d < dimension; d++) {
+                vector[d] = (float) random.nextGaussian();
+            }
+            embeddings.add(Embedding.from(vector));
+            segments.add(TextSegment.from("Catalog chunk " + i, Metadata.from(Map.of("index", String.valueOf(i)))));
+        }
+
+        var jsonFile = workDir.resolve("store.json");
+        var inMemory = new InMemoryEmbeddingStore<TextSegment>();
+        inMemory.addAll(embeddings, segments);
+        inMemory.serializeToFile(jsonFile);
+        try (var mapped = new MappedEmbeddingStore(workDir.resolve("store"))) {
+            mapped.addAll(embeddings, segments);
+        }
+        embeddings = null;
+        segments = null;
+        inMemory = null;
+
+        System.out.printf("entries=%d dimension=%d json=%d KB vectorApi=%s%n",
+                entries, dimension, Files.size(jsonFile) / 1024, VectorMath.VECTOR_API_AVAILABLE);
+
+        var query = EmbeddingSearchRequest.builder()
+                .queryEmbedding(Embedding.from(randomVector(random, dimension)))
+                .maxResults(4)
+                .build();
+
+        long heapBefore = usedHeap();
+        long start = System.nanoTime();
+        var loadedJson = InMemoryEmbeddingStore.fromFile(jsonFile);
+        long jsonLoadNanos = System.nanoTime() - start;
+        long jsonHeap = usedHeap() - heapBefore;
+        long jsonSearchNanos = timeSearch(() -> loadedJson.search(query));
+        report("json in-memory", jsonLoadNanos, jsonHeap, jsonSearchNanos);
+
+        heapBefore = usedHeap();
+        start = System.nanoTime();
+        try (var loadedMapped = new MappedEmbeddingStore(workDir.resolve("store"))) {
+            long mappedLoadNanos = System.nanoTime() - start;
+            long mappedHeap = usedHeap() - heapBefore;
+            long mappedSearchNanos = timeSearch(() -> loadedMapped.search(query));
+            report("memory-mapped", mappedLoadNanos, mappedHeap, mappedSearchNanos);
+        }
+
+        // keep the JSON store reachable until both heap measurements are taken
+        System.out.println("json store entries retained: " + (loadedJson != null));
+    }
+
+    private static long timeSearch(Runnable search) {
+        for (int i = 0; i < 20; i++) {
+            search.run();
+        }
+        int iterations = 100;
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            search.run();
+        }
+        return (System.nanoTime() - start) / iterations;
+    }
+
+    private static void report(String name, long loadNanos, long heapBytes, long searchNanos) {
+        System.out.printf("%-16s load=%8.1f ms  heap=%8.1f MB  top-4 search=%8.3f ms%n",
+                name, loadNanos / 1e6, heapBytes / (1024.0 * 1024.0), searchNanos / 1e6);
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    private static float[] randomVector(Random random, int dimension) {
+        var vector = new float[dimension];
+        for (int d = 0; d < dimension; d++) {
+            vector[d] = (float) random.nextGaussian();
+        }
+        return vector;
+    }
+}
@@ -0,0 +1,140 @@
+package org.dimsen.benchmark;
+
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import org.dimsen.rag.HnswEmbeddingStore;
+import org.dimsen.rag.MappedEmbeddingStore;
+
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Latency/recall report of the HNSW index against the exact scan of the mapped store as
+ * the catalog grows. Embeddings are added in doubling steps through the HNSW store (so the
+ * graph is built incrementally, as during ingestion) and both stores are queried after
+ * every step.
+ * <p>
+ * Run with:
+ * {@code java --add-modules jdk.incubator.vector -cp <test classpath> org.dimsen.benchmark.HnswStoreBenchmark [entries] [dimension] [queries] [efSearch]}
+ */
+public class HnswStoreBenchmark {
+
+    private static final int K = 10;
+
+    public static void main(String[] args) throws Exception {
+        int entries = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        int dimension = args.length > 1 ? Integer.parseInt(args[1]) : 768;
+        int queries = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+        int efSearch = args.length > 3 ? Integer.parseInt(args[3]) : 64;
+        var random = new Random(7);
+
+        // Clustered data is closer to real document embeddings than uniform noise
+        int clusters = Math.max(1, entries / 50);
+        List<float[]> centroids = new ArrayList<>(clusters);
+        for (int c = 0; c < clusters; c++) {
+            centroids.add(gaussian(random, dimension, 1f));
+        }
+        List<Embedding> queryEmbeddings = new ArrayList<>(queries);
+        for (int q = 0; q < queries; q++) {
+            queryEmbeddings.add(Embedding.from(around(random, centroids.get(random.nextInt(clusters)), 0.5f)));
+        }
+
+        var workDir = Files.createTempDirectory("hnsw-store-bench");
+        try (var exact = new MappedEmbeddingStore(workDir.resolve("store"))) {
+            var hnsw = new HnswEmbeddingStore(exact, workDir.resolve("store.hnsw"), 16, 200, efSearch);
+            System.out.printf("dimension=%d queries=%d k=%d m=16 efConstruction=200 efSearch=%d%n",
+                    dimension, queries, K, efSearch);
+
+            int added = 0;
+            for (int step = Math.min(1000, entries); ; step = Math.min(step * 2, entries)) {
+                List<Embedding> embeddings = new ArrayList<>();
+                List<TextSegment> segments = new ArrayList<>();
+                for (int i = added; i < step; i++) {
+                    embeddings.add(Embedding.from(around(random, centroids.get(i % clusters), 0.35f)));
+                    segments.add(TextSegment.from("chunk " + i, Metadata.from(Map.of("index", String.valueOf(i)))));
+                }
+                long insertStart = System.nanoTime();
+                hnsw.addAll(embeddings, segments);
+                long insertNanos = System.nanoTime() - insertStart;
+                added = step;
+
+                List<Set<String>> truth = new ArrayList<>(queries);
+                var exactMs = measure(exact, queryEmbeddings, truth, null);
+                double[] recall = new double[1];
+                var hnswMs = measure(hnsw, queryEmbeddings, truth, recall);
+                System.out.printf("entries=%7d  insert=%8.1f ms  exact=%7.3f ms  hnsw=%7.3f ms  recall@%d=%.4f%n",
+                        added, insertNanos / 1e6, exactMs, hnswMs, K, recall[0]);
+
+                if (added == entries) {
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * @param truth Filled with the result ids when {@code recall} is null, compared against otherwise
+     * @return Average latency in milliseconds
+     */
+    private static double measure(EmbeddingStore<TextSegment> store, List<Embedding> queries,
+                                  List<Set<String>> truth, double[] recall) {
+        // warm up
+        for (int i = 0; i < Math.min(20, queries.size()); i++) {
+            store.search(request(queries.get(i)));
+        }
+
+        long nanos = 0;
+        double found = 0;
+        for (int q = 0; q < queries.size(); q++) {
+            long start = System.nanoTime();
+            var matches = store.search(request(queries.get(q))).matches();
+            nanos += System.nanoTime() - start;
+
+            if (recall == null) {
+                truth.add(ids(matches));
+            } else {
+                Set<String> hits = new HashSet<>(ids(matches));
+                hits.retainAll(truth.get(q));
+                found += (double) hits.size() / truth.get(q).size();
+            }
+        }
+        if (recall != null) {
+            recall[0] = found / queries.size();
+        }
+        return nanos / 1e6 / queries.size();
+    }
+
+    private static EmbeddingSearchRequest request(Embedding query) {
+        return EmbeddingSearchRequest.builder().queryEmbedding(query).maxResults(K).build();
+    }
+
+    private static Set<String> ids(List<EmbeddingMatch<TextSegment>> matches) {
+        return matches.stream().map(EmbeddingMatch::embeddingId).collect(Collectors.toSet());
+    }
+
+    private static float[] gaussian(Random random, int dimension, float sigma) {
+        var vector = new float[dimension];
+        for (int d = 0; d < dimension; d++) {
+            vector[d] = (float) random.nextGaussian() * sigma;
+        }
+        return vector;
+    }
+
+    private static float[] around(Random random, float[] centroid, float sigma) {
+        var noise = gaussian(random, centroid.length, sigma);
+        for (int d = 0; d < centroid.length; d++) {
+            noise[d] += centroid[d];
+        }
+        return noise;
+    }
+}
@@ -0,0 +1,269 @@
+package org.dimsen.benchmark;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.apache.http.HttpHost;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.ResponseException;
+import org.elasticsearch.client.RestClient;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares the flattened and the nested mapping of asset issues on the same synthetic
+ * catalog: index size, query latency and the number of false positives of the flattened
+ * mapping for "open issue about X with priority at least P" criteria.
+ * <p>
+ * Needs a running Elasticsearch (see {@code quarkus.hibernate-search-orm.elasticsearch.hosts}).
+ * Run with:
+ * {@code java -cp <test classpath> org.dimsen.benchmark.NestedIssueMappingBenchmark [url] [assets] [issuesPerAsset] [queries]}
+ */
+public class NestedIssueMappingBenchmark {
+
+    private static final String FLATTENED = "bench-issues-flattened";
+    private static final String NESTED = "bench-issues-nested";
+    private static final String[] PRIORITIES = {"LOW", "MEDIUM", "HIGH", "CRITICAL"};
+    private static final String[] STATUSES = {"OPEN", "IN_PROGRESS", "RESOLVED", "CLOSED"};
+    private static final String[] WORDS = {
+            "battery", "screen", "keyboard", "network", "overheating", "driver", "fan", "disk",
+            "printer", "license", "update", "power", "memory", "display", "wifi", "camera"};
+    private static final int BULK_SIZE = 1000;
+
+    public static void main(String[] args) throws Exception {
+        var url = args.length > 0 ? args[0] : "http://localhost:9200";
+        int assets = args.length > 1 ? Integer.parseInt(args[1]) : 20000;
+        int issuesPerAsset = args.length > 2 ? Integer.parseInt(args[2]) : 25;
+        int queries = args.length > 3 ? Integer.parseInt(args[3]) : 300;
+        var random = new Random(11);
+
+        try (var client = RestClient.builder(HttpHost.create(url)).build()) {
+            createIndex(client, FLATTENED, "object");
+            createIndex(client, NESTED, "nested");
+
+            var loadStart = System.nanoTime();
+            var bulkFlattened = new StringBuilder();
+            var bulkNested = new StringBuilder();
+            for (int id = 0; id < assets; id++) {
+                var document = asset(random, id, issuesPerAsset).toString();
+                append(bulkFlattened, FLATTENED, id, document);
+                append(bulkNested, NESTED, id, document);
+                if ((id + 1) % BULK_SIZE == 0 || id == assets - 1) {
+                    bulk(client, bulkFlattened);
+                    bulk(client, bulkNested);
+                    bulkFlattened.setLength(0);
+                    bulkNested.setLength(0);
+                }
+            }
+            for (var index : List.of(FLATTENED, NESTED)) {
+                client.performRequest(new Request("POST", "/" + index + "/_refresh"));
+                var merge = new Request("POST", "/" + index + "/_forcemerge");
+                merge.addParameter("max_num_segments", "1");
+                client.performRequest(merge);
+            }
+            System.out.printf("assets=%d issuesPerAsset=%d queries=%d loaded in %.1f s%n",
+                    assets, issuesPerAsset, queries, (System.nanoTime() - loadStart) / 1e9);
+
+            for (var index : List.of(FLATTENED, NESTED)) {
+                var primaries = json(client.performRequest(new Request("GET", "/" + index + "/_stats/store,docs")))
+                        .getAsJsonObject("indices").getAsJsonObject(index).getAsJsonObject("primaries");
+                System.out.printf("%-24s size=%8.1f MB  lucene docs=%d%n", index,
+                        primaries.getAsJsonObject("store").get("size_in_bytes").getAsLong() / 1024.0 / 1024.0,
+                        primaries.getAsJsonObject("docs").get("count").getAsLong());
+            }
+
+            List<JsonObject> criteria = new ArrayList<>(queries);
+            for (int q = 0; q < queries; q++) {
+                criteria.add(issueCriteria(WORDS[random.nextInt(WORDS.length)], 1 + random.nextInt(PRIORITIES.length)));
+            }
+
+            long[] flattenedHits = new long[queries];
+            long[] nestedHits = new long[queries];
+            var flattenedLatency = run(client, FLATTENED, criteria, false, flattenedHits);
+            var nestedLatency = run(client, NESTED, criteria, true, nestedHits);
+
+            long falsePositives = 0;
+            long flattenedTotal = 0;
+            for (int q = 0; q < queries; q++) {
+                falsePositives += flattenedHits[q] - nestedHits[q];
+                flattenedTotal += flattenedHits[q];
+            }
+            System.out.printf("flattened  avg=%7.3f ms  p95=%7.3f ms  avg hits=%8.1f%n",
+                    average(flattenedLatency), percentile(flattenedLatency, 0.95), (double) flattenedTotal / queries);
+            System.out.printf("nested     avg=%7.3f ms  p95=%7.3f ms  avg hits=%8.1f%n",
+                    average(nestedLatency), percentile(nestedLatency, 0.95), (double) (flattenedTotal - falsePositives) / queries);
+            System.out.printf("flattened false positives: %.1f%% of its hits%n",
+                    flattenedTotal == 0 ? 0 : 100.0 * falsePositives / flattenedTotal);
+
+            for (var index : List.of(FLATTENED, NESTED)) {
+                client.performRequest(new Request("DELETE", "/" + index));
+            }
+        }
+    }
+
+    private static void createIndex(RestClient client, String index, String issuesType) throws IOException {
+        try {
+            client.performRequest(new Request("DELETE", "/" + index));
+        } catch (ResponseException e) {
+            // did not exist
+        }
+
+        var issueProperties = new JsonObject();
+        issueProperties.add("title", type("text"));
+        issueProperties.add("description", type("text"));
+        issueProperties.add("priority", type("keyword"));
+        issueProperties.add("status", type("keyword"));
+        var issues = type(issuesType);
+        issues.add("properties", issueProperties);
+
+        var properties = new JsonObject();
+        properties.add("name", type("text"));
+        properties.add("status", type("keyword"));
+        properties.add("issues", issues);
+        var mappings = new JsonObject();
+        mappings.add("properties", properties);
+        var settings = new JsonObject();
+        settings.addProperty("number_of_shards", 1);
+        settings.addProperty("number_of_replicas", 0);
+        var body = new JsonObject();
+        body.add("settings", settings);
+        body.add("mappings", mappings);
+
+        var request = new Request("PUT", "/" + index);
+        request.setJsonEntity(body.toString());
+        client.performRequest(request);
+    }
+
+    private static JsonObject asset(Random random, int id, int issueCount) {
+        var issues = new JsonArray();
+        for (int i = 0; i < issueCount; i++) {
+            var issue = new JsonObject();
+            var word = WORDS[random.nextInt(WORDS.length)];
+            issue.addProperty("title", word + " problem " + i);
+            issue.addProperty("description", "Reported " + word + " issue with " + WORDS[random.nextInt(WORDS.length)]);
+            issue.addProperty("priority", PRIORITIES[random.nextInt(PRIORITIES.length)]);
+            issue.addProperty("status", STATUSES[random.nextInt(STATUSES.length)]);
+            issues.add(issue);
+        }
+        var asset = new JsonObject();
+        asset.addProperty("name", "Asset " + id);
+        asset.addProperty("status", "IN_USE");
+        asset.add("issues", issues);
+        return asset;
+    }
+
+    /**
+     * Issue about the word, with at least the given priority rank, that is neither resolved nor closed
+     */
+    private static JsonObject issueCriteria(String word, int minRank) {
+        var match = new JsonObject();
+        var matchField = new JsonObject();
+        matchField.addProperty("issues.title", word);
+        match.add("match", matchField);
+
+        var priorities = new JsonArray();
+        Arrays.stream(PRIORITIES, minRank - 1, PRIORITIES.length).forEach(priorities::add);
+        var prioritiesField = new JsonObject();
+        prioritiesField.add("issues.priority", priorities);
+        var priority = new JsonObject();
+        priority.add("terms", prioritiesField);
+
+        var closed = new JsonArray();
+        closed.add("RESOLVED");
+        closed.add("CLOSED");
+        var closedField = new JsonObject();
+        closedField.add("issues.status", closed);
+        var status = new JsonObject();
+        status.add("terms", closedField);
+
+        var must = new JsonArray();
+        must.add(match);
+        must.add(priority);
+        var bool = new JsonObject();
+        bool.add("must", must);
+        bool.add("must_not", status);
+        var query = new JsonObject();
+        query.add("bool", bool);
+        return query;
+    }
+
+    private static double[] run(RestClient client, String index, List<JsonObject> criteria,
+                                boolean nested, long[] hits) throws IOException {
+        // warm up
+        for (int q = 0; q < Math.min(30, criteria.size()); q++) {
+            search(client, index, criteria.get(q), nested);
+        }
+
+        var latencies = new double[criteria.size()];
+        for (int q = 0; q < criteria.size(); q++) {
+            long start = System.nanoTime();
+            hits[q] = search(client, index, criteria.get(q), nested);
+            latencies[q] = (System.nanoTime() - start) / 1e6;
+        }
+        return latencies;
+    }
+
+    private static long search(RestClient client, String index, JsonObject issueQuery, boolean nested) throws IOException {
+        JsonObject query = issueQuery;
+        if (nested) {
+            var nestedQuery = new JsonObject();
+            nestedQuery.addProperty("path", "issues");
+            nestedQuery.add("query", issueQuery);
+            query = new JsonObject();
+            query.add("nested", nestedQuery);
+        }
+        var body = new JsonObject();
+        body.add("query", query);
+        body.addProperty("size", 20);
+        body.addProperty("track_total_hits", true);
+        body.add("_source", new JsonArray());
+
+        var request = new Request("POST", "/" + index + "/_search");
+        request.addParameter("request_cache", "false");
+        request.setJsonEntity(body.toString());
+        return json(client.performRequest(request))
+                .getAsJsonObject("hits").getAsJsonObject("total").get("value").getAsLong();
+    }
+
+    private static void append(StringBuilder bulk, String index, int id, String document) {
+        bulk.append("{\"index\":{\"_index\":\"").append(index).append("\",\"_id\":\"").append(id).append("\"}}\n");
+        bulk.append(document).append('\n');
+    }
+
+    private static void bulk(RestClient client, StringBuilder body) throws IOException {
+        var request = new Request("POST", "/_bulk");
+        request.setJsonEntity(body.toString());
+        if (json(client.performRequest(request)).get("errors").getAsBoolean()) {
+            throw new IllegalStateException("Bulk indexing reported errors");
+        }
+    }
+
+    private static JsonObject type(String type) {
+        var field = new JsonObject();
+        field.addProperty("type", type);
+        return field;
+    }
+
+    private static JsonObject json(Response response) throws IOException {
+        try (var reader = new InputStreamReader(response.getEntity().getContent(), StandardCharsets.UTF_8)) {
+            return JsonParser.parseReader(reader).getAsJsonObject();
+        }
+    }
+
+    private static double average(double[] values) {
+        return Arrays.stream(values).average().orElse(0);
+    }
+
+    private static double percentile(double[] values, double percentile) {
+        var sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(percentile * sorted.length) - 1)];
+    }
+}
@@ -0,0 +1,131 @@
+package org.dimsen.benchmark;
+
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import org.dimsen.rag.MappedEmbeddingStore;
+import org.dimsen.rag.QuantizedEmbeddingStore;
+
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Recall/latency report of the int8 quantized store against the exact float32 store.
+ * Recall@k is the share of the exact top-k ids also returned by the quantized store,
+ * for several re-scoring oversample factors.
+ * <p>
+ * Run with:
+ * {@code java --add-modules jdk.incubator.vector -cp <test classpath> org.dimsen.benchmark.QuantizedStoreBenchmark [entries] [dimension] [queries]}
+ */
+public class QuantizedStoreBenchmark {
+
+    private static final int K = 10;
+
+    public static void main(String[] args) throws Exception {
+        int entries = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        int dimension = args.length > 1 ? Integer.parseInt(args[1]) : 768;
+        int queries = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+        var random = new Random(7);
+
+        // Clustered data is closer to real document embeddings than uniform noise
+        int clusters = Math.max(1, entries / 50);
+        List<float[]> centroids = new ArrayList<>(clusters);
+        for (int c = 0; c < clusters; c++) {
+            centroids.add(gaussian(random, dimension, 1f));
+        }
+
+        var workDir = Files.createTempDirectory("quantized-store-bench");
+        try (var exact = new MappedEmbeddingStore(workDir.resolve("store"))) {
+            List<Embedding> embeddings = new ArrayList<>(entries);
+            List<TextSegment> segments = new ArrayList<>(entries);
+            for (int i = 0; i < entries; i++) {
+                embeddings.add(Embedding.from(around(random, centroids.get(i % clusters), 0.35f)));
+                segments.add(TextSegment.from("chunk " + i, Metadata.from(Map.of("index", String.valueOf(i)))));
+            }
+            exact.addAll(embeddings, segments);
+
+            List<Embedding> queryEmbeddings = new ArrayList<>(queries);
+            for (int q = 0; q < queries; q++) {
+                queryEmbeddings.add(Embedding.from(around(random, centroids.get(random.nextInt(clusters)), 0.5f)));
+            }
+
+            System.out.printf("entries=%d dimension=%d queries=%d k=%d%n", entries, dimension, queries, K);
+            System.out.printf("float32 heap for vectors (in-memory store): %.1f MB%n",
+                    (double) entries * dimension * Float.BYTES / (1024 * 1024));
+
+            List<Set<String>> truth = new ArrayList<>(queries);
+            long exactNanos = 0;
+            for (var query : queryEmbeddings) {
+                long start = System.nanoTime();
+                var matches = exact.search(request(query)).matches();
+                exactNanos += System.nanoTime() - start;
+                truth.add(ids(matches));
+            }
+            System.out.printf("%-22s recall@%d=%.4f  avg latency=%7.3f ms%n",
+                    "float32 exact", K, 1.0, exactNanos / 1e6 / queries);
+
+            for (int oversample : new int[]{1, 2, 4, 8}) {
+                var quantized = new QuantizedEmbeddingStore(exact, oversample);
+                report("int8 oversample=" + oversample, quantized, queryEmbeddings, truth);
+                if (oversample == 1) {
+                    System.out.printf("int8 heap for codes: %.1f MB%n", quantized.quantizedBytes() / (1024.0 * 1024.0));
+                }
+            }
+        }
+    }
+
+    private static void report(String name, EmbeddingStore<TextSegment> store,
+                               List<Embedding> queries, List<Set<String>> truth) {
+        // warm up
+        for (int i = 0; i < Math.min(20, queries.size()); i++) {
+            store.search(request(queries.get(i)));
+        }
+
+        long nanos = 0;
+        double recall = 0;
+        for (int q = 0; q < queries.size(); q++) {
+            long start = System.nanoTime();
+            var matches = store.search(request(queries.get(q))).matches();
+            nanos += System.nanoTime() - start;
+
+            Set<String> found = new HashSet<>(ids(matches));
+            found.retainAll(truth.get(q));
+            recall += (double) found.size() / truth.get(q).size();
+        }
+        System.out.printf("%-22s recall@%d=%.4f  avg latency=%7.3f ms%n",
+                name, K, recall / queries.size(), nanos / 1e6 / queries.size());
+    }
+
+    private static EmbeddingSearchRequest request(Embedding query) {
+        return EmbeddingSearchRequest.builder().queryEmbedding(query).maxResults(K).build();
+    }
+
+    private static Set<String> ids(List<EmbeddingMatch<TextSegment>> matches) {
+        return matches.stream().map(EmbeddingMatch::embeddingId).collect(Collectors.toSet());
+    }
+
+    private static float[] gaussian(Random random, int dimension, float sigma) {
+        var vector = new float[dimension];
+        for (int d = 0; d < dimension; d++) {
+            vector[d] = (float) random.nextGaussian() * sigma;
+        }
+        return vector;
+    }
+
+    private static float[] around(Random random, float[] centroid, float sigma) {
+        var noise = gaussian(random, centroid.length, sigma);
+        for (int d = 0; d < centroid.length; d++) {
+            noise[d] += centroid[d];
+        }
+        return noise;
+    }
+}
@@ -0,0 +1,117 @@
+package org.dimsen.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Replays typeahead keystrokes against a running application and reports the latency
+ * distribution of {@code /assets/search/suggest} next to {@code /assets/search/fuzzy-name},
+ * which the UI used for typeahead before. The target for suggest is single-digit
+ * milliseconds at p95.
+ * <p>
+ * Asset names and serial numbers to type are sampled from the suggest endpoint itself, so
+ * the catalog must be loaded and indexed. Every name is typed one character at a time and
+ * every prefix is one request.
+ * <p>
+ * Run with:
+ * {@code java -cp <test classpath> org.dimsen.benchmark.SuggestLatencyBenchmark [baseUrl] [values] [rounds]}
+ */
+public class SuggestLatencyBenchmark {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    public static void main(String[] args) throws Exception {
+        var baseUrl = args.length > 0 ? args[0] : "http://localhost:8080";
+        int values = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+        var client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+        // Sample names and serial numbers reachable from single letter prefixes
+        Set<String> typed = new LinkedHashSet<>();
+        for (char letter = 'a'; letter <= 'z' && typed.size() < values; letter++) {
+            for (var suggestion : get(client, baseUrl + "/assets/search/suggest?limit=10&q=" + letter)) {
+                typed.add(suggestion.get("name").asText());
+                typed.add(suggestion.get("serialNumber").asText());
+            }
+        }
+        List<String> prefixes = new ArrayList<>();
+        typed.stream().limit(values).forEach(value -> {
+            for (int length = 1; length <= value.length(); length++) {
+                if (!Character.isWhitespace(value.charAt(length - 1))) {
+                    prefixes.add(value.substring(0, length));
+                }
+            }
+        });
+        if (prefixes.isEmpty()) {
+            System.out.println("No suggestions returned, is the catalog indexed?");
+            return;
+        }
+        System.out.printf("values=%d keystrokes=%d rounds=%d%n", Math.min(values, typed.size()), prefixes.size(), rounds);
+
+        report("suggest", measure(client, prefixes, rounds,
+                prefix -> baseUrl + "/assets/search/suggest?limit=10&q=" + encode(prefix)));
+        report("fuzzy-name", measure(client, prefixes, rounds,
+                prefix -> baseUrl + "/assets/search/fuzzy-name?limit=10&name=" + encode(prefix)));
+    }
+
+    private static double[] measure(HttpClient client, List<String> prefixes, int rounds,
+                                    Function<String, String> url) throws Exception {
+        // warm up
+        for (int i = 0; i < Math.min(100, prefixes.size()); i++) {
+            get(client, url.apply(prefixes.get(i)));
+        }
+
+        var latencies = new double[prefixes.size() * rounds];
+        int i = 0;
+        for (int round = 0; round < rounds; round++) {
+            for (var prefix : prefixes) {
+                var request = HttpRequest.newBuilder(URI.create(url.apply(prefix))).GET().build();
+                long start = System.nanoTime();
+                var response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+                latencies[i++] = (System.nanoTime() - start) / 1e6;
+                if (response.statusCode() != 200) {
+                    throw new IllegalStateException("HTTP " + response.statusCode() + " for " + request.uri());
+                }
+            }
+        }
+        return latencies;
+    }
+
+    private static void report(String endpoint, double[] latencies) {
+        var sorted = latencies.clone();
+        Arrays.sort(sorted);
+        System.out.printf("%-11s avg=%7.2f ms  p50=%7.2f ms  p95=%7.2f ms  p99=%7.2f ms  max=%7.2f ms%n",
+                endpoint, Arrays.stream(sorted).average().orElse(0),
+                percentile(sorted, 0.50), percentile(sorted, 0.95), percentile(sorted, 0.99), sorted[sorted.length - 1]);
+    }
+
+    private static double percentile(double[] sorted, double percentile) {
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(percentile * sorted.length) - 1)];
+    }
+
+    private static JsonNode get(HttpClient client, String url) throws Exception {
+        var response = client.send(HttpRequest.newBuilder(URI.create(url)).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("HTTP " + response.statusCode() + " for " + url);
+        }
+        return MAPPER.readTree(response.body());
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,188 @@
+package org.dimsen.service;
+
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import org.dimsen.dto.CompoundSearchRequest;
+import org.dimsen.enums.IndexConsistencyMode;
+import org.dimsen.model.Asset;
+import org.dimsen.model.AssetConditionHistory;
+import org.dimsen.model.AssetLocationHistory;
+import org.dimsen.model.Brand;
+import org.dimsen.model.Category;
+import org.dimsen.model.Issue;
+import org.dimsen.model.Type;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Loading a page of asset hits, or the assets of an indexing batch, must cost the same
+ * number of SQL statements whatever the number of assets: reference data is join fetched
+ * through {@link Asset#SEARCH_HIT_GRAPH} and the indexed collections are batch fetched.
+ * Needs the PostgreSQL database and Elasticsearch of application.properties.
+ */
+@QuarkusTest
+@TestProfile(SearchHitLoadingTest.StatementCounting.class)
+class SearchHitLoadingTest {
+
+    private static final int PAGE_SIZE = 20;
+
+    @Inject
+    EntityManager em;
+
+    @Inject
+    SessionFactory sessionFactory;
+
+    @Inject
+    AssetSearchService searchService;
+
+    @Inject
+    IndexSyncQueue indexSyncQueue;
+
+    public static class StatementCounting implements QuarkusTestProfile {
+        @Override
+        public Map<String, String> getConfigOverrides() {
+            return Map.of(
+                    "quarkus.hibernate-orm.statistics", "true",
+                    // Hits are loaded as entities; projections never reach the database
+                    "asset.search.projection.compound", "false",
+                    // No scheduled index refreshes or embedding reconciles while statements are counted
+                    "quarkus.scheduler.enabled", "false");
+        }
+    }
+
+    @Test
+    void searchHitPageCostsConstantStatements() throws Exception {
+        var marker = marker();
+        createAssets(marker, PAGE_SIZE);
+
+        var single = statementsOf(() -> assertEquals(1, search(marker, 1).size()));
+        var page = statementsOf(() -> assertEquals(PAGE_SIZE, search(marker, PAGE_SIZE).size()));
+
+        assertEquals(single, page, "SQL statements for 1 hit and for " + PAGE_SIZE + " hits");
+    }
+
+    @Test
+    void indexingBatchCostsConstantStatements() throws Exception {
+        var documents = createAssets(marker(), PAGE_SIZE).stream()
+                .map(id -> new IndexSyncQueue.DocumentRef(Asset.class, id))
+                .toList();
+
+        var single = statementsOf(() -> indexSyncQueue.index(documents.subList(0, 1)));
+        var batch = statementsOf(() -> indexSyncQueue.index(documents));
+
+        assertEquals(single, batch, "SQL statements for indexing 1 asset and " + PAGE_SIZE + " assets");
+    }
+
+    private List<?> search(String marker, int limit) {
+        return searchService.compoundSearchHits(new CompoundSearchRequest(null, Map.of("text", marker), limit));
+    }
+
+    private long statementsOf(Runnable action) throws InterruptedException {
+        awaitQuiet();
+        var statistics = sessionFactory.getStatistics();
+        var before = statistics.getPrepareStatementCount();
+        action.run();
+        return statistics.getPrepareStatementCount() - before;
+    }
+
+    /**
+     * Waits until background work (write-behind indexing, embedding) no longer issues statements
+     */
+    private void awaitQuiet() throws InterruptedException {
+        var statistics = sessionFactory.getStatistics();
+        var deadline = System.nanoTime() + 30_000_000_000L;
+        var last = statistics.getPrepareStatementCount();
+        int stableChecks = 0;
+        while (stableChecks < 3 && System.nanoTime() < deadline) {
+            Thread.sleep(200);
+            var current = statistics.getPrepareStatementCount();
+            stableChecks = current == last ? stableChecks + 1 : 0;
+            last = current;
+        }
+    }
+
+    /**
+     * Persists assets with two issues, condition and location history entries each, and
+     * waits until they are searchable
+     */
+    private List<Long> createAssets(String marker, int count) throws Exception {
+        return indexSyncQueue.withConsistency(IndexConsistencyMode.READ_SYNC,
+                () -> QuarkusTransaction.requiringNew().call(() -> {
+                    var brand = em.createQuery("from Brand", Brand.class).setMaxResults(1).getSingleResult();
+                    var category = em.createQuery("from Category", Category.class).setMaxResults(1).getSingleResult();
+                    var type = em.createQuery("from Type", Type.class).setMaxResults(1).getSingleResult();
+
+                    List<Asset> assets = new ArrayList<>(count);
+                    for (int i = 0; i < count; i++) {
+                        var asset = new Asset();
+                        asset.setName(marker + " workstation " + i);
+                        asset.setSerialNumber(marker + "-" + i);
+                        asset.setBrand(brand);
+                        asset.setCategory(category);
+                        asset.setType(type);
+                        asset.setPurchaseDate(LocalDateTime.now().minusMonths(i));
+                        asset.setPurchasePrice(1000d + i);
+                        asset.setStatus("ACTIVE");
+                        for (int j = 0; j < 2; j++) {
+                            asset.getIssues().add(issue(asset, j));
+                            asset.getConditionHistory().add(condition(asset, j));
+                            asset.getLocationHistory().add(location(asset, j));
+                        }
+                        em.persist(asset);
+                        assets.add(asset);
+                    }
+                    em.flush();
+                    return assets.stream().map(Asset::getId).toList();
+                }));
+    }
+
+    private static Issue issue(Asset asset, int index) {
+        var issue = new Issue();
+        issue.setAsset(asset);
+        issue.setTitle("Issue " + index);
+        issue.setDescription("Fan noise under load");
+        issue.setPriority(index == 0 ? "HIGH" : "LOW");
+        issue.setStatus(index == 0 ? "OPEN" : "RESOLVED");
+        issue.setReportedAt(LocalDateTime.now().minusDays(index + 1));
+        issue.setReportedBy("test");
+        return issue;
+    }
+
+    private static AssetConditionHistory condition(Asset asset, int index) {
+        var history = new AssetConditionHistory();
+        history.setAsset(asset);
+        history.setCondition(index == 0 ? "GOOD" : "FAIR");
+        history.setNotes("Inspection " + index);
+        history.setRecordedAt(LocalDateTime.now().minusDays(index + 1));
+        history.setRecordedBy("test");
+        return history;
+    }
+
+    private static AssetLocationHistory location(Asset asset, int index) {
+        var history = new AssetLocationHistory();
+        history.setAsset(asset);
+        history.setLocation("Office " + index);
+        history.setBuilding("HQ");
+        history.setFloor(String.valueOf(index + 1));
+        history.setRoom("10" + index);
+        history.setMovedAt(LocalDateTime.now().minusDays(index + 1));
+        history.setMovedBy("test");
+        return history;
+    }
+
+    private static String marker() {
+        return "stmtprobe" + UUID.randomUUID().toString().replace("-", "");
+    }
+}